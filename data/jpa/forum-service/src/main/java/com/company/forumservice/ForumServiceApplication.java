@@ -1,9 +1,12 @@
 package com.company.forumservice;
 
+import com.company.forumservice.configuration.ApplicationConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import(ApplicationConfiguration.class)
 public class ForumServiceApplication {
 
 	public static void main(String[] args) {
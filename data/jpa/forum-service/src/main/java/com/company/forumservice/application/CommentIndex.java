@@ -0,0 +1,50 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.SearchQuery;
+
+import java.util.List;
+
+/**
+ * Full-text index of the comment contents, kept next to the database and fed by {@link ForumService}
+ * as comments are posted, so that searching never scans the comments table.
+ */
+public interface CommentIndex extends AutoCloseable {
+
+    /**
+     * Searchable once the method returns, durable once flushed
+     */
+    void add(CommentDocument document);
+
+    /**
+     * @return at most query.limit() hits, best first
+     */
+    List<Hit> search(SearchQuery query);
+
+    /**
+     * Writes the comments added since the last flush to disk
+     */
+    void flush();
+
+    /**
+     * Greatest id of the comments indexed, 0 when the index is empty
+     */
+    long lastCommentId();
+
+    /**
+     * Whether the comment is indexed with the thread and time of the document, which tells an index built from
+     * this database from the index of a database since recreated, whose ids were allocated again
+     */
+    boolean contains(CommentDocument document);
+
+    /**
+     * Removes every comment from the index, on disk too
+     */
+    void clear();
+
+    @Override
+    void close();
+
+    record Hit(Long commentId, double score) {
+    }
+}
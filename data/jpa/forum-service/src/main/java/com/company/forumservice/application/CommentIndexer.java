@@ -0,0 +1,67 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.CommentRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Indexes the comments stored after the last one in the index, e.g. when the index was lost or comments were
+ * posted while it was unavailable. Comments are read in id order, in batches of batchSize. Ids are allocated
+ * in blocks, a comment committed after a comment with a greater id was flushed to the index, and not flushed
+ * itself before a crash, is not caught up.
+ * <p>
+ * The index is only trusted when its last comment is stored in the database with the same thread and time.
+ * Otherwise it was built from another database, e.g. one recreated or restored from an older backup since,
+ * whose ids would be missing or name other comments: it is cleared and rebuilt from the first comment.
+ */
+@Slf4j
+public class CommentIndexer {
+
+    private final CommentRepository commentRepository;
+
+    private final CommentIndex commentIndex;
+
+    private final int batchSize;
+
+    public CommentIndexer(CommentRepository commentRepository, CommentIndex commentIndex, int batchSize) {
+        this.commentRepository = commentRepository;
+        this.commentIndex = commentIndex;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return number of comments indexed
+     */
+    public long catchUp() {
+        long start = System.nanoTime();
+        if (!matchesDatabase()) {
+            log.warn("Search index ends with comment {} which the database does not have, rebuilding it",
+                    commentIndex.lastCommentId());
+            commentIndex.clear();
+        }
+        long indexed = 0;
+        List<CommentDocument> documents;
+        do {
+            documents = commentRepository.findDocumentsAfter(commentIndex.lastCommentId(), batchSize);
+            documents.forEach(commentIndex::add);
+            indexed += documents.size();
+        } while (documents.size() == batchSize);
+        if (indexed > 0) {
+            commentIndex.flush();
+            log.info("Indexed {} comments missing from the search index in {} ms", indexed,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        return indexed;
+    }
+
+    private boolean matchesDatabase() {
+        long lastCommentId = commentIndex.lastCommentId();
+        if (lastCommentId == 0) {
+            return true;
+        }
+        List<CommentDocument> last = commentRepository.findDocumentsAfter(lastCommentId - 1, 1);
+        return !last.isEmpty() && commentIndex.contains(last.getFirst());
+    }
+}
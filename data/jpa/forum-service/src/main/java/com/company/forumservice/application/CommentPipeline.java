@@ -0,0 +1,240 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.port.CommentSpec;
+import com.company.forumservice.domain.port.ForumPort;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Group commit in front of {@link ForumPort#postComments}. Submitted comments wait in a bounded queue, a single
+ * writer thread takes what is queued, waits at most maxDelay after the oldest comment for others to join, and posts
+ * up to maxBatchSize comments, of any threads, in one transaction. A burst on a popular thread costs one transaction
+ * and a few multi-row inserts per batch instead of one transaction per comment.
+ *
+ * A full queue pushes back on the submitters: submit blocks up to enqueueTimeout, then rejects the comment.
+ * Each comment's future completes once its batch committed. A batch is posted in a transaction of the pipeline,
+ * flushed before committing: when posting it fails, it is rolled back and its comments are posted one by one,
+ * so that a comment of a missing thread or author fails alone. When committing fails, whatever the exception,
+ * whether the batch was committed is unknown, and its comments fail rather than risk being posted twice.
+ */
+@Slf4j
+public class CommentPipeline implements AutoCloseable {
+
+    private final ForumPort forumPort;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PendingComment> queue;
+
+    private final int maxBatchSize;
+
+    private final Duration maxDelay;
+
+    private final Duration enqueueTimeout;
+
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    private final AtomicLong accepted = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    public CommentPipeline(ForumPort forumPort, PlatformTransactionManager transactionManager, int capacity,
+                           int maxBatchSize, Duration maxDelay, Duration enqueueTimeout) {
+        this.forumPort = forumPort;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.enqueueTimeout = enqueueTimeout;
+        this.writer = Thread.ofPlatform().name("comment-writer").start(this::write);
+    }
+
+    /**
+     * @throws RejectedExecutionException when the queue stayed full for enqueueTimeout, or the pipeline is closed
+     */
+    public CompletableFuture<Comment> submit(Long threadId, Long authorId, String content) {
+        if (closed) {
+            throw new RejectedExecutionException("Comment pipeline is closed");
+        }
+        PendingComment comment = new PendingComment(new CommentSpec(threadId, authorId, content), System.nanoTime(),
+                new CompletableFuture<>());
+        try {
+            if (!queue.offer(comment, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Comment queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the comment queue", e);
+        }
+        if (closed && queue.remove(comment)) {
+            // closed while waiting for room, the writer may have stopped and the queue been drained already
+            comment.future().completeExceptionally(new RejectedExecutionException("Comment pipeline is closed"));
+            return comment.future();
+        }
+        accepted.incrementAndGet();
+        return comment.future();
+    }
+
+    /**
+     * Whatever happens to a batch, its futures are completed: an error fails the batch and the writer goes on
+     * with the next one. Interrupted while not closing, the writer stops and fails what is still queued.
+     */
+    private void write() {
+        List<PendingComment> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                if (collect(batch)) {
+                    post(batch);
+                }
+            } catch (InterruptedException e) {
+                if (!closed) {
+                    closed = true;
+                    log.warn("Comment writer interrupted, {} queued comments are not posted",
+                            batch.size() + queue.size());
+                    fail(batch, new RejectedExecutionException("Comment writer interrupted", e));
+                    rejectQueued();
+                    return;
+                }
+            } catch (RuntimeException | Error e) {
+                log.error("Posting {} comments failed", batch.size(), e);
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for a first comment, then for the batch to fill up until maxDelay after the first comment was submitted
+     *
+     * @return false when nothing was submitted for a while
+     */
+    private boolean collect(List<PendingComment> batch) throws InterruptedException {
+        PendingComment first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = first.submittedNanos() + maxDelay.toNanos();
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() == maxBatchSize || remaining <= 0) {
+                break;
+            }
+            PendingComment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    /**
+     * The comments are set once inserted, an exception thrown after that was thrown by the commit
+     */
+    private void post(List<PendingComment> batch) {
+        List<CommentSpec> specs = batch.stream().map(PendingComment::spec).toList();
+        AtomicReference<List<Comment>> posted = new AtomicReference<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Comment> comments = forumPort.postComments(specs);
+                status.flush();
+                posted.set(comments);
+            });
+        } catch (RuntimeException e) {
+            if (posted.get() != null) {
+                log.warn("Committing {} comments failed, they may or may not be posted", batch.size(), e);
+                fail(batch, e);
+            } else {
+                log.debug("Posting {} comments together failed, posting them one by one", batch.size(), e);
+                batch.forEach(this::postAlone);
+            }
+            return;
+        }
+        batches.incrementAndGet();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future().complete(posted.get().get(i));
+        }
+    }
+
+    private void postAlone(PendingComment comment) {
+        CommentSpec spec = comment.spec();
+        try {
+            comment.future().complete(forumPort.postComment(spec.threadId(), spec.authorId(), spec.content()));
+        } catch (RuntimeException e) {
+            comment.future().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Comments of the batch already posted alone keep their outcome, a future completes only once
+     */
+    private static void fail(List<PendingComment> batch, Throwable e) {
+        batch.forEach(comment -> comment.future().completeExceptionally(e));
+    }
+
+    private void rejectQueued() {
+        List<PendingComment> late = new ArrayList<>();
+        queue.drainTo(late);
+        fail(late, new RejectedExecutionException("Comment pipeline is closed"));
+    }
+
+    /**
+     * Rejects new comments and waits for the queued ones to be posted. A comment submitted while closing,
+     * after the writer stopped, is rejected through its future.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectQueued();
+    }
+
+    /**
+     * Comments queued since the pipeline was created
+     */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * Comments rejected because the queue was full
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Transactions that posted a whole batch
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    private record PendingComment(CommentSpec spec, long submittedNanos, CompletableFuture<Comment> future) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.CounterRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recomputes the counters of every thread from its comments, then of every topic from its threads, correcting
+ * the drift left by activity {@link ForumCounters} lost, or by comments stored behind the service's back.
+ * Threads and topics are recounted in id order, batchSize at a time, each batch in a short transaction of its own.
+ * A comment committed while its thread is recounted, and flushed after, is counted twice until the next run.
+ */
+@Slf4j
+public class CounterReconciler {
+
+    private final CounterRepository counterRepository;
+
+    private final ForumCounters counters;
+
+    private final int batchSize;
+
+    public CounterReconciler(CounterRepository counterRepository, ForumCounters counters, int batchSize) {
+        this.counterRepository = counterRepository;
+        this.counters = counters;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return number of threads recounted
+     */
+    public long reconcile() {
+        long start = System.nanoTime();
+        counters.flush();
+        long threads = 0;
+        List<Long> ids;
+        long after = 0;
+        do {
+            ids = counterRepository.findThreadIdsAfter(after, batchSize);
+            if (!ids.isEmpty()) {
+                counterRepository.recountThreads(ids);
+                after = ids.getLast();
+                threads += ids.size();
+            }
+        } while (ids.size() == batchSize);
+        long topics = 0;
+        after = 0;
+        do {
+            ids = counterRepository.findTopicIdsAfter(after, batchSize);
+            if (!ids.isEmpty()) {
+                counterRepository.recountTopics(ids);
+                after = ids.getLast();
+                topics += ids.size();
+            }
+        } while (ids.size() == batchSize);
+        log.info("Recounted {} threads and {} topics in {} ms", threads, topics,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return threads;
+    }
+}
@@ -0,0 +1,143 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.CounterDelta;
+import com.company.forumservice.domain.CounterRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the comments posted and threads started in memory, and adds them to the counters of their threads
+ * and topics in batches, see {@link CounterRepository#apply}. A busy thread or topic costs one row update
+ * per flush instead of one per comment, and posting a comment never waits for the lock of a counter row.
+ *
+ * Activity is accumulated in stripes picked by the posting thread, so that concurrent posters rarely share a lock,
+ * and merged when flushed. Activity not flushed yet is lost when the application stops abruptly,
+ * {@link CounterReconciler} corrects the counters from the comments.
+ */
+@Slf4j
+public class ForumCounters implements AutoCloseable {
+
+    private final CounterRepository counterRepository;
+
+    private final Stripe[] stripes;
+
+    public ForumCounters(CounterRepository counterRepository, int stripes) {
+        this.counterRepository = counterRepository;
+        this.stripes = new Stripe[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    public void commented(Long topicId, Long threadId, Long authorId, LocalDateTime time) {
+        stripe().add(topicId, threadId, 1, time, authorId);
+    }
+
+    /**
+     * The thread row is inserted with its own counters, only its topic is updated
+     */
+    public void started(Long topicId, LocalDateTime time) {
+        stripe().add(topicId, null, 0, time, null);
+    }
+
+    private Stripe stripe() {
+        return stripes[Math.floorMod(Long.hashCode(Thread.currentThread().threadId()) * 0x9E3779B9, stripes.length)];
+    }
+
+    /**
+     * Writes the activity accumulated since the last flush in one transaction. Flushes are serialized,
+     * so that rows are always locked in the same order. Activity that could not be written is kept for the next one.
+     */
+    public synchronized void flush() {
+        Map<Long, Counter> threads = new HashMap<>();
+        Map<Long, Counter> topics = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(threads, topics);
+        }
+        if (threads.isEmpty() && topics.isEmpty()) {
+            return;
+        }
+        try {
+            counterRepository.apply(deltas(threads), deltas(topics));
+        } catch (RuntimeException e) {
+            stripes[0].addAll(threads, topics);
+            throw e;
+        }
+        log.debug("Flushed counters of {} threads and {} topics", threads.size(), topics.size());
+    }
+
+    private static List<CounterDelta> deltas(Map<Long, Counter> counters) {
+        List<CounterDelta> deltas = new ArrayList<>(counters.size());
+        counters.forEach((id, counter) -> deltas.add(counter.delta(id)));
+        return deltas;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private static final class Stripe {
+
+        private Map<Long, Counter> threads = new HashMap<>();
+
+        private Map<Long, Counter> topics = new HashMap<>();
+
+        synchronized void add(Long topicId, Long threadId, long comments, LocalDateTime time, Long authorId) {
+            if (threadId != null) {
+                threads.computeIfAbsent(threadId, id -> new Counter()).add(comments, time, authorId);
+            }
+            topics.computeIfAbsent(topicId, id -> new Counter()).add(comments, time, authorId);
+        }
+
+        synchronized void drainTo(Map<Long, Counter> allThreads, Map<Long, Counter> allTopics) {
+            merge(threads, allThreads);
+            merge(topics, allTopics);
+            threads = new HashMap<>();
+            topics = new HashMap<>();
+        }
+
+        synchronized void addAll(Map<Long, Counter> moreThreads, Map<Long, Counter> moreTopics) {
+            merge(moreThreads, threads);
+            merge(moreTopics, topics);
+        }
+
+        private static void merge(Map<Long, Counter> from, Map<Long, Counter> to) {
+            from.forEach((id, counter) -> to.merge(id, counter, Counter::add));
+        }
+    }
+
+    /**
+     * The later activity wins, and its author with it
+     */
+    private static final class Counter {
+
+        private long comments;
+
+        private LocalDateTime lastActivity;
+
+        private Long lastAuthorId;
+
+        void add(long moreComments, LocalDateTime time, Long authorId) {
+            comments += moreComments;
+            if (lastActivity == null || !time.isBefore(lastActivity)) {
+                lastActivity = time;
+                lastAuthorId = authorId;
+            }
+        }
+
+        Counter add(Counter other) {
+            add(other.comments, other.lastActivity, other.lastAuthorId);
+            return this;
+        }
+
+        CounterDelta delta(Long id) {
+            return new CounterDelta(id, comments, lastActivity, lastAuthorId);
+        }
+    }
+}
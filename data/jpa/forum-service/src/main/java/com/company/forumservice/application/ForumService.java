@@ -0,0 +1,191 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.CommentRepository;
+import com.company.forumservice.domain.Cursor;
+import com.company.forumservice.domain.CursorPage;
+import com.company.forumservice.domain.SearchQuery;
+import com.company.forumservice.domain.Topic;
+import com.company.forumservice.domain.TopicRepository;
+import com.company.forumservice.domain.TopicThread;
+import com.company.forumservice.domain.TopicThreadRepository;
+import com.company.forumservice.domain.User;
+import com.company.forumservice.domain.UserRepository;
+import com.company.forumservice.domain.port.CommentSpec;
+import com.company.forumservice.domain.port.ForumPort;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * ForumService by implementing "Port" becomes an "Adapter" in hexagonal architecture design.
+ *
+ * Listings are read page by page with keyset pagination, no operation loads a whole topic or thread.
+ * Comment contents are searched in the {@link CommentIndex}, only the comments found are read from the database.
+ * Comment counts, last activities and last authors are read from the thread and topic rows, kept up to date
+ * by {@link ForumCounters}.
+ */
+@Slf4j
+@Transactional
+public class ForumService implements ForumPort {
+
+    private final UserRepository userRepository;
+
+    private final TopicRepository topicRepository;
+
+    private final TopicThreadRepository threadRepository;
+
+    private final CommentRepository commentRepository;
+
+    private final CommentIndex commentIndex;
+
+    private final ForumCounters counters;
+
+    private final Clock clock;
+
+    public ForumService(UserRepository userRepository, TopicRepository topicRepository,
+                        TopicThreadRepository threadRepository, CommentRepository commentRepository,
+                        CommentIndex commentIndex, ForumCounters counters, Clock clock) {
+        this.userRepository = userRepository;
+        this.topicRepository = topicRepository;
+        this.threadRepository = threadRepository;
+        this.commentRepository = commentRepository;
+        this.commentIndex = commentIndex;
+        this.counters = counters;
+        this.clock = clock;
+    }
+
+    @Override
+    public User registerUser(String name) {
+        return userRepository.store(new User(null, name));
+    }
+
+    @Override
+    public Topic createTopic(String title) {
+        return topicRepository.store(new Topic(title, now()));
+    }
+
+    /**
+     * The topic becomes the most recently active once the transaction commits and the counters are flushed
+     */
+    @Override
+    public TopicThread startThread(Long topicId, String title) {
+        Topic topic = topicRepository.find(topicId)
+                .orElseThrow(() -> new IllegalArgumentException("Topic with id " + topicId + " does not exist"));
+        TopicThread stored = threadRepository.store(new TopicThread(topic, title, now()));
+        afterCommit(() -> counters.started(topicId, stored.getStarted()));
+        return stored;
+    }
+
+    /**
+     * The author is referenced without being read, and neither the thread nor the topic row is written.
+     * The comment is indexed and counted once the transaction commits, a rolled back comment is never found
+     * nor counted. Indexing or counting failing after the commit is logged, the comment stays posted.
+     */
+    @Override
+    public Comment postComment(Long threadId, Long authorId, String content) {
+        TopicThread thread = threadRepository.find(threadId)
+                .orElseThrow(() -> new IllegalArgumentException("Thread with id " + threadId + " does not exist"));
+        Comment comment = new Comment(null, thread, userRepository.reference(authorId), now(),
+                content);
+        Comment stored = commentRepository.store(comment);
+        afterCommit(() -> posted(stored));
+        return stored;
+    }
+
+    /**
+     * One query for the threads, the comments are inserted in batches. Indexed and counted once committed,
+     * like a single comment.
+     */
+    @Override
+    public List<Comment> postComments(List<CommentSpec> specs) {
+        Map<Long, TopicThread> threads = threadRepository.findAll(specs.stream().map(CommentSpec::threadId)
+                        .distinct().toList()).stream()
+                .collect(Collectors.toMap(TopicThread::getId, Function.identity()));
+        LocalDateTime time = now();
+        List<Comment> comments = new ArrayList<>(specs.size());
+        for (CommentSpec spec : specs) {
+            TopicThread thread = threads.get(spec.threadId());
+            if (thread == null) {
+                throw new IllegalArgumentException("Thread with id " + spec.threadId() + " does not exist");
+            }
+            comments.add(new Comment(null, thread, userRepository.reference(spec.authorId()), time, spec.content()));
+        }
+        List<Comment> stored = commentRepository.storeAll(comments);
+        afterCommit(() -> stored.forEach(this::posted));
+        return stored;
+    }
+
+    private void posted(Comment comment) {
+        commentIndex.add(CommentDocument.of(comment));
+        counters.commented(comment.getThread().getTopic().getId(), comment.getThread().getId(),
+                comment.getAuthor().getId(), comment.getTime());
+    }
+
+    /**
+     * Once committed, the caller is not told about a failing action: it would take the committed changes for
+     * rolled back. Lost counts are corrected by the {@link CounterReconciler}.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        action.run();
+                    } catch (RuntimeException e) {
+                        log.error("Committed, but indexing or counting what was committed failed", e);
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Microsecond precision, as stored by the database: the time of a comment is also the cursor of its page
+     */
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Topic> topics(Cursor after, int size) {
+        return topicRepository.findByActivity(after, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<TopicThread> threads(Long topicId, Cursor after, int size) {
+        return threadRepository.findByTopic(topicId, after, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Comment> comments(Long threadId, Cursor after, int size) {
+        return commentRepository.findByThread(threadId, after, size);
+    }
+
+    /**
+     * One query for the comments found and one for their authors
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Comment> search(SearchQuery query) {
+        List<Long> ids = commentIndex.search(query).stream().map(CommentIndex.Hit::commentId).toList();
+        return ids.isEmpty() ? List.of() : commentRepository.findAll(ids);
+    }
+}
@@ -0,0 +1,51 @@
+package com.company.forumservice.configuration;
+
+import com.company.forumservice.application.CommentIndex;
+import com.company.forumservice.application.CommentPipeline;
+import com.company.forumservice.application.ForumCounters;
+import com.company.forumservice.application.ForumService;
+import com.company.forumservice.domain.CommentRepository;
+import com.company.forumservice.domain.TopicRepository;
+import com.company.forumservice.domain.TopicThreadRepository;
+import com.company.forumservice.domain.UserRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.time.Clock;
+
+@Configuration
+@EnableJpaRepositories(basePackages = "com.company.forumservice.infrastructure.jpa")
+@EnableTransactionManagement
+@EnableConfigurationProperties(ForumProperties.class)
+@Import({SearchConfiguration.class, CounterConfiguration.class})
+public class ApplicationConfiguration {
+
+    @Bean
+    Clock clock() {
+        return Clock.systemUTC();
+    }
+
+    @Bean
+    ForumService forumService(UserRepository userRepository, TopicRepository topicRepository,
+                              TopicThreadRepository threadRepository, CommentRepository commentRepository,
+                              CommentIndex commentIndex, ForumCounters forumCounters, Clock clock) {
+        return new ForumService(userRepository, topicRepository, threadRepository, commentRepository, commentIndex,
+                forumCounters, clock);
+    }
+
+    /**
+     * Queued comments are posted when the context closes
+     */
+    @Bean(destroyMethod = "close")
+    CommentPipeline commentPipeline(ForumService forumService, PlatformTransactionManager transactionManager,
+                                    ForumProperties properties) {
+        ForumProperties.Posting posting = properties.getPosting();
+        return new CommentPipeline(forumService, transactionManager, posting.getCapacity(),
+                posting.getMaxBatchSize(), posting.getMaxDelay(), posting.getEnqueueTimeout());
+    }
+}
@@ -0,0 +1,44 @@
+package com.company.forumservice.configuration;
+
+import com.company.forumservice.application.CounterReconciler;
+import com.company.forumservice.application.ForumCounters;
+import com.company.forumservice.domain.CounterRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+
+@Configuration
+@EnableScheduling
+public class CounterConfiguration {
+
+    /**
+     * Accumulated activity is flushed when the context closes
+     */
+    @Bean(destroyMethod = "close")
+    ForumCounters forumCounters(CounterRepository counterRepository, ForumProperties properties) {
+        return new ForumCounters(counterRepository, properties.getCounters().getStripes());
+    }
+
+    @Bean
+    CounterReconciler counterReconciler(CounterRepository counterRepository, ForumCounters forumCounters,
+                                        ForumProperties properties) {
+        return new CounterReconciler(counterRepository, forumCounters,
+                properties.getCounters().getReconcileBatchSize());
+    }
+
+    /**
+     * The first reconciliation runs one interval after startup, not while the application warms up
+     */
+    @Bean
+    SchedulingConfigurer counterFlushing(ForumCounters forumCounters, CounterReconciler counterReconciler,
+                                         ForumProperties properties) {
+        ForumProperties.Counters counters = properties.getCounters();
+        return registrar -> {
+            registrar.addFixedDelayTask(forumCounters::flush, counters.getFlushInterval());
+            registrar.addFixedDelayTask(new FixedDelayTask(counterReconciler::reconcile,
+                    counters.getReconcileInterval(), counters.getReconcileInterval()));
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.company.forumservice.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "forum")
+public class ForumProperties {
+
+    private Search search = new Search();
+
+    private Counters counters = new Counters();
+
+    private Posting posting = new Posting();
+
+    @Getter
+    @Setter
+    public static class Search {
+        /**
+         * Directory of the comment index segments, see SegmentedCommentIndex
+         */
+        private Path directory = Path.of("data", "search");
+
+        /**
+         * Comments kept in memory before they are written to a new segment
+         */
+        private int maxPendingComments = 10_000;
+
+        /**
+         * Number of segments above which the smallest are merged
+         */
+        private int mergeFactor = 10;
+
+        /**
+         * Pending comments older than this are written to disk even when there are fewer than maxPendingComments
+         */
+        private Duration flushInterval = Duration.ofSeconds(10);
+
+        /**
+         * Comments read per query when indexing the comments missing from the index at startup
+         */
+        private int catchUpBatchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Counters {
+        /**
+         * Stripes comments and started threads are accumulated in before they are flushed, see ForumCounters
+         */
+        private int stripes = 16;
+
+        /**
+         * Accumulated activity is added to the thread and topic counters this often
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /**
+         * The counters are recomputed from the comments this often, see CounterReconciler
+         */
+        private Duration reconcileInterval = Duration.ofHours(6);
+
+        /**
+         * Threads or topics recounted per statement when reconciling
+         */
+        private int reconcileBatchSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Posting {
+        /**
+         * Comments waiting to be posted by the CommentPipeline, submitters wait when it is full
+         */
+        private int capacity = 10_000;
+
+        /**
+         * Comments posted per transaction
+         */
+        private int maxBatchSize = 500;
+
+        /**
+         * Longest a comment waits for others to join its batch
+         */
+        private Duration maxDelay = Duration.ofMillis(10);
+
+        /**
+         * Longest a submitter waits for room in the queue before the comment is rejected
+         */
+        private Duration enqueueTimeout = Duration.ofSeconds(1);
+    }
+}
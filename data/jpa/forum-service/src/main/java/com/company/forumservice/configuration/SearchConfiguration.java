@@ -0,0 +1,40 @@
+package com.company.forumservice.configuration;
+
+import com.company.forumservice.application.CommentIndex;
+import com.company.forumservice.application.CommentIndexer;
+import com.company.forumservice.domain.CommentRepository;
+import com.company.forumservice.infrastructure.search.SegmentedCommentIndex;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+@Configuration
+@EnableScheduling
+public class SearchConfiguration {
+
+    /**
+     * Pending comments are flushed when the context closes
+     */
+    @Bean(destroyMethod = "close")
+    SegmentedCommentIndex commentIndex(ForumProperties properties) {
+        ForumProperties.Search search = properties.getSearch();
+        return new SegmentedCommentIndex(search.getDirectory(), search.getMaxPendingComments(),
+                search.getMergeFactor());
+    }
+
+    /**
+     * Indexes the comments missing from the index before the application serves searches
+     */
+    @Bean(initMethod = "catchUp")
+    CommentIndexer commentIndexer(CommentRepository commentRepository, CommentIndex commentIndex,
+                                  ForumProperties properties) {
+        return new CommentIndexer(commentRepository, commentIndex, properties.getSearch().getCatchUpBatchSize());
+    }
+
+    @Bean
+    SchedulingConfigurer commentIndexFlushing(CommentIndex commentIndex, ForumProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(commentIndex::flush,
+                properties.getSearch().getFlushInterval());
+    }
+}
@@ -1,12 +1,40 @@
 package com.company.forumservice.domain;
 
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDateTime;
 
+/**
+ * Comments of a thread are read in (time, id) order from an index on (thread_id, posted_at, id),
+ * the id breaks ties between comments posted at the same time
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "comments", indexes = @Index(name = "idx_comments_thread_time",
+        columnList = "thread_id, posted_at, id"))
 public class Comment {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "thread_id", nullable = false, updatable = false)
+    private TopicThread thread;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "author_id")
     private User author;
 
+    @Column(name = "posted_at", nullable = false)
     private LocalDateTime time;
 
+    @Column(length = 4000)
     private String content;
 }
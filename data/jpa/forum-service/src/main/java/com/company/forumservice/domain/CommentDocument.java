@@ -0,0 +1,17 @@
+package com.company.forumservice.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * What the search index keeps of a comment: the content to tokenize and the fields results are filtered by
+ */
+public record CommentDocument(Long commentId, Long topicId, Long threadId, Long authorId, LocalDateTime time,
+                              String content) {
+
+    public static CommentDocument of(Comment comment) {
+        TopicThread thread = comment.getThread();
+        return new CommentDocument(comment.getId(), thread.getTopic().getId(), thread.getId(),
+                comment.getAuthor() == null ? null : comment.getAuthor().getId(), comment.getTime(),
+                comment.getContent());
+    }
+}
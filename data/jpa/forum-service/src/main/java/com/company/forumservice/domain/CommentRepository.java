@@ -0,0 +1,29 @@
+package com.company.forumservice.domain;
+
+import java.util.List;
+
+public interface CommentRepository {
+    Comment store(Comment comment);
+
+    /**
+     * Inserted in JDBC batches, written by MySQL as multi-row inserts, see rewriteBatchedStatements
+     */
+    List<Comment> storeAll(List<Comment> comments);
+
+    /**
+     * Comments of the thread oldest first, ties broken by id, with their authors loaded.
+     * Keyset pagination: pass the cursor of the previous page, null for the first one. A page costs
+     * two queries, one for the comments and one for the authors not loaded yet, however deep into the thread.
+     */
+    CursorPage<Comment> findByThread(Long threadId, Cursor after, int size);
+
+    /**
+     * Comments with their authors loaded, in the order of the ids. Ids of comments that do not exist are skipped.
+     */
+    List<Comment> findAll(List<Long> ids);
+
+    /**
+     * What the search index needs of the comments with an id greater than the given one, in id order
+     */
+    List<CommentDocument> findDocumentsAfter(long commentId, int size);
+}
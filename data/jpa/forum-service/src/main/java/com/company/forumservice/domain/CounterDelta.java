@@ -0,0 +1,10 @@
+package com.company.forumservice.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Activity of a thread or topic since the counters were last written: comments to add to its count,
+ * and its latest activity with the author of it, null for a thread started without comment
+ */
+public record CounterDelta(Long id, long comments, LocalDateTime lastActivity, Long lastAuthorId) {
+}
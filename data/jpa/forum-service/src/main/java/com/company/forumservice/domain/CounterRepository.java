@@ -0,0 +1,35 @@
+package com.company.forumservice.domain;
+
+import java.util.List;
+
+/**
+ * Denormalized counters of threads and topics: comment count, last activity and last author
+ */
+public interface CounterRepository {
+
+    /**
+     * Adds the deltas to the counters of the threads and topics, one batched statement for each.
+     * A last activity older than the stored one leaves the last activity and author unchanged.
+     */
+    void apply(List<CounterDelta> threads, List<CounterDelta> topics);
+
+    /**
+     * Ids of the threads after the given one, in id order
+     */
+    List<Long> findThreadIdsAfter(long threadId, int size);
+
+    /**
+     * Ids of the topics after the given one, in id order
+     */
+    List<Long> findTopicIdsAfter(long topicId, int size);
+
+    /**
+     * Recomputes the counters of the threads from their comments
+     */
+    void recountThreads(List<Long> threadIds);
+
+    /**
+     * Recomputes the counters of the topics from the counters of their threads
+     */
+    void recountTopics(List<Long> topicIds);
+}
@@ -0,0 +1,10 @@
+package com.company.forumservice.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position in a keyset ordered listing: time and id of the last element of the previous page.
+ * The time is the comment time for comments and the last activity for threads and topics.
+ */
+public record Cursor(LocalDateTime time, Long id) {
+}
@@ -0,0 +1,19 @@
+package com.company.forumservice.domain;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset ordered listing
+ *
+ * @param next cursor of the following page, null when this page is the last one
+ */
+public record CursorPage<T>(List<T> items, Cursor next) {
+
+    /**
+     * A page shorter than requested is the last one
+     */
+    public static <T> CursorPage<T> of(List<T> items, int size, Function<T, Cursor> cursor) {
+        return new CursorPage<>(items, items.size() < size ? null : cursor.apply(items.getLast()));
+    }
+}
@@ -0,0 +1,33 @@
+package com.company.forumservice.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Comments containing every word of the text, best matches first. Null filters match every comment.
+ *
+ * @param from inclusive, null for no lower bound
+ * @param to   exclusive, null for no upper bound
+ */
+public record SearchQuery(String text, Long topicId, Long threadId, Long authorId, LocalDateTime from,
+                          LocalDateTime to, int limit) {
+
+    public static SearchQuery of(String text, int limit) {
+        return new SearchQuery(text, null, null, null, null, null, limit);
+    }
+
+    public SearchQuery inTopic(Long topicId) {
+        return new SearchQuery(text, topicId, threadId, authorId, from, to, limit);
+    }
+
+    public SearchQuery inThread(Long threadId) {
+        return new SearchQuery(text, topicId, threadId, authorId, from, to, limit);
+    }
+
+    public SearchQuery byAuthor(Long authorId) {
+        return new SearchQuery(text, topicId, threadId, authorId, from, to, limit);
+    }
+
+    public SearchQuery between(LocalDateTime from, LocalDateTime to) {
+        return new SearchQuery(text, topicId, threadId, authorId, from, to, limit);
+    }
+}
@@ -1,10 +1,55 @@
 package com.company.forumservice.domain;
 
-import java.util.List;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.time.LocalDateTime;
+
+/**
+ * Threads are not mapped as a collection, a topic's threads are read page by page,
+ * see {@link TopicThreadRepository#findByTopic(Long, Cursor, int)}
+ *
+ * The comment count, last activity and last author summarize the topic's threads for topic listings.
+ * They are maintained by {@link CounterRepository} only, never written through the entity.
+ */
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "topics", indexes = @Index(name = "idx_topics_activity", columnList = "last_activity desc, id desc"))
 public class Topic {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "topics_seq")
+    @SequenceGenerator(name = "topics_seq", sequenceName = "topics_seq", allocationSize = 50)
+    private Long id;
+
     private String title;
 
-    private List<TopicThread> threads;
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime created;
+
+    /**
+     * Time the topic was created, or a thread of it was last started or commented
+     */
+    @Column(name = "last_activity", nullable = false, updatable = false)
+    private LocalDateTime lastActivity;
+
+    @ColumnDefault("0")
+    @Column(name = "comment_count", nullable = false, updatable = false)
+    private long commentCount;
+
+    /**
+     * Author of the last comment of the most recently active thread, null when that thread has no comment yet
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_author_id", updatable = false)
+    private User lastAuthor;
+
+    public Topic(String title, LocalDateTime created) {
+        this.title = title;
+        this.created = created;
+        this.lastActivity = created;
+    }
 }
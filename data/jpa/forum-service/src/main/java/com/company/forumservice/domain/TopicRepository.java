@@ -0,0 +1,16 @@
+package com.company.forumservice.domain;
+
+import java.util.Optional;
+
+public interface TopicRepository {
+    Topic store(Topic topic);
+
+    Optional<Topic> find(Long id);
+
+    /**
+     * Topics by last activity, most recent first, ties broken by id, with their last authors loaded.
+     * Keyset pagination from an index on (last_activity, id): pass the cursor of the previous page, null for
+     * the first one. The counters are read from the topic rows, no thread or comment is read.
+     */
+    CursorPage<Topic> findByActivity(Cursor after, int size);
+}
@@ -1,10 +1,63 @@
 package com.company.forumservice.domain;
 
-import java.util.List;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.time.LocalDateTime;
+
+/**
+ * Comments are not mapped as a collection, a thread may have hundreds of thousands of them,
+ * they are read page by page, see {@link CommentRepository#findByThread(Long, Cursor, int)}.
+ *
+ * Threads of a topic are listed by last activity, most recent first, from an index on
+ * (topic_id, last_activity, id) that serves both the filter and the order.
+ * The last activity, comment count and last author are maintained by {@link CounterRepository} only,
+ * in batches, so that posting a comment does not update the thread row.
+ */
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "topic_threads", indexes = @Index(name = "idx_topic_threads_topic_activity",
+        columnList = "topic_id, last_activity desc, id desc"))
 public class TopicThread {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "topic_threads_seq")
+    @SequenceGenerator(name = "topic_threads_seq", sequenceName = "topic_threads_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "topic_id", nullable = false, updatable = false)
+    private Topic topic;
+
     private String title;
 
-    private List<Comment> comments;
+    @Column(name = "started_at", nullable = false, updatable = false)
+    private LocalDateTime started;
+
+    /**
+     * Time the thread was started or last commented
+     */
+    @Column(name = "last_activity", nullable = false, updatable = false)
+    private LocalDateTime lastActivity;
+
+    @ColumnDefault("0")
+    @Column(name = "comment_count", nullable = false, updatable = false)
+    private long commentCount;
+
+    /**
+     * Null until the thread is commented
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_author_id", updatable = false)
+    private User lastAuthor;
+
+    public TopicThread(Topic topic, String title, LocalDateTime started) {
+        this.topic = topic;
+        this.title = title;
+        this.started = started;
+        this.lastActivity = started;
+    }
 }
@@ -0,0 +1,22 @@
+package com.company.forumservice.domain;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TopicThreadRepository {
+    TopicThread store(TopicThread thread);
+
+    Optional<TopicThread> find(Long id);
+
+    /**
+     * Threads with the given ids, in no particular order. Ids of threads that do not exist are skipped.
+     */
+    List<TopicThread> findAll(List<Long> ids);
+
+    /**
+     * Threads of the topic by last activity, most recent first, ties broken by id, with their last authors loaded.
+     * Keyset pagination: pass the cursor of the previous page, null for the first one. A page costs
+     * the same deep into the listing as at its start.
+     */
+    CursorPage<TopicThread> findByTopic(Long topicId, Cursor after, int size);
+}
@@ -1,6 +1,27 @@
 package com.company.forumservice.domain;
 
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+
+/**
+ * Authors referenced by up to 100 comments of the same persistence context are loaded with a single query,
+ * so a page of comments costs one query for its authors rather than one per author
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "users")
+@BatchSize(size = 100)
 public class User {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
+    private Long id;
+
     private String name;
 }
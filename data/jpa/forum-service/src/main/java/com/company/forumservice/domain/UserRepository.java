@@ -0,0 +1,15 @@
+package com.company.forumservice.domain;
+
+import java.util.Optional;
+
+public interface UserRepository {
+    User store(User user);
+
+    Optional<User> find(Long id);
+
+    /**
+     * The user with the given id, not read until one of its properties other than the id is used.
+     * Lets a comment reference its author without a query.
+     */
+    User reference(Long id);
+}
@@ -0,0 +1,7 @@
+package com.company.forumservice.domain.port;
+
+/**
+ * Description of a comment to post: the thread it goes to, its author and content
+ */
+public record CommentSpec(Long threadId, Long authorId, String content) {
+}
@@ -0,0 +1,60 @@
+package com.company.forumservice.domain.port;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.Cursor;
+import com.company.forumservice.domain.CursorPage;
+import com.company.forumservice.domain.SearchQuery;
+import com.company.forumservice.domain.Topic;
+import com.company.forumservice.domain.TopicThread;
+import com.company.forumservice.domain.User;
+
+import java.util.List;
+
+public interface ForumPort {
+
+    User registerUser(String name);
+
+    Topic createTopic(String title);
+
+    TopicThread startThread(Long topicId, String title);
+
+    /**
+     * Adds the comment to the thread, which becomes the most recently active of its topic.
+     * Counters and activity order follow within the flush interval of the counters.
+     */
+    Comment postComment(Long threadId, Long authorId, String content);
+
+    /**
+     * Adds the comments in one transaction, all at the same time and in the order given. Fails as a whole
+     * when a thread or an author does not exist. Throws only when the comments were not committed,
+     * or when committing them failed.
+     */
+    List<Comment> postComments(List<CommentSpec> comments);
+
+    /**
+     * Topics, most recently active first, with their comment counts and last authors
+     *
+     * @param after cursor of the previous page, null for the first page
+     */
+    CursorPage<Topic> topics(Cursor after, int size);
+
+    /**
+     * Threads of the topic, most recently active first, with their comment counts and last authors
+     *
+     * @param after cursor of the previous page, null for the first page
+     */
+    CursorPage<TopicThread> threads(Long topicId, Cursor after, int size);
+
+    /**
+     * Comments of the thread, oldest first, with their authors
+     *
+     * @param after cursor of the previous page, null for the first page
+     */
+    CursorPage<Comment> comments(Long threadId, Cursor after, int size);
+
+    /**
+     * Comments containing every word of the query, most relevant first, with their authors.
+     * Comments are found once their transaction committed.
+     */
+    List<Comment> search(SearchQuery query);
+}
@@ -0,0 +1,96 @@
+package com.company.forumservice.infrastructure.jpa;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.CommentRepository;
+import com.company.forumservice.domain.Cursor;
+import com.company.forumservice.domain.CursorPage;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Repository
+public interface CommentJpaRepository extends CommentRepository, JpaRepository<Comment, Long> {
+
+    @Override
+    default Comment store(Comment comment) {
+        return save(comment);
+    }
+
+    @Override
+    default List<Comment> storeAll(List<Comment> comments) {
+        return saveAll(comments);
+    }
+
+    /**
+     * Initializing the first author loads those of the whole page in batches, see {@link com.company.forumservice.domain.User}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    default CursorPage<Comment> findByThread(Long threadId, Cursor after, int size) {
+        List<Comment> comments = after == null
+                ? findFirstByThread(threadId, Limit.of(size))
+                : findByThreadAfter(threadId, after.time(), after.id(), Limit.of(size));
+        comments.forEach(comment -> Hibernate.initialize(comment.getAuthor()));
+        return CursorPage.of(comments, size, comment -> new Cursor(comment.getTime(), comment.getId()));
+    }
+
+    /**
+     * Ordering by the thread first, though it is the same for all rows, lets the embedded database read the rows
+     * in the order of the index and stop at the limit, instead of sorting every comment of the thread
+     */
+    @Query("""
+            select c from Comment c
+            where c.thread.id = :threadId
+            order by c.thread.id, c.time, c.id""")
+    List<Comment> findFirstByThread(Long threadId, Limit limit);
+
+    /**
+     * The condition on time alone is implied by the other one, it is the part the database can turn into a range
+     * of the (thread_id, posted_at, id) index, so the page starts at the cursor instead of at the start of the thread.
+     * See {@link #findFirstByThread} for the order.
+     */
+    @Query("""
+            select c from Comment c
+            where c.thread.id = :threadId
+                and c.time >= :time
+                and (c.time > :time or c.id > :id)
+            order by c.thread.id, c.time, c.id""")
+    List<Comment> findByThreadAfter(Long threadId, LocalDateTime time, Long id, Limit limit);
+
+    @Override
+    @Transactional(readOnly = true)
+    default List<Comment> findAll(List<Long> ids) {
+        Map<Long, Integer> positions = IntStream.range(0, ids.size()).boxed()
+                .collect(Collectors.toMap(ids::get, Function.identity(), (first, second) -> first));
+        List<Comment> comments = findAllById(ids).stream()
+                .sorted(Comparator.comparing(comment -> positions.get(comment.getId())))
+                .toList();
+        comments.forEach(comment -> Hibernate.initialize(comment.getAuthor()));
+        return comments;
+    }
+
+    @Override
+    default List<CommentDocument> findDocumentsAfter(long commentId, int size) {
+        return findDocumentsAfterId(commentId, Limit.of(size));
+    }
+
+    @Query("""
+            select new com.company.forumservice.domain.CommentDocument(c.id, t.topic.id, t.id, c.author.id, c.time,
+                c.content)
+            from Comment c join c.thread t
+            where c.id > :commentId
+            order by c.id""")
+    List<CommentDocument> findDocumentsAfterId(long commentId, Limit limit);
+}
@@ -0,0 +1,13 @@
+package com.company.forumservice.infrastructure.jpa;
+
+import com.company.forumservice.domain.CounterRepository;
+import com.company.forumservice.domain.TopicThread;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Every method is implemented by {@link CounterOperationsImpl}, counters are never written through the entities
+ */
+@Repository
+public interface CounterJpaRepository extends CounterRepository,
+        org.springframework.data.repository.Repository<TopicThread, Long>, CounterOperations {
+}
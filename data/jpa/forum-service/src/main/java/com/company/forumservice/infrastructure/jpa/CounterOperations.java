@@ -0,0 +1,21 @@
+package com.company.forumservice.infrastructure.jpa;
+
+import com.company.forumservice.domain.CounterDelta;
+
+import java.util.List;
+
+/**
+ * Spring Data fragment writing the denormalized counters of threads and topics with batched and bulk statements
+ */
+public interface CounterOperations {
+
+    void apply(List<CounterDelta> threads, List<CounterDelta> topics);
+
+    List<Long> findThreadIdsAfter(long threadId, int size);
+
+    List<Long> findTopicIdsAfter(long topicId, int size);
+
+    void recountThreads(List<Long> threadIds);
+
+    void recountTopics(List<Long> topicIds);
+}
@@ -0,0 +1,151 @@
+package com.company.forumservice.infrastructure.jpa;
+
+import com.company.forumservice.domain.CounterDelta;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.resource.jdbc.ResourceRegistry;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The last author is assigned before the last activity: MySQL evaluates the assignments of an update from left
+ * to right, each seeing the columns assigned before it, other databases all see the row as it was
+ */
+public class CounterOperationsImpl implements CounterOperations {
+
+    private static final String APPLY_THREAD = """
+            update topic_threads set
+                last_author_id = case when ? >= last_activity then ? else last_author_id end,
+                last_activity = greatest(last_activity, ?),
+                comment_count = comment_count + ?
+            where id = ?""";
+
+    private static final String APPLY_TOPIC = """
+            update topics set
+                last_author_id = case when ? >= last_activity then ? else last_author_id end,
+                last_activity = greatest(last_activity, ?),
+                comment_count = comment_count + ?
+            where id = ?""";
+
+    private static final String SELECT_THREAD_IDS = "select id from topic_threads where id > ? order by id";
+
+    private static final String SELECT_TOPIC_IDS = "select id from topics where id > ? order by id";
+
+    /**
+     * Ordered by thread first to read the index in order, see {@link CommentJpaRepository#findFirstByThread}
+     */
+    private static final String RECOUNT_THREADS = """
+            update topic_threads t set
+                comment_count = (select count(*) from comments c where c.thread_id = t.id),
+                last_author_id = (select c.author_id from comments c where c.thread_id = t.id
+                    order by c.thread_id desc, c.posted_at desc, c.id desc limit 1),
+                last_activity = coalesce((select max(c.posted_at) from comments c where c.thread_id = t.id),
+                    t.started_at)
+            where t.id in (:ids)""";
+
+    private static final String RECOUNT_TOPICS = """
+            update topics p set
+                comment_count = (select coalesce(sum(t.comment_count), 0) from topic_threads t
+                    where t.topic_id = p.id),
+                last_author_id = (select t.last_author_id from topic_threads t where t.topic_id = p.id
+                    order by t.topic_id, t.last_activity desc, t.id desc limit 1),
+                last_activity = coalesce((select max(t.last_activity) from topic_threads t where t.topic_id = p.id),
+                    p.created_at)
+            where p.id in (:ids)""";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Rows are updated in id order, so that concurrent flushes lock them in the same order. Only the statements
+     * prepared here are released afterwards, resources Hibernate still holds for the session are left alone.
+     */
+    @Override
+    @Transactional
+    public void apply(List<CounterDelta> threads, List<CounterDelta> topics) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        List<PreparedStatement> prepared = new ArrayList<>(2);
+        try {
+            applyDeltas(jdbc, prepared, APPLY_THREAD, threads);
+            applyDeltas(jdbc, prepared, APPLY_TOPIC, topics);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "Could not update forum counters");
+        } finally {
+            ResourceRegistry resources = jdbc.getLogicalConnection().getResourceRegistry();
+            prepared.forEach(resources::release);
+            jdbc.afterStatementExecution();
+        }
+    }
+
+    private static void applyDeltas(JdbcCoordinator jdbc, List<PreparedStatement> prepared, String sql,
+            List<CounterDelta> deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+        prepared.add(statement);
+        for (CounterDelta delta : deltas.stream().sorted(Comparator.comparing(CounterDelta::id)).toList()) {
+            Timestamp lastActivity = Timestamp.valueOf(delta.lastActivity());
+            statement.setTimestamp(1, lastActivity);
+            statement.setObject(2, delta.lastAuthorId(), Types.BIGINT);
+            statement.setTimestamp(3, lastActivity);
+            statement.setLong(4, delta.comments());
+            statement.setLong(5, delta.id());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findThreadIdsAfter(long threadId, int size) {
+        return ids(SELECT_THREAD_IDS, threadId, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findTopicIdsAfter(long topicId, int size) {
+        return ids(SELECT_TOPIC_IDS, topicId, size);
+    }
+
+    private List<Long> ids(String sql, long after, int size) {
+        List<?> ids = entityManager.createNativeQuery(sql)
+                .setParameter(1, after)
+                .setMaxResults(size)
+                .getResultList();
+        return ids.stream().map(id -> ((Number) id).longValue()).toList();
+    }
+
+    @Override
+    @Transactional
+    public void recountThreads(List<Long> threadIds) {
+        nativeQuery(RECOUNT_THREADS, "topic_threads").setParameter("ids", threadIds).executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void recountTopics(List<Long> topicIds) {
+        nativeQuery(RECOUNT_TOPICS, "topics").setParameter("ids", topicIds).executeUpdate();
+    }
+
+    /**
+     * Declares the table the statement works on, so that Hibernate does not invalidate every entity
+     * of the second level cache, as it does for native statements it knows nothing about
+     */
+    private NativeQuery<?> nativeQuery(String sql, String table) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(table);
+    }
+}
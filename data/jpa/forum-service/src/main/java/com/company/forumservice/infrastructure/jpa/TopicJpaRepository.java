@@ -0,0 +1,59 @@
+package com.company.forumservice.infrastructure.jpa;
+
+import com.company.forumservice.domain.Cursor;
+import com.company.forumservice.domain.CursorPage;
+import com.company.forumservice.domain.Topic;
+import com.company.forumservice.domain.TopicRepository;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TopicJpaRepository extends TopicRepository, JpaRepository<Topic, Long> {
+
+    @Override
+    default Topic store(Topic topic) {
+        return save(topic);
+    }
+
+    @Override
+    default Optional<Topic> find(Long id) {
+        return findById(id);
+    }
+
+    /**
+     * Initializing the first last author loads those of the whole page in batches, see
+     * {@link com.company.forumservice.domain.User}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    default CursorPage<Topic> findByActivity(Cursor after, int size) {
+        List<Topic> topics = after == null
+                ? findFirstByActivity(Limit.of(size))
+                : findByActivityBefore(after.time(), after.id(), Limit.of(size));
+        topics.forEach(topic -> Hibernate.initialize(topic.getLastAuthor()));
+        return CursorPage.of(topics, size, topic -> new Cursor(topic.getLastActivity(), topic.getId()));
+    }
+
+    @Query("""
+            select t from Topic t
+            order by t.lastActivity desc, t.id desc""")
+    List<Topic> findFirstByActivity(Limit limit);
+
+    /**
+     * The condition on last activity alone is the index range, see {@link CommentJpaRepository#findByThreadAfter}
+     */
+    @Query("""
+            select t from Topic t
+            where t.lastActivity <= :lastActivity
+                and (t.lastActivity < :lastActivity or t.id < :id)
+            order by t.lastActivity desc, t.id desc""")
+    List<Topic> findByActivityBefore(LocalDateTime lastActivity, Long id, Limit limit);
+}
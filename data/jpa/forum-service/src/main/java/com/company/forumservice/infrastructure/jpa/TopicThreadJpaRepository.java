@@ -0,0 +1,69 @@
+package com.company.forumservice.infrastructure.jpa;
+
+import com.company.forumservice.domain.Cursor;
+import com.company.forumservice.domain.CursorPage;
+import com.company.forumservice.domain.TopicThread;
+import com.company.forumservice.domain.TopicThreadRepository;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TopicThreadJpaRepository extends TopicThreadRepository, JpaRepository<TopicThread, Long> {
+
+    @Override
+    default TopicThread store(TopicThread thread) {
+        return save(thread);
+    }
+
+    @Override
+    default Optional<TopicThread> find(Long id) {
+        return findById(id);
+    }
+
+    @Override
+    default List<TopicThread> findAll(List<Long> ids) {
+        return findAllById(ids);
+    }
+
+    /**
+     * Initializing the first last author loads those of the whole page in batches, see
+     * {@link com.company.forumservice.domain.User}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    default CursorPage<TopicThread> findByTopic(Long topicId, Cursor after, int size) {
+        List<TopicThread> threads = after == null
+                ? findFirstByTopic(topicId, Limit.of(size))
+                : findByTopicBefore(topicId, after.time(), after.id(), Limit.of(size));
+        threads.forEach(thread -> Hibernate.initialize(thread.getLastAuthor()));
+        return CursorPage.of(threads, size, thread -> new Cursor(thread.getLastActivity(), thread.getId()));
+    }
+
+    /**
+     * Ordered by topic first to follow the index, see {@link CommentJpaRepository#findFirstByThread}
+     */
+    @Query("""
+            select t from TopicThread t
+            where t.topic.id = :topicId
+            order by t.topic.id, t.lastActivity desc, t.id desc""")
+    List<TopicThread> findFirstByTopic(Long topicId, Limit limit);
+
+    /**
+     * The condition on last activity alone is the index range, see {@link CommentJpaRepository#findByThreadAfter}
+     */
+    @Query("""
+            select t from TopicThread t
+            where t.topic.id = :topicId
+                and t.lastActivity <= :lastActivity
+                and (t.lastActivity < :lastActivity or t.id < :id)
+            order by t.topic.id, t.lastActivity desc, t.id desc""")
+    List<TopicThread> findByTopicBefore(Long topicId, LocalDateTime lastActivity, Long id, Limit limit);
+}
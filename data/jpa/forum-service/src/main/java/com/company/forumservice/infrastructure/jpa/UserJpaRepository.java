@@ -0,0 +1,27 @@
+package com.company.forumservice.infrastructure.jpa;
+
+import com.company.forumservice.domain.User;
+import com.company.forumservice.domain.UserRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserJpaRepository extends UserRepository, JpaRepository<User, Long> {
+
+    @Override
+    default User store(User user) {
+        return save(user);
+    }
+
+    @Override
+    default Optional<User> find(Long id) {
+        return findById(id);
+    }
+
+    @Override
+    default User reference(Long id) {
+        return getReferenceById(id);
+    }
+}
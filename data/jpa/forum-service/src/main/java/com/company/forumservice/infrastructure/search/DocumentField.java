@@ -0,0 +1,22 @@
+package com.company.forumservice.infrastructure.search;
+
+/**
+ * Positions of the fields of a document, in memory and in a segment file
+ */
+final class DocumentField {
+
+    static final int COMMENT_ID = 0;
+
+    static final int TOPIC_ID = 1;
+
+    static final int THREAD_ID = 2;
+
+    static final int AUTHOR_ID = 3;
+
+    static final int TIME = 4;
+
+    static final int COUNT = 5;
+
+    private DocumentField() {
+    }
+}
@@ -0,0 +1,223 @@
+package com.company.forumservice.infrastructure.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Segment file mapped in memory, pages are read by the operating system as postings are decoded
+ * and stay in its page cache, not on the heap. Written by {@link SegmentWriter}, never modified.
+ * <p>
+ * Layout, big endian:
+ * <ul>
+ * <li>header: magic, version, document count, term count (ints), total length, min time, max time,
+ * max comment id, offsets of the documents, postings, terms and term bytes (longs)</li>
+ * <li>documents: comment, topic, thread and author ids and time (longs), length (int), in document order</li>
+ * <li>postings: per term, document number deltas and frequencies as variable length ints</li>
+ * <li>terms: start and length of the term in the term bytes (ints), start of its postings (long),
+ * document frequency (int), in term order</li>
+ * <li>term bytes: the terms in UTF-8</li>
+ * </ul>
+ */
+class MappedSegment implements Segment {
+
+    static final int MAGIC = 0x46534547;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 80;
+
+    static final int DOCUMENT_BYTES = DocumentField.COUNT * Long.BYTES + Integer.BYTES;
+
+    static final int TERM_BYTES = 3 * Integer.BYTES + Long.BYTES;
+
+    private final Path file;
+
+    private final MappedByteBuffer buffer;
+
+    private final int documentCount;
+
+    private final int termCount;
+
+    private final long totalLength;
+
+    private final long minTime;
+
+    private final long maxTime;
+
+    private final long maxCommentId;
+
+    private final int documentsOffset;
+
+    private final int postingsOffset;
+
+    private final int termsOffset;
+
+    private final int termBytesOffset;
+
+    private MappedSegment(Path file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException(file + " is not a comment index segment of version " + VERSION);
+        }
+        this.documentCount = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.totalLength = buffer.getLong(16);
+        this.minTime = buffer.getLong(24);
+        this.maxTime = buffer.getLong(32);
+        this.maxCommentId = buffer.getLong(40);
+        this.documentsOffset = (int) buffer.getLong(48);
+        this.postingsOffset = (int) buffer.getLong(56);
+        this.termsOffset = (int) buffer.getLong(64);
+        this.termBytesOffset = (int) buffer.getLong(72);
+    }
+
+    /**
+     * The file can be deleted once opened, the mapping stays valid until the segment is garbage collected
+     */
+    static MappedSegment open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Segment " + file + " is larger than 2 GB");
+            }
+            return new MappedSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open segment " + file, e);
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    @Override
+    public int documentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public long totalLength() {
+        return totalLength;
+    }
+
+    @Override
+    public long minTime() {
+        return minTime;
+    }
+
+    @Override
+    public long maxTime() {
+        return maxTime;
+    }
+
+    @Override
+    public long maxCommentId() {
+        return maxCommentId;
+    }
+
+    @Override
+    public int termCount() {
+        return termCount;
+    }
+
+    @Override
+    public String term(int ordinal) {
+        int entry = termsOffset + ordinal * TERM_BYTES;
+        byte[] bytes = new byte[buffer.getInt(entry + Integer.BYTES)];
+        buffer.get(termBytesOffset + buffer.getInt(entry), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int termOrdinal(String term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = term(middle).compareTo(term);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int documentFrequency(int ordinal) {
+        return buffer.getInt(termsOffset + ordinal * TERM_BYTES + 2 * Integer.BYTES + Long.BYTES);
+    }
+
+    @Override
+    public Postings postings(int ordinal) {
+        int entry = termsOffset + ordinal * TERM_BYTES;
+        int position = postingsOffset + (int) buffer.getLong(entry + 2 * Integer.BYTES);
+        int size = buffer.getInt(entry + 2 * Integer.BYTES + Long.BYTES);
+        int[] documents = new int[size];
+        int[] frequencies = new int[size];
+        int document = -1;
+        for (int i = 0; i < size; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = buffer.get(position++);
+                frequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            document += delta;
+            documents[i] = document;
+            frequencies[i] = frequency;
+        }
+        return new Postings(documents, frequencies, size);
+    }
+
+    @Override
+    public long commentId(int document) {
+        return field(document, DocumentField.COMMENT_ID);
+    }
+
+    @Override
+    public long topicId(int document) {
+        return field(document, DocumentField.TOPIC_ID);
+    }
+
+    @Override
+    public long threadId(int document) {
+        return field(document, DocumentField.THREAD_ID);
+    }
+
+    @Override
+    public long authorId(int document) {
+        return field(document, DocumentField.AUTHOR_ID);
+    }
+
+    @Override
+    public long time(int document) {
+        return field(document, DocumentField.TIME);
+    }
+
+    @Override
+    public int length(int document) {
+        return buffer.getInt(documentsOffset + document * DOCUMENT_BYTES + DocumentField.COUNT * Long.BYTES);
+    }
+
+    private long field(int document, int field) {
+        return buffer.getLong(documentsOffset + document * DOCUMENT_BYTES + field * Long.BYTES);
+    }
+}
@@ -0,0 +1,208 @@
+package com.company.forumservice.infrastructure.search;
+
+import com.company.forumservice.domain.CommentDocument;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comments added since the last flush, in memory. Not thread safe, guarded by the index until frozen,
+ * then read only while it is written to disk.
+ */
+class PendingSegment implements Segment {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, PostingsBuilder> postings = new HashMap<>();
+
+    private long[] documents = new long[INITIAL_CAPACITY * DocumentField.COUNT];
+
+    private int[] lengths = new int[INITIAL_CAPACITY];
+
+    private int documentCount;
+
+    private long totalLength;
+
+    private long minTime = Long.MAX_VALUE;
+
+    private long maxTime = Long.MIN_VALUE;
+
+    private long maxCommentId;
+
+    private String[] terms;
+
+    static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    void add(CommentDocument document, List<String> tokens) {
+        if (terms != null) {
+            throw new IllegalStateException("Segment is frozen");
+        }
+        if (documentCount == lengths.length) {
+            documents = Arrays.copyOf(documents, 2 * documents.length);
+            lengths = Arrays.copyOf(lengths, 2 * lengths.length);
+        }
+        int number = documentCount++;
+        long time = micros(document.time());
+        int offset = number * DocumentField.COUNT;
+        documents[offset + DocumentField.COMMENT_ID] = document.commentId();
+        documents[offset + DocumentField.TOPIC_ID] = orZero(document.topicId());
+        documents[offset + DocumentField.THREAD_ID] = orZero(document.threadId());
+        documents[offset + DocumentField.AUTHOR_ID] = orZero(document.authorId());
+        documents[offset + DocumentField.TIME] = time;
+        lengths[number] = tokens.size();
+        totalLength += tokens.size();
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+        maxCommentId = Math.max(maxCommentId, document.commentId());
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new PostingsBuilder()).add(number, frequency));
+    }
+
+    private static long orZero(Long id) {
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Sorts the terms, no document can be added afterwards
+     */
+    void freeze() {
+        terms = postings.keySet().toArray(String[]::new);
+        Arrays.sort(terms);
+    }
+
+    @Override
+    public int documentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public long totalLength() {
+        return totalLength;
+    }
+
+    @Override
+    public long minTime() {
+        return minTime;
+    }
+
+    @Override
+    public long maxTime() {
+        return maxTime;
+    }
+
+    @Override
+    public long maxCommentId() {
+        return maxCommentId;
+    }
+
+    @Override
+    public int termCount() {
+        return postings.size();
+    }
+
+    /**
+     * Only once frozen
+     */
+    @Override
+    public String term(int ordinal) {
+        return terms[ordinal];
+    }
+
+    /**
+     * Only once frozen, before that terms are looked up by {@link #postings(String)}
+     */
+    @Override
+    public int termOrdinal(String term) {
+        if (terms == null) {
+            throw new IllegalStateException("Segment is not frozen");
+        }
+        int ordinal = Arrays.binarySearch(terms, term);
+        return ordinal < 0 ? -1 : ordinal;
+    }
+
+    @Override
+    public int documentFrequency(int ordinal) {
+        return postings.get(terms[ordinal]).size;
+    }
+
+    @Override
+    public Postings postings(int ordinal) {
+        return postings.get(terms[ordinal]).build();
+    }
+
+    @Override
+    public int documentFrequency(String term) {
+        PostingsBuilder builder = postings.get(term);
+        return builder == null ? 0 : builder.size;
+    }
+
+    @Override
+    public Postings postings(String term) {
+        PostingsBuilder builder = postings.get(term);
+        return builder == null ? null : builder.build();
+    }
+
+    @Override
+    public long commentId(int document) {
+        return documents[document * DocumentField.COUNT + DocumentField.COMMENT_ID];
+    }
+
+    @Override
+    public long topicId(int document) {
+        return documents[document * DocumentField.COUNT + DocumentField.TOPIC_ID];
+    }
+
+    @Override
+    public long threadId(int document) {
+        return documents[document * DocumentField.COUNT + DocumentField.THREAD_ID];
+    }
+
+    @Override
+    public long authorId(int document) {
+        return documents[document * DocumentField.COUNT + DocumentField.AUTHOR_ID];
+    }
+
+    @Override
+    public long time(int document) {
+        return documents[document * DocumentField.COUNT + DocumentField.TIME];
+    }
+
+    @Override
+    public int length(int document) {
+        return lengths[document];
+    }
+
+    private static class PostingsBuilder {
+
+        private int[] documents = new int[4];
+
+        private int[] frequencies = new int[4];
+
+        private int size;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, 2 * size);
+                frequencies = Arrays.copyOf(frequencies, 2 * size);
+            }
+            documents[size] = document;
+            frequencies[size++] = frequency;
+        }
+
+        /**
+         * Shares the arrays, entries past the size may be written by later additions
+         */
+        Postings build() {
+            return new Postings(documents, frequencies, size);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.company.forumservice.infrastructure.search;
+
+/**
+ * Immutable part of the index, except for the {@link PendingSegment} still receiving comments.
+ * Documents are numbered from 0 in the order they were added, terms from 0 in {@link String#compareTo} order.
+ * Times are microseconds since the epoch in UTC, ids of missing authors are 0.
+ */
+interface Segment {
+
+    int documentCount();
+
+    /**
+     * Number of terms of all documents
+     */
+    long totalLength();
+
+    long minTime();
+
+    long maxTime();
+
+    long maxCommentId();
+
+    int termCount();
+
+    String term(int ordinal);
+
+    /**
+     * @return -1 when no document of the segment contains the term
+     */
+    int termOrdinal(String term);
+
+    int documentFrequency(int ordinal);
+
+    Postings postings(int ordinal);
+
+    default int documentFrequency(String term) {
+        int ordinal = termOrdinal(term);
+        return ordinal < 0 ? 0 : documentFrequency(ordinal);
+    }
+
+    /**
+     * @return null when no document of the segment contains the term
+     */
+    default Postings postings(String term) {
+        int ordinal = termOrdinal(term);
+        return ordinal < 0 ? null : postings(ordinal);
+    }
+
+    long commentId(int document);
+
+    long topicId(int document);
+
+    long threadId(int document);
+
+    long authorId(int document);
+
+    long time(int document);
+
+    /**
+     * Number of terms of the document
+     */
+    int length(int document);
+
+    /**
+     * Documents containing a term in increasing order, with the number of times each contains it
+     */
+    record Postings(int[] documents, int[] frequencies, int size) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.company.forumservice.infrastructure.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes one segment file, see {@link MappedSegment} for the layout, from one or more segments: a pending segment
+ * when flushing, mapped ones when merging. Documents of the sources are numbered one source after the other,
+ * terms are merged in order, so the postings of a term are copied source by source without sorting.
+ * The file is written aside and moved in place once forced to disk, a crash never leaves a partial segment.
+ */
+final class SegmentWriter {
+
+    private SegmentWriter() {
+    }
+
+    static void write(Path file, List<? extends Segment> sources) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(MappedSegment.HEADER_BYTES);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary), 1 << 16))) {
+                out.write(new byte[MappedSegment.HEADER_BYTES]);
+                writeContent(out, sources, header);
+                if (out.size() == Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Segment " + file + " would be larger than 2 GB");
+                }
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write segment " + file, e);
+        }
+    }
+
+    private static void writeContent(DataOutputStream out, List<? extends Segment> sources, ByteBuffer header)
+            throws IOException {
+        int documentCount = 0;
+        long totalLength = 0;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        long maxCommentId = 0;
+        long documentsOffset = out.size();
+        int[] bases = new int[sources.size()];
+        for (int s = 0; s < sources.size(); s++) {
+            Segment source = sources.get(s);
+            bases[s] = documentCount;
+            for (int document = 0; document < source.documentCount(); document++) {
+                out.writeLong(source.commentId(document));
+                out.writeLong(source.topicId(document));
+                out.writeLong(source.threadId(document));
+                out.writeLong(source.authorId(document));
+                out.writeLong(source.time(document));
+                out.writeInt(source.length(document));
+            }
+            documentCount += source.documentCount();
+            totalLength += source.totalLength();
+            minTime = Math.min(minTime, source.minTime());
+            maxTime = Math.max(maxTime, source.maxTime());
+            maxCommentId = Math.max(maxCommentId, source.maxCommentId());
+        }
+
+        long postingsOffset = out.size();
+        ByteArrayOutputStream termEntries = new ByteArrayOutputStream();
+        DataOutputStream terms = new DataOutputStream(termEntries);
+        ByteArrayOutputStream termBytes = new ByteArrayOutputStream();
+        int termCount = 0;
+        int[] ordinals = new int[sources.size()];
+        String[] current = new String[sources.size()];
+        for (int s = 0; s < sources.size(); s++) {
+            current[s] = sources.get(s).termCount() > 0 ? sources.get(s).term(0) : null;
+        }
+        String term;
+        while ((term = smallest(current)) != null) {
+            long postingsStart = out.size() - postingsOffset;
+            int documentFrequency = 0;
+            int previous = -1;
+            for (int s = 0; s < sources.size(); s++) {
+                if (term.equals(current[s])) {
+                    Segment source = sources.get(s);
+                    Segment.Postings postings = source.postings(ordinals[s]);
+                    for (int i = 0; i < postings.size(); i++) {
+                        int document = bases[s] + postings.documents()[i];
+                        writeVarInt(out, document - previous);
+                        writeVarInt(out, postings.frequencies()[i]);
+                        previous = document;
+                    }
+                    documentFrequency += postings.size();
+                    ordinals[s]++;
+                    current[s] = ordinals[s] < source.termCount() ? source.term(ordinals[s]) : null;
+                }
+            }
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            terms.writeInt(termBytes.size());
+            terms.writeInt(bytes.length);
+            terms.writeLong(postingsStart);
+            terms.writeInt(documentFrequency);
+            termBytes.write(bytes);
+            termCount++;
+        }
+
+        long termsOffset = out.size();
+        termEntries.writeTo(out);
+        long termBytesOffset = out.size();
+        termBytes.writeTo(out);
+
+        header.putInt(MappedSegment.MAGIC).putInt(MappedSegment.VERSION).putInt(documentCount).putInt(termCount)
+                .putLong(totalLength).putLong(minTime).putLong(maxTime).putLong(maxCommentId)
+                .putLong(documentsOffset).putLong(postingsOffset).putLong(termsOffset).putLong(termBytesOffset);
+    }
+
+    private static String smallest(String[] terms) {
+        String smallest = null;
+        for (String term : terms) {
+            if (term != null && (smallest == null || term.compareTo(smallest) < 0)) {
+                smallest = term;
+            }
+        }
+        return smallest;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,521 @@
+package com.company.forumservice.infrastructure.search;
+
+import com.company.forumservice.application.CommentIndex;
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.SearchQuery;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index of comment contents, log structured: comments are added to a pending segment in memory,
+ * searchable at once, which is frozen and written to a new segment file once it holds maxPendingComments,
+ * or when flushed. Segment files are memory-mapped and never modified. Whenever there are more than mergeFactor
+ * of them the smallest are merged into one, so that a search visits few segments however many flushes there were.
+ * <p>
+ * Writing and merging happen on a background thread, searches keep using the segments they started with and
+ * adding comments only waits for the pending segment. The "segments" manifest lists the files of the index,
+ * it is replaced atomically once a new file is complete, files it does not list are left overs of a crash
+ * and deleted when the index is opened. Comments not flushed before a crash are lost,
+ * see {@link com.company.forumservice.application.CommentIndexer}.
+ * <p>
+ * A search returns the comments containing every term of the query and matching its filters, ranked with BM25
+ * over the statistics of the whole index. Segments are skipped when their time range is outside the query's,
+ * the postings of the rarest term drive the intersection.
+ */
+@Slf4j
+public class SegmentedCommentIndex implements CommentIndex {
+
+    private static final String MANIFEST = "segments";
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score)
+            .thenComparing(Hit::commentId);
+
+    private final Path directory;
+
+    private final int maxPendingComments;
+
+    private final int mergeFactor;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ExecutorService background = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("comment-index-writer").daemon().factory());
+
+    private PendingSegment pending = new PendingSegment();
+
+    /**
+     * Replaced, never modified, under the write lock: frozen pending segments being written and mapped segments
+     */
+    private volatile List<Segment> segments;
+
+    /**
+     * Only used by the background thread, once opened
+     */
+    private int nextSegment;
+
+    public SegmentedCommentIndex(Path directory, int maxPendingComments, int mergeFactor) {
+        this.directory = directory;
+        this.maxPendingComments = maxPendingComments;
+        this.mergeFactor = mergeFactor;
+        try {
+            Files.createDirectories(directory);
+            Path manifest = directory.resolve(MANIFEST);
+            List<String> names = Files.exists(manifest) ? Files.readAllLines(manifest) : List.of();
+            this.segments = names.stream().<Segment>map(name -> MappedSegment.open(directory.resolve(name))).toList();
+            this.nextSegment = names.stream().mapToInt(SegmentedCommentIndex::segmentNumber).max().orElse(0) + 1;
+            deleteSegmentsExcept(names);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open comment index " + directory, e);
+        }
+    }
+
+    private void deleteSegmentsExcept(List<String> names) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && !names.contains(file.getFileName().toString())).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static int segmentNumber(String name) {
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Override
+    public void add(CommentDocument document) {
+        List<String> tokens = Tokenizer.tokens(document.content());
+        lock.writeLock().lock();
+        try {
+            pending.add(document, tokens);
+            if (pending.documentCount() >= maxPendingComments) {
+                freeze();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Under the write lock
+     */
+    private Future<?> freeze() {
+        PendingSegment frozen = pending;
+        frozen.freeze();
+        pending = new PendingSegment();
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.add(frozen);
+        segments = List.copyOf(updated);
+        return background.submit(() -> write(frozen));
+    }
+
+    @Override
+    public void flush() {
+        Future<?> written;
+        lock.writeLock().lock();
+        try {
+            written = pending.documentCount() > 0 ? freeze() : background.submit(() -> { });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        await(written, "flushing");
+    }
+
+    private void await(Future<?> work, String doing) {
+        try {
+            work.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while " + doing + " comment index " + directory, e);
+        }
+    }
+
+    /**
+     * On the background thread. A segment that could not be written stays in memory, searchable.
+     */
+    private void write(PendingSegment frozen) {
+        try {
+            Path file = directory.resolve(segmentName(nextSegment++));
+            SegmentWriter.write(file, List.of(frozen));
+            replace(List.of(frozen), MappedSegment.open(file));
+            merge();
+        } catch (RuntimeException e) {
+            log.error("Could not write comment index segment in {}", directory, e);
+            throw e;
+        }
+    }
+
+    private static String segmentName(int number) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Merges the smallest mapped segments while there are more than mergeFactor. Files merged away are deleted,
+     * searches still reading them keep their mapping.
+     */
+    private void merge() {
+        List<MappedSegment> mapped = mappedSegments(segments);
+        while (mapped.size() > mergeFactor) {
+            List<MappedSegment> merged = mapped.stream()
+                    .sorted(Comparator.comparingInt(MappedSegment::documentCount))
+                    .limit(mergeFactor)
+                    .toList();
+            long start = System.nanoTime();
+            Path file = directory.resolve(segmentName(nextSegment++));
+            SegmentWriter.write(file, merged);
+            MappedSegment segment = MappedSegment.open(file);
+            replace(merged, segment);
+            for (MappedSegment source : merged) {
+                try {
+                    Files.deleteIfExists(source.file());
+                } catch (IOException e) {
+                    log.warn("Could not delete merged segment {}", source.file(), e);
+                }
+            }
+            log.debug("Merged {} segments into {} of {} comments in {} ms", merged.size(), file.getFileName(),
+                    segment.documentCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            mapped = mappedSegments(segments);
+        }
+    }
+
+    private static List<MappedSegment> mappedSegments(List<Segment> segments) {
+        return segments.stream()
+                .filter(MappedSegment.class::isInstance)
+                .map(MappedSegment.class::cast)
+                .toList();
+    }
+
+    /**
+     * The replacement takes the place of the first replaced segment, then the manifest lists the mapped segments
+     */
+    private void replace(List<? extends Segment> replaced, MappedSegment replacement) {
+        List<Segment> updated;
+        lock.writeLock().lock();
+        try {
+            updated = new ArrayList<>(segments.size());
+            for (Segment segment : segments) {
+                if (segment == replaced.getFirst()) {
+                    updated.add(replacement);
+                } else if (replaced.stream().noneMatch(removed -> removed == segment)) {
+                    updated.add(segment);
+                }
+            }
+            segments = List.copyOf(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        writeManifest(mappedSegments(updated));
+    }
+
+    private void writeManifest(List<MappedSegment> mapped) {
+        Path manifest = directory.resolve(MANIFEST);
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+        try {
+            Files.write(temporary, mapped.stream().map(segment -> segment.file().getFileName().toString()).toList(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                    StandardOpenOption.SYNC);
+            Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write comment index manifest " + manifest, e);
+        }
+    }
+
+    @Override
+    public List<Hit> search(SearchQuery query) {
+        List<String> terms = Tokenizer.tokens(query.text()).stream().distinct().toList();
+        if (terms.isEmpty() || query.limit() <= 0) {
+            return List.of();
+        }
+        Filter filter = Filter.of(query);
+        PriorityQueue<Hit> best = new PriorityQueue<>(query.limit() + 1, RANKING);
+        List<Segment> searched;
+        Statistics statistics;
+        lock.readLock().lock();
+        try {
+            searched = segments;
+            statistics = Statistics.of(searched, pending, terms);
+            if (statistics == null) {
+                return List.of();
+            }
+            search(pending, terms, filter, statistics, best, query.limit());
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Segment segment : searched) {
+            search(segment, terms, filter, statistics, best, query.limit());
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(RANKING.reversed());
+        return hits;
+    }
+
+    private static void search(Segment segment, List<String> terms, Filter filter, Statistics statistics,
+                               PriorityQueue<Hit> best, int limit) {
+        if (segment.documentCount() == 0 || segment.maxTime() < filter.from() || segment.minTime() >= filter.to()) {
+            return;
+        }
+        Segment.Postings[] postings = new Segment.Postings[terms.size()];
+        for (int t = 0; t < terms.size(); t++) {
+            postings[t] = segment.postings(terms.get(t));
+            if (postings[t] == null) {
+                return;
+            }
+        }
+        Integer[] order = new Integer[terms.size()];
+        Arrays.setAll(order, t -> t);
+        Arrays.sort(order, Comparator.comparingInt(t -> postings[t].size()));
+
+        Segment.Postings rarest = postings[order[0]];
+        int count = rarest.size();
+        int[] candidates = Arrays.copyOf(rarest.documents(), count);
+        int[][] frequencies = new int[terms.size()][];
+        frequencies[order[0]] = Arrays.copyOf(rarest.frequencies(), count);
+        for (int o = 1; o < order.length && count > 0; o++) {
+            int t = order[o];
+            frequencies[t] = new int[count];
+            int kept = 0;
+            int position = 0;
+            for (int c = 0; c < count; c++) {
+                position = advance(postings[t], position, candidates[c]);
+                if (position == postings[t].size()) {
+                    break;
+                }
+                if (postings[t].documents()[position] == candidates[c]) {
+                    candidates[kept] = candidates[c];
+                    for (int p = 0; p < o; p++) {
+                        frequencies[order[p]][kept] = frequencies[order[p]][c];
+                    }
+                    frequencies[t][kept++] = postings[t].frequencies()[position];
+                }
+            }
+            count = kept;
+        }
+
+        for (int c = 0; c < count; c++) {
+            int document = candidates[c];
+            if (!filter.matches(segment, document)) {
+                continue;
+            }
+            double norm = K1 * (1 - B + B * segment.length(document) / statistics.averageLength());
+            double score = 0;
+            for (int t = 0; t < terms.size(); t++) {
+                int frequency = frequencies[t][c];
+                score += statistics.idf()[t] * frequency * (K1 + 1) / (frequency + norm);
+            }
+            if (best.size() < limit) {
+                best.add(new Hit(segment.commentId(document), score));
+            } else {
+                Hit hit = new Hit(segment.commentId(document), score);
+                if (RANKING.compare(hit, best.peek()) > 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+        }
+    }
+
+    /**
+     * First position, from the given one, of a document not before the target: galloping, then binary search
+     */
+    private static int advance(Segment.Postings postings, int from, int target) {
+        int[] documents = postings.documents();
+        int size = postings.size();
+        if (from >= size || documents[from] >= target) {
+            return from;
+        }
+        int step = 1;
+        while (from + step < size && documents[from + step] < target) {
+            step <<= 1;
+        }
+        int found = Arrays.binarySearch(documents, from + (step >> 1) + 1, Math.min(from + step + 1, size), target);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    @Override
+    public long lastCommentId() {
+        lock.readLock().lock();
+        try {
+            return Stream.concat(segments.stream(), Stream.of(pending))
+                    .mapToLong(Segment::maxCommentId)
+                    .max()
+                    .orElse(0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Looks the comment up in every segment whose ids reach its own, reading the ids of all their documents:
+     * meant for a check when the index is opened, not for every request
+     */
+    @Override
+    public boolean contains(CommentDocument document) {
+        List<Segment> searched;
+        lock.readLock().lock();
+        try {
+            Boolean pendingMatch = indexedAs(pending, document);
+            if (pendingMatch != null) {
+                return pendingMatch;
+            }
+            searched = segments;
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Segment segment : searched) {
+            Boolean match = indexedAs(segment, document);
+            if (match != null) {
+                return match;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return null when the segment does not hold the comment
+     */
+    private static Boolean indexedAs(Segment segment, CommentDocument document) {
+        if (segment.documentCount() == 0 || segment.maxCommentId() < document.commentId()) {
+            return null;
+        }
+        for (int d = 0; d < segment.documentCount(); d++) {
+            if (segment.commentId(d) == document.commentId()) {
+                return segment.threadId(d) == document.threadId()
+                        && segment.time(d) == PendingSegment.micros(document.time());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Segments being written are dropped once written, the background thread writes the empty manifest
+     * after them and deletes every segment file
+     */
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            pending = new PendingSegment();
+            segments = List.of();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        await(background.submit(() -> {
+            writeManifest(List.of());
+            try {
+                deleteSegmentsExcept(List.of());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete comment index segments in " + directory, e);
+            }
+        }), "clearing");
+    }
+
+    /**
+     * Segments of the index, frozen pending ones included, not the one receiving comments
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Flushes the pending comments and waits for the background thread to finish its work
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            background.shutdown();
+            try {
+                background.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ids 0 and times at the bounds of long match every document
+     */
+    private record Filter(long topicId, long threadId, long authorId, long from, long to) {
+
+        static Filter of(SearchQuery query) {
+            return new Filter(orZero(query.topicId()), orZero(query.threadId()), orZero(query.authorId()),
+                    query.from() == null ? Long.MIN_VALUE : PendingSegment.micros(query.from()),
+                    query.to() == null ? Long.MAX_VALUE : PendingSegment.micros(query.to()));
+        }
+
+        private static long orZero(Long id) {
+            return id == null ? 0 : id;
+        }
+
+        boolean matches(Segment segment, int document) {
+            if (topicId != 0 && segment.topicId(document) != topicId
+                    || threadId != 0 && segment.threadId(document) != threadId
+                    || authorId != 0 && segment.authorId(document) != authorId) {
+                return false;
+            }
+            long time = segment.time(document);
+            return time >= from && time < to;
+        }
+    }
+
+    /**
+     * Over all segments, so that scores of different segments compare
+     */
+    private record Statistics(double averageLength, double[] idf) {
+
+        /**
+         * @return null when some term is in no document
+         */
+        static Statistics of(List<Segment> segments, PendingSegment pending, List<String> terms) {
+            List<Segment> all = new ArrayList<>(segments);
+            all.add(pending);
+            long documents = 0;
+            long length = 0;
+            for (Segment segment : all) {
+                documents += segment.documentCount();
+                length += segment.totalLength();
+            }
+            double[] idf = new double[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                long frequency = 0;
+                for (Segment segment : all) {
+                    frequency += segment.documentFrequency(terms.get(t));
+                }
+                if (frequency == 0) {
+                    return null;
+                }
+                idf[t] = Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+            }
+            return new Statistics(Math.max(1, (double) length / documents), idf);
+        }
+    }
+}
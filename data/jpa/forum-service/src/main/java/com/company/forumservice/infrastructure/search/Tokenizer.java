@@ -0,0 +1,57 @@
+package com.company.forumservice.infrastructure.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits text into the terms of the index: runs of letters and digits, lower cased and without accents,
+ * so that "Café" and "cafe" are the same term. Very common English words and over long runs are dropped.
+ * Comments and queries go through the same tokenizer.
+ */
+public final class Tokenizer {
+
+    static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "but", "by",
+            "for", "if", "in", "into", "is", "it", "no", "not", "of", "on", "or", "such", "that", "the", "their",
+            "then", "there", "these", "they", "this", "to", "was", "will", "with");
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.getType(codePoint) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(codePoint)) {
+                token.appendCodePoint(codePoint);
+            } else {
+                addToken(tokens, token);
+            }
+        }
+        addToken(tokens, token);
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder token) {
+        if (!token.isEmpty() && token.length() <= MAX_TERM_LENGTH) {
+            String term = token.toString().toLowerCase(Locale.ROOT);
+            if (!STOP_WORDS.contains(term)) {
+                tokens.add(term);
+            }
+        }
+        token.setLength(0);
+    }
+}
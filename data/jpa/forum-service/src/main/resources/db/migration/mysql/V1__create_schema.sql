@@ -0,0 +1,69 @@
+-- Schema of the entities as of the introduction of migrations, applied by Flyway on startup.
+-- Hibernate only validates it (ddl-auto=validate), any later entity change needs a migration of its own.
+
+create table users (
+    id bigint not null,
+    name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table topics (
+    id bigint not null,
+    title varchar(255),
+    created_at datetime(6) not null,
+    last_activity datetime(6) not null,
+    comment_count bigint default 0 not null,
+    last_author_id bigint,
+    primary key (id),
+    constraint fk_topics_last_author foreign key (last_author_id) references users (id)
+) engine=InnoDB;
+
+create table topic_threads (
+    id bigint not null,
+    topic_id bigint not null,
+    title varchar(255),
+    started_at datetime(6) not null,
+    last_activity datetime(6) not null,
+    comment_count bigint default 0 not null,
+    last_author_id bigint,
+    primary key (id),
+    constraint fk_topic_threads_topic foreign key (topic_id) references topics (id),
+    constraint fk_topic_threads_last_author foreign key (last_author_id) references users (id)
+) engine=InnoDB;
+
+create table comments (
+    id bigint not null,
+    thread_id bigint not null,
+    author_id bigint,
+    posted_at datetime(6) not null,
+    content varchar(4000),
+    primary key (id),
+    constraint fk_comments_thread foreign key (thread_id) references topic_threads (id),
+    constraint fk_comments_author foreign key (author_id) references users (id)
+) engine=InnoDB;
+
+-- Keyset paging: topics by activity, threads of a topic by activity, comments of a thread by time
+create index idx_topics_activity on topics (last_activity desc, id desc);
+create index idx_topic_threads_topic_activity on topic_threads (topic_id, last_activity desc, id desc);
+create index idx_comments_thread_time on comments (thread_id, posted_at, id);
+
+-- MySQL has no native sequences, Hibernate emulates them with single row tables
+create table users_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into users_seq values (1);
+
+create table topics_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into topics_seq values (1);
+
+create table topic_threads_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into topic_threads_seq values (1);
+
+create table comments_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into comments_seq values (1);
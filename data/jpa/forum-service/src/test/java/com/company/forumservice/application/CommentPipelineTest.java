@@ -0,0 +1,338 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.SearchQuery;
+import com.company.forumservice.domain.Topic;
+import com.company.forumservice.domain.TopicThread;
+import com.company.forumservice.domain.User;
+import com.company.forumservice.infrastructure.search.SegmentedCommentIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that a batch is reposted one comment at a time only when it was rolled back, and failed when committing
+ * it failed. Tagged perf, a load test of the comment pipeline on the embedded database: 32 submitters post
+ * 40 000 comments, most of them to one popular thread. Reports sustained comments per second and acknowledgement
+ * latency percentiles, next to the same load posted with one transaction per comment. Submitters wait for room
+ * in the queue rather than being rejected. The context and its database are not shared with other tests.
+ */
+@SpringBootTest(properties = {"forum.counters.flush-interval=1h", "forum.posting.enqueue-timeout=30s"})
+@ActiveProfiles("h2")
+public class CommentPipelineTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentPipelineTest.class);
+
+    private static final int SUBMITTERS = 32;
+
+    private static final int COMMENTS_PER_SUBMITTER = 1250;
+
+    private static final int THREADS = 10;
+
+    @Autowired
+    private CommentPipeline commentPipeline;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private ForumCounters forumCounters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FailingCommentIndex commentIndex;
+
+    @Autowired
+    private FailingTransactionManager transactionManager;
+
+    @Test
+    @Tag("perf")
+    public void shouldPostBurstsOfCommentsInBatches() throws Exception {
+        Topic topic = forumService.createTopic("Popular");
+        List<TopicThread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            threads.add(forumService.startThread(topic.getId(), "Thread " + i));
+        }
+        List<User> authors = new ArrayList<>();
+        for (int i = 0; i < SUBMITTERS; i++) {
+            authors.add(forumService.registerUser("Submitter " + i));
+        }
+        long batchesBefore = commentPipeline.getBatches();
+
+        ConcurrentLinkedQueue<Long> ackNanos = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+        run(threads, authors, (thread, author, content) -> {
+            long submitted = System.nanoTime();
+            return commentPipeline.submit(thread.getId(), author.getId(), content)
+                    .whenComplete((comment, e) -> ackNanos.add(System.nanoTime() - submitted));
+        });
+        long pipelineNanos = System.nanoTime() - start;
+        long batches = commentPipeline.getBatches() - batchesBefore;
+
+        ConcurrentLinkedQueue<Long> singleNanos = new ConcurrentLinkedQueue<>();
+        start = System.nanoTime();
+        run(threads, authors, (thread, author, content) -> {
+            long submitted = System.nanoTime();
+            Comment comment = forumService.postComment(thread.getId(), author.getId(), content);
+            singleNanos.add(System.nanoTime() - submitted);
+            return CompletableFuture.completedFuture(comment);
+        });
+        long singleTransactionNanos = System.nanoTime() - start;
+
+        int comments = SUBMITTERS * COMMENTS_PER_SUBMITTER;
+        log.info("Group commit: {} comments in {} batches, {} comments/s, acknowledged p50 {} ms, p99 {} ms. "
+                        + "One transaction per comment: {} comments/s, p50 {} ms, p99 {} ms", comments, batches,
+                Math.round(perSecond(comments, pipelineNanos)), String.format("%.2f", percentile(ackNanos, 0.50)),
+                String.format("%.2f", percentile(ackNanos, 0.99)),
+                Math.round(perSecond(comments, singleTransactionNanos)),
+                String.format("%.2f", percentile(singleNanos, 0.50)),
+                String.format("%.2f", percentile(singleNanos, 0.99)));
+
+        Assertions.assertEquals(comments, ackNanos.size());
+        Assertions.assertTrue(batches < comments / 10);
+        Assertions.assertEquals(2L * comments, jdbcTemplate.queryForObject("select count(*) from comments c "
+                + "join topic_threads t on c.thread_id = t.id where t.topic_id = ?", Long.class, topic.getId()));
+        forumCounters.flush();
+        Assertions.assertEquals(2L * comments, jdbcTemplate.queryForObject("select comment_count from topics "
+                + "where id = ?", Long.class, topic.getId()));
+    }
+
+    @Test
+    public void shouldFailCommentsOfMissingThreadsAlone() throws Exception {
+        Topic topic = forumService.createTopic("Mixed");
+        TopicThread thread = forumService.startThread(topic.getId(), "Existing");
+        User author = forumService.registerUser("Mixer");
+
+        List<CompletableFuture<Comment>> posted = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            posted.add(commentPipeline.submit(thread.getId(), author.getId(), "Posted " + i));
+        }
+        CompletableFuture<Comment> missing = commentPipeline.submit(Long.MAX_VALUE, author.getId(), "Lost");
+        for (int i = 10; i < 20; i++) {
+            posted.add(commentPipeline.submit(thread.getId(), author.getId(), "Posted " + i));
+        }
+
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class,
+                () -> missing.get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        for (CompletableFuture<Comment> comment : posted) {
+            Assertions.assertNotNull(comment.get(10, TimeUnit.SECONDS).getId());
+        }
+        Assertions.assertEquals(20, forumService.comments(thread.getId(), null, 100).items().size());
+    }
+
+    @Test
+    public void shouldNotPostCommentsTwiceWhenIndexingFailsAfterCommit() throws Exception {
+        Topic topic = forumService.createTopic("Unsearchable");
+        TopicThread thread = forumService.startThread(topic.getId(), "Posted once");
+        User author = forumService.registerUser("Once");
+
+        List<CompletableFuture<Comment>> posted = new ArrayList<>();
+        commentIndex.failing = true;
+        try {
+            for (int i = 0; i < 10; i++) {
+                posted.add(commentPipeline.submit(thread.getId(), author.getId(), "Posted " + i));
+            }
+            for (CompletableFuture<Comment> comment : posted) {
+                Assertions.assertNotNull(comment.get(10, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            commentIndex.failing = false;
+        }
+        Assertions.assertEquals(10, forumService.comments(thread.getId(), null, 100).items().size());
+    }
+
+    @Test
+    public void shouldFailBatchWhoseCommitFailed() throws Exception {
+        Topic topic = forumService.createTopic("Uncertain");
+        TopicThread thread = forumService.startThread(topic.getId(), "Maybe posted");
+        User author = forumService.registerUser("Unsure");
+
+        List<CompletableFuture<Comment>> posted = new ArrayList<>();
+        transactionManager.failingCommits = true;
+        try {
+            for (int i = 0; i < 10; i++) {
+                posted.add(commentPipeline.submit(thread.getId(), author.getId(), "Posted " + i));
+            }
+            for (CompletableFuture<Comment> comment : posted) {
+                ExecutionException failure = Assertions.assertThrows(ExecutionException.class,
+                        () -> comment.get(10, TimeUnit.SECONDS));
+                Assertions.assertInstanceOf(DataAccessResourceFailureException.class, failure.getCause());
+            }
+        } finally {
+            transactionManager.failingCommits = false;
+        }
+        Assertions.assertEquals(10, forumService.comments(thread.getId(), null, 100).items().size());
+    }
+
+    private void run(List<TopicThread> threads, List<User> authors, Poster poster) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(SUBMITTERS)) {
+            List<Future<List<CompletableFuture<Comment>>>> submitters = new ArrayList<>();
+            for (User author : authors) {
+                submitters.add(executor.submit(() -> {
+                    List<CompletableFuture<Comment>> comments = new ArrayList<>(COMMENTS_PER_SUBMITTER);
+                    for (int i = 0; i < COMMENTS_PER_SUBMITTER; i++) {
+                        TopicThread thread = i % 5 == 0 ? threads.get(1 + i % (THREADS - 1)) : threads.getFirst();
+                        comments.add(poster.post(thread, author, "Comment " + i + " by " + author.getName()));
+                    }
+                    return comments;
+                }));
+            }
+            for (Future<List<CompletableFuture<Comment>>> submitter : submitters) {
+                for (CompletableFuture<Comment> comment : submitter.get()) {
+                    comment.get(1, TimeUnit.MINUTES);
+                }
+            }
+        }
+    }
+
+    private static double perSecond(int comments, long nanos) {
+        return comments * 1e9 / nanos;
+    }
+
+    private static double percentile(ConcurrentLinkedQueue<Long> nanos, double percentile) {
+        List<Long> sorted = nanos.stream().sorted().toList();
+        return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1) / 1e6;
+    }
+
+    @FunctionalInterface
+    private interface Poster {
+        CompletableFuture<Comment> post(TopicThread thread, User author, String content);
+    }
+
+    @TestConfiguration
+    static class IndexConfiguration {
+
+        /**
+         * The index itself is closed by its own bean
+         */
+        @Bean(destroyMethod = "")
+        @Primary
+        FailingCommentIndex failingCommentIndex(SegmentedCommentIndex commentIndex) {
+            return new FailingCommentIndex(commentIndex);
+        }
+
+        /**
+         * Named as the one it replaces, repositories look it up by name
+         */
+        @Bean
+        FailingTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new FailingTransactionManager(new JpaTransactionManager(entityManagerFactory));
+        }
+    }
+
+    /**
+     * Commits, then reports a failure while failing, as when the connection is lost before the acknowledgement
+     * of the commit arrives. Transactions joined by an inner one are only committed by the outer one.
+     */
+    static class FailingTransactionManager implements PlatformTransactionManager {
+
+        private final PlatformTransactionManager transactionManager;
+
+        volatile boolean failingCommits;
+
+        FailingTransactionManager(PlatformTransactionManager transactionManager) {
+            this.transactionManager = transactionManager;
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return transactionManager.getTransaction(definition);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            boolean outer = status.isNewTransaction();
+            transactionManager.commit(status);
+            if (failingCommits && outer) {
+                throw new DataAccessResourceFailureException("Connection lost while committing");
+            }
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            transactionManager.rollback(status);
+        }
+    }
+
+    /**
+     * Rejects the comments added while failing, as a closed index does
+     */
+    static class FailingCommentIndex implements CommentIndex {
+
+        private final CommentIndex index;
+
+        volatile boolean failing;
+
+        FailingCommentIndex(CommentIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public void add(CommentDocument document) {
+            if (failing) {
+                throw new RejectedExecutionException("Comment index is closed");
+            }
+            index.add(document);
+        }
+
+        @Override
+        public List<Hit> search(SearchQuery query) {
+            return index.search(query);
+        }
+
+        @Override
+        public void flush() {
+            index.flush();
+        }
+
+        @Override
+        public long lastCommentId() {
+            return index.lastCommentId();
+        }
+
+        @Override
+        public boolean contains(CommentDocument document) {
+            return index.contains(document);
+        }
+
+        @Override
+        public void clear() {
+            index.clear();
+        }
+
+        @Override
+        public void close() {
+            index.close();
+        }
+    }
+}
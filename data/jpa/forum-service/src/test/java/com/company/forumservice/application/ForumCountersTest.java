@@ -0,0 +1,246 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.Cursor;
+import com.company.forumservice.domain.CursorPage;
+import com.company.forumservice.domain.Topic;
+import com.company.forumservice.domain.TopicThread;
+import com.company.forumservice.domain.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Counts comments posted concurrently, corrects counters that drifted and, tagged perf, lists 1 000 topics
+ * of 10 000 threads and 200 000 comments from their counters. Logs the latency of topic list pages read from
+ * the counters next to pages aggregated from the comments. Counters are flushed by the tests only, the context
+ * and its database are not shared with other tests.
+ */
+@SpringBootTest(properties = "forum.counters.flush-interval=1h")
+@ActiveProfiles("h2")
+public class ForumCountersTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ForumCountersTest.class);
+
+    private static final long BASE_ID = 1_000_000;
+
+    private static final int TOPICS = 1000;
+
+    private static final int THREADS = 10_000;
+
+    private static final int COMMENTS = 200_000;
+
+    private static final int AUTHORS = 1000;
+
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private ForumCounters forumCounters;
+
+    @Autowired
+    private CounterReconciler counterReconciler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void shouldCountConcurrentlyPostedComments() throws Exception {
+        Topic topic = forumService.createTopic("Busy");
+        TopicThread first = forumService.startThread(topic.getId(), "First");
+        TopicThread second = forumService.startThread(topic.getId(), "Second");
+        List<User> authors = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            authors.add(forumService.registerUser("Poster " + i));
+        }
+        Collection<Comment> posted = new ConcurrentLinkedQueue<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(authors.size())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (User author : authors) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        TopicThread thread = i % 4 == 0 ? second : first;
+                        posted.add(forumService.postComment(thread.getId(), author.getId(), "Comment " + i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        forumCounters.flush();
+
+        Map<Long, TopicThread> threads = forumService.threads(topic.getId(), null, PAGE_SIZE).items().stream()
+                .collect(Collectors.toMap(TopicThread::getId, thread -> thread));
+        Assertions.assertEquals(600, threads.get(first.getId()).getCommentCount());
+        Assertions.assertEquals(200, threads.get(second.getId()).getCommentCount());
+        Topic listed = forumService.topics(null, PAGE_SIZE).items().getFirst();
+        Assertions.assertEquals(topic.getId(), listed.getId());
+        Assertions.assertEquals(800, listed.getCommentCount());
+
+        LocalDateTime last = posted.stream().map(Comment::getTime).max(Comparator.naturalOrder()).orElseThrow();
+        List<String> lastAuthors = posted.stream().filter(comment -> comment.getTime().equals(last))
+                .map(comment -> comment.getAuthor().getId()).distinct()
+                .map(id -> authors.stream().filter(author -> author.getId().equals(id)).findFirst().orElseThrow())
+                .map(User::getName).toList();
+        Assertions.assertEquals(last, listed.getLastActivity());
+        Assertions.assertTrue(lastAuthors.contains(listed.getLastAuthor().getName()));
+    }
+
+    @Test
+    public void shouldListTopicOfStartedThreadFirst() {
+        Topic topic = forumService.createTopic("Quiet");
+        TopicThread thread = forumService.startThread(topic.getId(), "Not commented yet");
+        forumCounters.flush();
+
+        Topic listed = forumService.topics(null, PAGE_SIZE).items().getFirst();
+        Assertions.assertEquals(topic.getId(), listed.getId());
+        Assertions.assertEquals(thread.getStarted(), listed.getLastActivity());
+        Assertions.assertEquals(0, listed.getCommentCount());
+        Assertions.assertNull(listed.getLastAuthor());
+    }
+
+    @Test
+    public void shouldCorrectDriftedCounters() {
+        Topic topic = forumService.createTopic("Drifted");
+        TopicThread thread = forumService.startThread(topic.getId(), "Thread");
+        User author = forumService.registerUser("Drifter");
+        forumService.postComment(thread.getId(), author.getId(), "Counted");
+        forumCounters.flush();
+        jdbcTemplate.update("update topic_threads set comment_count = 42, last_author_id = null where id = ?",
+                thread.getId());
+        jdbcTemplate.update("insert into comments (id, thread_id, author_id, posted_at, content) "
+                        + "select ? + x, ?, ?, dateadd('SECOND', x, timestamp '2025-06-01 00:00:00'), 'Imported ' || x "
+                        + "from system_range(1, 10) range (x)", 2 * BASE_ID, thread.getId(), author.getId());
+
+        counterReconciler.reconcile();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("select comment_count, last_author_id from topic_threads "
+                + "where id = ?", thread.getId());
+        Assertions.assertEquals(11L, ((Number) row.get("comment_count")).longValue());
+        Assertions.assertEquals(author.getId(), ((Number) row.get("last_author_id")).longValue());
+        Assertions.assertEquals(11L, jdbcTemplate.queryForObject("select comment_count from topics where id = ?",
+                Long.class, topic.getId()));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from topic_threads t "
+                + "where t.comment_count <> (select count(*) from comments c where c.thread_id = t.id)", Long.class));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from topics p "
+                + "where p.comment_count <> (select count(*) from comments c join topic_threads t "
+                + "on c.thread_id = t.id where t.topic_id = p.id)", Long.class));
+    }
+
+    /**
+     * Every timed aggregated page is a different one, the embedded database reuses the result of a query
+     * repeated unchanged
+     */
+    @Test
+    @Tag("perf")
+    public void shouldListTopicsFromCounters() {
+        insertForum();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<Topic> topics = new ArrayList<>();
+        List<Long> pageNanos = new ArrayList<>();
+        Cursor cursor = null;
+        do {
+            long start = System.nanoTime();
+            CursorPage<Topic> page = forumService.topics(cursor, PAGE_SIZE);
+            pageNanos.add(System.nanoTime() - start);
+            topics.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+        long statements = statistics.getPrepareStatementCount();
+
+        List<Long> aggregatedNanos = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            aggregatedPage(i * PAGE_SIZE);
+            aggregatedNanos.add(System.nanoTime() - start);
+        }
+        double pageMillis = millisPerPage(pageNanos.subList(1, pageNanos.size()));
+        double aggregatedMillis = millisPerPage(aggregatedNanos);
+        log.info("Listed {} topics in {} pages of {}, {} statements. Per page: from counters {} ms, "
+                        + "aggregated from comments {} ms", topics.size(), pageNanos.size(), PAGE_SIZE, statements,
+                String.format("%.2f", pageMillis), String.format("%.2f", aggregatedMillis));
+
+        Assertions.assertTrue(topics.size() >= TOPICS);
+        Comparator<Topic> order = Comparator.comparing(Topic::getLastActivity).thenComparing(Topic::getId).reversed();
+        for (int i = 1; i < topics.size(); i++) {
+            Assertions.assertTrue(order.compare(topics.get(i - 1), topics.get(i)) < 0);
+        }
+        List<Topic> inserted = topics.stream().filter(topic -> topic.getId() > BASE_ID).toList();
+        Assertions.assertEquals(TOPICS, inserted.size());
+        Assertions.assertEquals(COMMENTS, inserted.stream().mapToLong(Topic::getCommentCount).sum());
+        Assertions.assertTrue(inserted.stream().allMatch(topic -> topic.getLastAuthor().getName() != null));
+        Assertions.assertTrue(statements <= 2L * pageNanos.size());
+        Assertions.assertTrue(plan("select id from topics where last_activity <= timestamp '2025-01-02 00:00:00' "
+                + "and (last_activity < timestamp '2025-01-02 00:00:00' or id < 5) "
+                + "order by last_activity desc, id desc limit 50").contains("/* index sorted */"));
+    }
+
+    /**
+     * Topics, threads and comments stored with stale counters, ids far above those allocated by the service.
+     * Every thread is commented, comments are one second apart. Recounted once inserted.
+     */
+    private void insertForum() {
+        jdbcTemplate.update("insert into users (id, name) select ? + x, 'User ' || x from system_range(1, ?) range (x)",
+                BASE_ID, AUTHORS);
+        jdbcTemplate.update("insert into topics (id, title, created_at, last_activity) select ? + x, 'Topic ' || x, "
+                + "timestamp '2025-01-01 00:00:00', timestamp '2025-01-01 00:00:00' from system_range(1, ?) range (x)",
+                BASE_ID, TOPICS);
+        jdbcTemplate.update("insert into topic_threads (id, topic_id, title, started_at, last_activity) "
+                + "select ? + x, ? + 1 + mod(x, ?), 'Thread ' || x, timestamp '2025-01-01 00:00:00', "
+                + "timestamp '2025-01-01 00:00:00' from system_range(1, ?) range (x)", BASE_ID, BASE_ID, TOPICS, THREADS);
+        jdbcTemplate.update("insert into comments (id, thread_id, author_id, posted_at, content) "
+                + "select ? + x, ? + 1 + mod(x * 7919, ?), ? + 1 + mod(x, ?), "
+                + "dateadd('SECOND', x, timestamp '2025-01-01 00:00:00'), 'Comment ' || x "
+                + "from system_range(1, ?) range (x)", BASE_ID, BASE_ID, THREADS, BASE_ID, AUTHORS, COMMENTS);
+
+        long start = System.nanoTime();
+        Assertions.assertTrue(counterReconciler.reconcile() >= THREADS);
+        log.info("Recounted {} threads of {} comments in {} ms", THREADS, COMMENTS,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private List<Map<String, Object>> aggregatedPage(int offset) {
+        return jdbcTemplate.queryForList("""
+                select p.id, p.title, count(c.id) as comments, max(c.posted_at) as last_activity
+                from topics p join topic_threads t on t.topic_id = p.id left join comments c on c.thread_id = t.id
+                group by p.id, p.title
+                order by last_activity desc, p.id desc
+                limit ? offset ?""", PAGE_SIZE, offset);
+    }
+
+    private double millisPerPage(List<Long> nanos) {
+        return nanos.stream().mapToLong(Long::longValue).average().orElseThrow() / 1_000_000;
+    }
+
+    private String plan(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+}
@@ -0,0 +1,218 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.Cursor;
+import com.company.forumservice.domain.CursorPage;
+import com.company.forumservice.domain.Topic;
+import com.company.forumservice.domain.TopicThread;
+import com.company.forumservice.domain.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Pages through a topic of 2 000 threads and, tagged perf, through threads of 100 000 comments on the embedded
+ * database. Logs the latency of keyset pages at the start and at the end of a thread next to offset pages at the end,
+ * the assertions only check what does not depend on timing: order, completeness, statements and query plans.
+ * Every timed page is a different one, the embedded database reuses the result of a query repeated unchanged.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+public class ForumPagingTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ForumPagingTest.class);
+
+    private static final int COMMENTS_PER_THREAD = 100_000;
+
+    private static final int AUTHORS = 1000;
+
+    private static final int THREADS = 2000;
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final int TIMED_PAGES = 50;
+
+    private static final long COMMENTED_THREAD = 1;
+
+    private static final long LISTED_TOPIC = 2;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private ForumCounters forumCounters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * 1 000 authors, a topic with two threads and a second topic with threads of distinct last activities,
+     * and some equal ones. Inserted once for all tests, which share the application context and its database.
+     */
+    @BeforeEach
+    public void insertForum() {
+        if (jdbcTemplate.queryForObject("select count(*) from topics", Long.class) > 0) {
+            return;
+        }
+        jdbcTemplate.update("insert into users (id, name) select x, 'User ' || x from system_range(1, ?) range (x)",
+                AUTHORS);
+        jdbcTemplate.update("insert into topics (id, title, created_at, last_activity) values "
+                + "(1, 'Commented', timestamp '2025-01-01 00:00:00', timestamp '2025-01-01 00:00:00'), "
+                + "(2, 'Listed', timestamp '2025-01-01 00:00:00', timestamp '2025-01-01 00:00:00')");
+        jdbcTemplate.update("insert into topic_threads (id, topic_id, title, started_at, last_activity) values "
+                + "(1, 1, 'First', timestamp '2026-01-01 00:00:00', timestamp '2026-01-02 00:00:00'), "
+                + "(2, 1, 'Second', timestamp '2026-01-01 00:00:00', timestamp '2026-01-02 00:00:00')");
+        jdbcTemplate.update("insert into topic_threads (id, topic_id, title, started_at, last_activity) "
+                + "select 2 + x, 2, 'Thread ' || x, timestamp '2025-01-01 00:00:00', dateadd('MINUTE', "
+                + "mod(x * 7919, ?) / 2, timestamp '2025-01-01 00:00:00') from system_range(1, ?) range (x)",
+                THREADS, THREADS);
+        for (String sequence : List.of("users_seq", "topics_seq", "topic_threads_seq", "comments_seq")) {
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + 10 * COMMENTS_PER_THREAD);
+        }
+    }
+
+    @Test
+    @Tag("perf")
+    public void shouldPageThroughThreadWithConstantCostPerPage() {
+        insertComments();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<Comment> comments = new ArrayList<>(COMMENTS_PER_THREAD);
+        List<Long> pageNanos = new ArrayList<>();
+        Cursor cursor = null;
+        do {
+            long start = System.nanoTime();
+            CursorPage<Comment> page = forumService.comments(COMMENTED_THREAD, cursor, PAGE_SIZE);
+            pageNanos.add(System.nanoTime() - start);
+            page.items().forEach(comment -> Assertions.assertTrue(Hibernate.isInitialized(comment.getAuthor())));
+            comments.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+        long statements = statistics.getPrepareStatementCount();
+        int pages = pageNanos.size();
+
+        double firstPagesMillis = millisPerPage(pageNanos.subList(1, 1 + TIMED_PAGES));
+        double lastPagesMillis = millisPerPage(pageNanos.subList(pages - 1 - TIMED_PAGES, pages - 1));
+        List<Long> offsetNanos = new ArrayList<>();
+        for (int i = 1; i <= TIMED_PAGES; i++) {
+            long start = System.nanoTime();
+            offsetPage(COMMENTS_PER_THREAD - i * PAGE_SIZE);
+            offsetNanos.add(System.nanoTime() - start);
+        }
+        double offsetPagesMillis = millisPerPage(offsetNanos);
+        log.info("Read {} comments in {} pages of {} in {} ms, {} statements. Per page: first {} pages "
+                        + "{} ms, last {} pages {} ms, last {} pages by offset {} ms", comments.size(), pages,
+                PAGE_SIZE, pageNanos.stream().mapToLong(Long::longValue).sum() / 1_000_000, statements, TIMED_PAGES,
+                String.format("%.2f", firstPagesMillis), TIMED_PAGES, String.format("%.2f", lastPagesMillis),
+                TIMED_PAGES, String.format("%.2f", offsetPagesMillis));
+
+        Assertions.assertEquals(COMMENTS_PER_THREAD, comments.size());
+        Assertions.assertEquals(COMMENTS_PER_THREAD, comments.stream().map(Comment::getId).distinct().count());
+        Comparator<Comment> order = Comparator.comparing(Comment::getTime).thenComparing(Comment::getId);
+        for (int i = 1; i < comments.size(); i++) {
+            Assertions.assertTrue(order.compare(comments.get(i - 1), comments.get(i)) < 0);
+        }
+        Assertions.assertTrue(comments.stream().allMatch(comment -> comment.getId() % 2 == 0));
+        Assertions.assertEquals(2L * (pages - 1) + 1, statements);
+        Assertions.assertTrue(plan("select id from comments where thread_id = 1 and posted_at >= "
+                + "timestamp '2026-01-01 10:00:00' and (posted_at > timestamp '2026-01-01 10:00:00' or id > 5) "
+                + "order by thread_id, posted_at, id limit 100").contains("/* index sorted */"));
+    }
+
+    @Test
+    public void shouldListThreadsByLastActivity() {
+        List<TopicThread> threads = new ArrayList<>(THREADS);
+        Cursor cursor = null;
+        do {
+            CursorPage<TopicThread> page = forumService.threads(LISTED_TOPIC, cursor, 50);
+            threads.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+
+        Assertions.assertEquals(THREADS, threads.size());
+        Assertions.assertEquals(THREADS, threads.stream().map(TopicThread::getId).distinct().count());
+        Comparator<TopicThread> order = Comparator.comparing(TopicThread::getLastActivity)
+                .thenComparing(TopicThread::getId).reversed();
+        for (int i = 1; i < threads.size(); i++) {
+            Assertions.assertTrue(order.compare(threads.get(i - 1), threads.get(i)) < 0);
+        }
+
+        User author = forumService.registerUser("Late");
+        TopicThread oldest = threads.getLast();
+        Comment comment = forumService.postComment(oldest.getId(), author.getId(), "Bump");
+        forumCounters.flush();
+        CursorPage<TopicThread> first = forumService.threads(LISTED_TOPIC, null, 50);
+        Assertions.assertEquals(oldest.getId(), first.items().getFirst().getId());
+        Assertions.assertEquals(comment.getTime(), first.items().getFirst().getLastActivity());
+        Assertions.assertEquals("Late", first.items().getFirst().getLastAuthor().getName());
+        Assertions.assertTrue(plan("select id from topic_threads where topic_id = 2 "
+                + "order by topic_id, last_activity desc, id desc limit 50").contains("/* index sorted */"));
+    }
+
+    @Test
+    public void shouldAppendPostedCommentToThread() {
+        Topic topic = forumService.createTopic("Posting");
+        TopicThread thread = forumService.startThread(topic.getId(), "Posted");
+        User author = forumService.registerUser("Poster");
+        TopicThread other = forumService.startThread(topic.getId(), "Other");
+        forumService.postComment(thread.getId(), author.getId(), "First");
+        forumService.postComment(other.getId(), author.getId(), "Elsewhere");
+        forumService.postComment(thread.getId(), author.getId(), "Second");
+
+        CursorPage<Comment> page = forumService.comments(thread.getId(), null, PAGE_SIZE);
+        Assertions.assertEquals(List.of("First", "Second"), page.items().stream().map(Comment::getContent).toList());
+        Assertions.assertEquals("Poster", page.items().getFirst().getAuthor().getName());
+        Assertions.assertNull(page.next());
+    }
+
+    /**
+     * Comments of the two threads of the first topic, posted alternately, two per second each so that times are
+     * not unique, by 1 000 authors. Thread {@value #COMMENTED_THREAD} gets the even ids.
+     */
+    private void insertComments() {
+        jdbcTemplate.update("insert into comments (id, thread_id, author_id, posted_at, content) "
+                + "select x, 1 + mod(x, 2), 1 + mod(x, ?), dateadd('SECOND', x / 4, timestamp '2026-01-01 00:00:00'), "
+                + "'Comment ' || x from system_range(1, ?) range (x)", AUTHORS, 2 * COMMENTS_PER_THREAD);
+    }
+
+    private double millisPerPage(List<Long> nanos) {
+        return nanos.stream().mapToLong(Long::longValue).average().orElseThrow() / 1_000_000;
+    }
+
+    private List<Comment> offsetPage(int offset) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery("select c from Comment c where c.thread.id = :threadId "
+                            + "order by c.time, c.id", Comment.class)
+                    .setParameter("threadId", COMMENTED_THREAD)
+                    .setFirstResult(offset)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private String plan(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+}
@@ -0,0 +1,133 @@
+package com.company.forumservice.application;
+
+import com.company.forumservice.domain.Comment;
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.CommentRepository;
+import com.company.forumservice.domain.SearchQuery;
+import com.company.forumservice.domain.Topic;
+import com.company.forumservice.domain.TopicThread;
+import com.company.forumservice.domain.User;
+import com.company.forumservice.infrastructure.search.SegmentedCommentIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Searches comments posted through the service, and comments stored behind the index's back once caught up.
+ * An index built from another database is rebuilt. Segments are written every 1 000 comments, the context and its database are not shared with other tests.
+ */
+@SpringBootTest(properties = "forum.search.max-pending-comments=1000")
+@ActiveProfiles("h2")
+public class ForumSearchTest {
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private CommentIndexer commentIndexer;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void shouldFindPostedCommentsWithTheirAuthors() {
+        Topic topic = forumService.createTopic("Gardening");
+        TopicThread tomatoes = forumService.startThread(topic.getId(), "Tomatoes");
+        TopicThread roses = forumService.startThread(topic.getId(), "Roses");
+        User alice = forumService.registerUser("Alice");
+        User bob = forumService.registerUser("Bob");
+        Comment first = forumService.postComment(tomatoes.getId(), alice.getId(), "Water tomatoes every morning");
+        Comment second = forumService.postComment(roses.getId(), bob.getId(), "Roses need water, tomatoes water too");
+        forumService.postComment(roses.getId(), bob.getId(), "Prune roses in spring");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<Comment> found = forumService.search(SearchQuery.of("WATER tomatoes", 10));
+        long statements = statistics.getPrepareStatementCount();
+
+        Assertions.assertEquals(List.of(second.getId(), first.getId()), found.stream().map(Comment::getId).toList());
+        Assertions.assertEquals(List.of("Bob", "Alice"), found.stream().map(comment -> comment.getAuthor().getName())
+                .toList());
+        Assertions.assertEquals(2, statements);
+        Assertions.assertEquals(List.of(first.getId()), forumService.search(SearchQuery.of("water", 10)
+                .byAuthor(alice.getId())).stream().map(Comment::getId).toList());
+        Assertions.assertEquals(2, forumService.search(SearchQuery.of("roses", 10).inThread(roses.getId())).size());
+        Assertions.assertEquals(List.of(), forumService.search(SearchQuery.of("roses tomatoes prune", 10)));
+    }
+
+    @Test
+    public void shouldNotFindRolledBackComments() {
+        Topic topic = forumService.createTopic("Rolled back");
+        TopicThread thread = forumService.startThread(topic.getId(), "Thread");
+        User author = forumService.registerUser("Author");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            forumService.postComment(thread.getId(), author.getId(), "Abandoned draft");
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertEquals(List.of(), forumService.search(SearchQuery.of("abandoned", 10)));
+    }
+
+    @Test
+    public void shouldCatchUpWithCommentsMissingFromTheIndex() {
+        Topic topic = forumService.createTopic("Imported");
+        TopicThread thread = forumService.startThread(topic.getId(), "Thread");
+        User author = forumService.registerUser("Importer");
+        forumService.postComment(thread.getId(), author.getId(), "Imported before");
+        long base = jdbcTemplate.queryForObject("select max(id) from comments", Long.class) + 1_000_000;
+        jdbcTemplate.update("insert into comments (id, thread_id, author_id, posted_at, content) "
+                        + "select ? + x, ?, ?, current_timestamp, 'Imported comment ' || x "
+                        + "from system_range(1, 2500) range (x)", base, thread.getId(), author.getId());
+
+        Assertions.assertEquals(2500, commentIndexer.catchUp());
+        Assertions.assertEquals(0, commentIndexer.catchUp());
+        Assertions.assertEquals(2501, forumService.search(SearchQuery.of("imported", 3000)).size());
+        Assertions.assertEquals(List.of(base + 1234), forumService.search(SearchQuery.of("imported 1234", 10))
+                .stream().map(Comment::getId).toList());
+    }
+
+    /**
+     * The index of a recreated database holding a comment of the same id, posted at another time in another thread
+     */
+    @Test
+    public void shouldRebuildIndexOfAnotherDatabase(@TempDir Path directory) {
+        Topic topic = forumService.createTopic("Rebuilt");
+        TopicThread thread = forumService.startThread(topic.getId(), "Thread");
+        User author = forumService.registerUser("Rebuilder");
+        Comment comment = forumService.postComment(thread.getId(), author.getId(), "Rebuilt comment");
+        long comments = jdbcTemplate.queryForObject("select count(*) from comments", Long.class);
+
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 1000, 10)) {
+            index.add(new CommentDocument(comment.getId(), topic.getId(), thread.getId() + 1,
+                    author.getId(), comment.getTime().minusDays(1), "Stale comment"));
+            index.flush();
+
+            Assertions.assertEquals(comments, new CommentIndexer(commentRepository, index, 100).catchUp());
+            Assertions.assertEquals(List.of(), index.search(SearchQuery.of("stale", 10)));
+            Assertions.assertEquals(List.of(comment.getId()), index.search(SearchQuery.of("rebuilt", 10)).stream()
+                    .map(CommentIndex.Hit::commentId).toList());
+            Assertions.assertEquals(0, new CommentIndexer(commentRepository, index, 100).catchUp());
+        }
+    }
+}
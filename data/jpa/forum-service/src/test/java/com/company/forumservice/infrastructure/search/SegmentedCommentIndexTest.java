@@ -0,0 +1,236 @@
+package com.company.forumservice.infrastructure.search;
+
+import com.company.forumservice.application.CommentIndex;
+import com.company.forumservice.domain.CommentDocument;
+import com.company.forumservice.domain.SearchQuery;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Searches, flushes, merges, clears and reopens indexes of a few comments. Tagged perf, logs query latencies
+ * over 1 000 000 comments of words drawn from a Zipf distribution, as in natural language.
+ */
+public class SegmentedCommentIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentedCommentIndexTest.class);
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private static final int BENCHMARK_COMMENTS = 1_000_000;
+
+    private static final int VOCABULARY = 50_000;
+
+    private static final int WORDS_PER_COMMENT = 15;
+
+    private static final int THREADS = 10_000;
+
+    private static final int QUERIES = 200;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void shouldFindCommentsContainingEveryTermBestFirst() {
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 100, 10)) {
+            index.add(document(1, "The café opens at nine"));
+            index.add(document(2, "Opening hours of the cafe: nine to five, the CAFE is closed on Sundays"));
+            index.add(document(3, "Cafe cafe cafe, nine"));
+            index.add(document(4, "Nothing to see here"));
+
+            Assertions.assertEquals(List.of(3L, 1L, 2L), ids(index.search(SearchQuery.of("cafe NINE", 10))));
+            Assertions.assertEquals(List.of(1L), ids(index.search(SearchQuery.of("nine opens", 10))));
+            Assertions.assertEquals(List.of(3L), ids(index.search(SearchQuery.of("cafe", 1))));
+            Assertions.assertEquals(List.of(), index.search(SearchQuery.of("cafe sunday", 10)));
+            Assertions.assertEquals(List.of(), index.search(SearchQuery.of("the of", 10)));
+            Assertions.assertEquals(4, index.lastCommentId());
+        }
+    }
+
+    @Test
+    public void shouldFilterByTopicThreadAuthorAndTime() {
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 3, 10)) {
+            index.add(new CommentDocument(1L, 1L, 10L, 100L, START, "release notes"));
+            index.add(new CommentDocument(2L, 1L, 11L, 101L, START.plusDays(1), "release date"));
+            index.add(new CommentDocument(3L, 2L, 20L, 100L, START.plusDays(2), "release party"));
+            index.add(new CommentDocument(4L, 2L, 21L, null, START.plusDays(3), "release"));
+            index.flush();
+            index.add(new CommentDocument(5L, 1L, 10L, 101L, START.plusDays(4), "release again"));
+
+            SearchQuery release = SearchQuery.of("release", 10);
+            Assertions.assertEquals(List.of(1L, 2L, 5L), sorted(index.search(release.inTopic(1L))));
+            Assertions.assertEquals(List.of(1L, 5L), sorted(index.search(release.inThread(10L))));
+            Assertions.assertEquals(List.of(1L, 3L), sorted(index.search(release.byAuthor(100L))));
+            Assertions.assertEquals(List.of(2L, 3L), sorted(index.search(release.between(START.plusDays(1),
+                    START.plusDays(3)))));
+            Assertions.assertEquals(List.of(4L, 5L), sorted(index.search(release.between(START.plusDays(3), null))));
+            Assertions.assertEquals(List.of(5L), sorted(index.search(release.inTopic(1L).byAuthor(101L)
+                    .between(START.plusDays(2), null))));
+            Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sorted(index.search(release)));
+        }
+    }
+
+    @Test
+    public void shouldKeepSegmentsMergedOnDiskAcrossRestarts() throws IOException {
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 10, 3)) {
+            for (long id = 1; id <= 95; id++) {
+                index.add(document(id, "comment " + id + (id % 5 == 0 ? " fifth" : "")));
+            }
+            index.flush();
+            Assertions.assertTrue(index.segmentCount() <= 3);
+            Assertions.assertEquals(19, index.search(SearchQuery.of("fifth", 100)).size());
+        }
+        Files.writeString(directory.resolve("segment-99999999.seg.tmp"), "torn");
+
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 10, 3)) {
+            Assertions.assertEquals(95, index.lastCommentId());
+            Assertions.assertEquals(19, index.search(SearchQuery.of("fifth", 100)).size());
+            Assertions.assertEquals(List.of(42L), ids(index.search(SearchQuery.of("comment 42", 10))));
+            index.add(document(96, "comment fifth"));
+            Assertions.assertEquals(20, index.search(SearchQuery.of("fifth", 100)).size());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).toList();
+            Assertions.assertTrue(names.stream().noneMatch(name -> name.endsWith(".tmp")));
+            Assertions.assertEquals(Files.readAllLines(directory.resolve("segments")).size() + 1, names.size());
+        }
+    }
+
+    @Test
+    public void shouldTellIndexedCommentsAndClear() {
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 2, 10)) {
+            for (long id = 1; id <= 5; id++) {
+                index.add(document(id, "comment " + id));
+            }
+            index.flush();
+            index.add(document(6, "comment 6"));
+
+            Assertions.assertTrue(index.contains(document(2, "")));
+            Assertions.assertTrue(index.contains(document(6, "")));
+            Assertions.assertFalse(index.contains(document(7, "")));
+            Assertions.assertFalse(index.contains(new CommentDocument(3L, 1L, 2L, 1L, START.plusMinutes(3), "")));
+            Assertions.assertFalse(index.contains(new CommentDocument(3L, 1L, 1L, 1L, START, "")));
+
+            index.clear();
+            Assertions.assertEquals(0, index.lastCommentId());
+            Assertions.assertEquals(List.of(), index.search(SearchQuery.of("comment", 10)));
+            index.add(document(1, "comment again"));
+            Assertions.assertEquals(List.of(1L), ids(index.search(SearchQuery.of("comment", 10))));
+        }
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 2, 10)) {
+            Assertions.assertEquals(1, index.lastCommentId());
+            Assertions.assertEquals(List.of(1L), ids(index.search(SearchQuery.of("comment", 10))));
+        }
+    }
+
+    @Test
+    @Tag("perf")
+    public void shouldAnswerQueriesOverMillionComments() throws IOException {
+        Random random = new Random(42);
+        double[] cumulative = zipf(VOCABULARY);
+        IntFunction<String> word = rank -> Integer.toString(rank, 36) + "x";
+        try (SegmentedCommentIndex index = new SegmentedCommentIndex(directory, 10_000, 10)) {
+            long start = System.nanoTime();
+            StringBuilder content = new StringBuilder();
+            for (int id = 1; id <= BENCHMARK_COMMENTS; id++) {
+                content.setLength(0);
+                for (int w = 0; w < WORDS_PER_COMMENT; w++) {
+                    content.append(word.apply(sample(cumulative, random))).append(' ');
+                }
+                int thread = random.nextInt(THREADS);
+                index.add(new CommentDocument((long) id, 1L + thread % 100, 1L + thread, 1L + random.nextInt(1000),
+                        START.plusSeconds(id * 30L), content.toString()));
+            }
+            index.flush();
+            long indexingMillis = (System.nanoTime() - start) / 1_000_000;
+            long bytes;
+            try (Stream<Path> files = Files.list(directory)) {
+                bytes = files.mapToLong(file -> file.toFile().length()).sum();
+            }
+
+            LocalDateTime lastDay = START.plusSeconds(BENCHMARK_COMMENTS * 30L).minusDays(1);
+            List<Run> runs = List.of(
+                    new Run("rare term", i -> SearchQuery.of(word.apply(20_000 + i), 20)),
+                    new Run("common term", i -> SearchQuery.of(word.apply(i % 10), 20)),
+                    new Run("two terms", i -> SearchQuery.of(word.apply(100 + i) + " " + word.apply(i % 50), 20)),
+                    new Run("three terms", i -> SearchQuery.of(word.apply(i % 20) + " " + word.apply(20 + i % 30)
+                            + " " + word.apply(50 + i), 20)),
+                    new Run("common term in thread", i -> SearchQuery.of(word.apply(i % 10), 20)
+                            .inThread(1L + i * 37 % THREADS)),
+                    new Run("term in last day", i -> SearchQuery.of(word.apply(i % 100), 20).between(lastDay, null)));
+            log.info("Indexed {} comments of {} words in {} ms ({} comments/s), {} segments, {} MB",
+                    BENCHMARK_COMMENTS, WORDS_PER_COMMENT, indexingMillis,
+                    Math.round(BENCHMARK_COMMENTS * 1000.0 / Math.max(1, indexingMillis)), index.segmentCount(),
+                    bytes >> 20);
+            for (Run run : runs) {
+                for (int i = 0; i < QUERIES; i++) {
+                    index.search(run.query().apply(i));
+                }
+                long[] nanos = new long[QUERIES];
+                int hits = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                    long queryStart = System.nanoTime();
+                    hits += index.search(run.query().apply(i)).size();
+                    nanos[i] = System.nanoTime() - queryStart;
+                }
+                Arrays.sort(nanos);
+                double p50 = nanos[QUERIES / 2] / 1e6;
+                double p99 = nanos[QUERIES * 99 / 100] / 1e6;
+                log.info("{}: p50 {} ms, p99 {} ms, {} hits per query", run.name(), String.format("%.2f", p50),
+                        String.format("%.2f", p99), String.format("%.1f", (double) hits / QUERIES));
+                Assertions.assertTrue(hits > 0);
+            }
+            Assertions.assertTrue(index.segmentCount() <= 10);
+            Assertions.assertEquals(BENCHMARK_COMMENTS, index.lastCommentId());
+        }
+    }
+
+    private record Run(String name, IntFunction<SearchQuery> query) {
+    }
+
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        return rank >= 0 ? rank : Math.min(-rank - 1, cumulative.length - 1);
+    }
+
+    private static CommentDocument document(long id, String content) {
+        return new CommentDocument(id, 1L, 1L, 1L, START.plusMinutes(id), content);
+    }
+
+    private static List<Long> ids(List<CommentIndex.Hit> hits) {
+        return hits.stream().map(CommentIndex.Hit::commentId).toList();
+    }
+
+    private static List<Long> sorted(List<CommentIndex.Hit> hits) {
+        List<Long> ids = new ArrayList<>(ids(hits));
+        ids.sort(null);
+        return ids;
+    }
+}
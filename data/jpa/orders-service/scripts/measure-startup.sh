@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+# Measures time to first request and resident set size of the service started from the boot jar in four setups:
+#   default   default profile: schema recreated by Hibernate, data.sql, SQL logged synchronously
+#   prod      prod profile: schema migrated by Flyway and validated, SQL logging off
+#   prod-aot  prod with the bean definitions generated at build time (-Dspring.aot.enabled=true)
+#   prod-cds  prod-aot with a class data sharing archive recorded by a training run
+#
+# Build the jar first with ./gradlew bootJar. Arguments are passed to the application, typically the datasource:
+#   scripts/measure-startup.sh --spring.datasource.url=jdbc:mysql://localhost:3306/orders --spring.datasource.password=...
+# EXTRA_CLASSPATH is appended to the classpath (e.g. another JDBC driver), RUNS is the number of starts per setup.
+# Java 21 is taken from JAVA_HOME when set.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+JAR=${JAR:-build/libs/orders-service-0.0.1-SNAPSHOT.jar}
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+MAIN=com.company.ordersservice.OrdersServiceApplication
+APP_DIR=build/startup
+
+# the extracted layout loads classes from plain jars, which class data sharing requires
+rm -rf "$APP_DIR"
+"$JAVA" -Djarmode=tools -jar "$JAR" extract --destination "$APP_DIR" > /dev/null
+CLASSPATH="$APP_DIR/$(basename "$JAR")${EXTRA_CLASSPATH:+:$EXTRA_CLASSPATH}"
+
+if ! "$JAVA" -XX:ArchiveClassesAtExit="$APP_DIR/application.jsa" -Dspring.aot.enabled=true \
+        -Dspring.context.exit=onRefresh -cp "$CLASSPATH" "$MAIN" --spring.profiles.active=prod "$@" \
+        > "$APP_DIR/training.log" 2>&1; then
+    echo "training run failed, see $APP_DIR/training.log" >&2
+    exit 1
+fi
+
+# prints the milliseconds from launch to the first successful readiness check and the resident set size in MB
+start_once() {
+    local started=$(date +%s%N)
+    "$JAVA" "$@" > "$APP_DIR/run.log" 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "application exited, see $APP_DIR/run.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    local ready=$(date +%s%N)
+    local rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" || true
+    echo "$(( (ready - started) / 1000000 )) $(( rss / 1024 ))"
+}
+
+measure() {
+    local name=$1
+    shift
+    local results=()
+    for _ in $(seq "$RUNS"); do
+        results+=("$(start_once "$@")")
+    done
+    printf '%s\n' "${results[@]}" | sort -n | awk -v name="$name" -v runs="$RUNS" '
+        { millis[NR] = $1; rss[NR] = $2 }
+        END { printf "%-9s first request after %5d ms (median of %d), RSS %4d MB\n",
+              name, millis[int((runs + 1) / 2)], runs, rss[int((runs + 1) / 2)] }'
+}
+
+APP_ARGS=(--server.port="$PORT" --management.endpoint.health.probes.enabled=true "$@")
+measure default -cp "$CLASSPATH" "$MAIN" "${APP_ARGS[@]}"
+measure prod -cp "$CLASSPATH" "$MAIN" --spring.profiles.active=prod "${APP_ARGS[@]}"
+measure prod-aot -Dspring.aot.enabled=true -cp "$CLASSPATH" "$MAIN" --spring.profiles.active=prod "${APP_ARGS[@]}"
+measure prod-cds -XX:SharedArchiveFile="$APP_DIR/application.jsa" -Dspring.aot.enabled=true \
+    -cp "$CLASSPATH" "$MAIN" --spring.profiles.active=prod "${APP_ARGS[@]}"
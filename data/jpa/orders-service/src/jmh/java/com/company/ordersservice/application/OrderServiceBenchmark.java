@@ -0,0 +1,143 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.OrdersServiceApplication;
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.OrderRepository;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ProductRepository;
+import com.company.ordersservice.domain.port.IngestionReport;
+import com.company.ordersservice.domain.port.OrderSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * OrderService operations end to end against H2 in MySQL mode, see application-jmh.properties.
+ * Every iteration works on a freshly created detached order of lineCount lines, as a caller holding an order would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderServiceBenchmark {
+
+    private static final int INGESTED_ORDERS = 50;
+
+    private static final int INGESTED_LINES = 10;
+
+    @Param({"10", "100", "1000"})
+    private int lineCount;
+
+    private ConfigurableApplicationContext context;
+
+    private OrderService orderService;
+
+    private OrderRepository orderRepository;
+
+    private List<Product> products;
+
+    private Map<Long, Integer> cart;
+
+    private Order order;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(OrdersServiceApplication.class)
+                .profiles("jmh")
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run();
+        orderService = context.getBean(OrderService.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+
+        products = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            products.add(productRepository.store(new Product(null, "Product " + i, 1.99 + i)));
+        }
+        cart = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(20, lineCount); i++) {
+            cart.put(products.get((i * 31) % lineCount).getId(), 1 + i % 3);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createOrder() {
+        order = orderService.createOrder();
+        orderService.addProducts(order, products);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order createEmptyOrder() {
+        return orderService.createOrder();
+    }
+
+    @Benchmark
+    public Order addProduct() {
+        orderService.addProduct(order, nextProduct());
+        return order;
+    }
+
+    @Benchmark
+    public Order addProductsById() {
+        orderService.addProductsById(order, cart);
+        return order;
+    }
+
+    /**
+     * Removes the first line and adds its product back, which appends a new line, so the order keeps its size
+     */
+    @Benchmark
+    public Order removeAndReaddLine() {
+        OrderLine line = order.getLines().get(0);
+        orderService.removeOrderLine(order, line.getId());
+        orderService.addProduct(order, line.getProduct());
+        return order;
+    }
+
+    @Benchmark
+    public Order findWithLinesAndProducts() {
+        return orderRepository.find(order.getId(), FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+    }
+
+    @Benchmark
+    public IngestionReport ingestOrders() {
+        return orderService.ingestOrders(IntStream.range(0, INGESTED_ORDERS).mapToObj(i -> {
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (int j = 0; j < Math.min(INGESTED_LINES, lineCount); j++) {
+                quantities.put(products.get((i + j) % lineCount).getId(), 1);
+            }
+            return new OrderSpec(quantities);
+        }));
+    }
+
+    private Product nextProduct() {
+        next = (next + 7919) % lineCount;
+        return products.get(next);
+    }
+}
@@ -0,0 +1,84 @@
+package com.company.ordersservice.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding products to an order of growing size. linearScan replays the stream filter
+ * Order.addProduct used before lines were indexed by product id.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderAddProductBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int lineCount;
+
+    private List<Product> products;
+
+    private List<Product> batch;
+
+    private Order order;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createProducts() {
+        products = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            products.add(new Product((long) i, "Product " + i, 1.0 + i));
+        }
+        batch = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            batch.add(products.get((i * 31) % lineCount));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createOrder() {
+        List<OrderLine> lines = new ArrayList<>(lineCount);
+        long lineId = 0;
+        for (Product product : products) {
+            lines.add(new OrderLine(lineId++, product, 1));
+        }
+        order = new Order(1L, lines);
+    }
+
+    @Benchmark
+    public void addExistingProduct() {
+        order.addProduct(nextProduct());
+    }
+
+    @Benchmark
+    public void addHundredProducts() {
+        order.addProducts(batch);
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        Product product = nextProduct();
+        Optional<OrderLine> line = order.getLines().stream()
+                .filter(orderLine -> orderLine.getProduct().getId().equals(product.getId()))
+                .findFirst();
+        blackhole.consume(line);
+    }
+
+    private Product nextProduct() {
+        next = (next + 7919) % lineCount;
+        return products.get(next);
+    }
+}
@@ -0,0 +1,58 @@
+package com.company.ordersservice.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price of an order of growing size. boxedDoubleStream replays the calculation used while
+ * Product.price was a Double: a stream of boxed prices reduced with Double::sum, ignoring quantities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderPriceBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int lineCount;
+
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void createOrder() {
+        List<OrderLine> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            lines.add(new OrderLine((long) i, new Product((long) i, "Product " + i, 1.99 + i), 1 + i % 5));
+        }
+        order = new Order(1L, lines);
+    }
+
+    @Benchmark
+    public Double boxedDoubleStream() {
+        return order.getLines().stream()
+                .map(OrderLine::getProduct)
+                .map(product -> product.getPrice().cents() / 100.0)
+                .reduce(Double::sum)
+                .orElse(0.0);
+    }
+
+    @Benchmark
+    public long primitiveLoop() {
+        return order.sumLines();
+    }
+
+    @Benchmark
+    public Money cachedTotal() {
+        return order.calculatePrice();
+    }
+}
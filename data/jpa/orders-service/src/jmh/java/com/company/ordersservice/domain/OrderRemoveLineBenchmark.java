@@ -0,0 +1,56 @@
+package com.company.ordersservice.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removing a line by id from an order of growing size. The removed line is appended again with the same id,
+ * so the order keeps its size and every line can be removed again later in the rotation.
+ * Pending changes are cleared as storing the order would, so they do not pile up over an iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderRemoveLineBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int lineCount;
+
+    private List<Product> products;
+
+    private Order order;
+
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void createOrder() {
+        products = new ArrayList<>(lineCount);
+        List<OrderLine> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            Product product = new Product((long) i, "Product " + i, 1.0 + i);
+            products.add(product);
+            lines.add(new OrderLine((long) i, product, 1));
+        }
+        order = new Order(1L, lines);
+    }
+
+    @Benchmark
+    public void removeOrderLine() {
+        int lineId = next;
+        next = (next + 7919) % lineCount;
+        order.removeOrderLine((long) lineId);
+        order.getLines().add(new OrderLine((long) lineId, products.get(lineId), 1));
+        order.clearChanges();
+    }
+}
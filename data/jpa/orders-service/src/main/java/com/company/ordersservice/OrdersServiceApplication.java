@@ -3,9 +3,15 @@ package com.company.ordersservice;
 import com.company.ordersservice.configuration.ApplicationConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.context.annotation.Import;
 
-@SpringBootApplication
+/**
+ * R2DBC is only used by the reactive adapter, set up by ReactiveConfiguration: the auto-configured connection factory
+ * and reactive transaction manager would compete with the JPA data source and transaction manager
+ */
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 @Import(ApplicationConfiguration.class)
 public class OrdersServiceApplication {
 
@@ -0,0 +1,467 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderEvent;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.OrderRepository;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ProductRepository;
+import com.company.ordersservice.domain.port.IngestionReport;
+import com.company.ordersservice.domain.port.OrderPort;
+import com.company.ordersservice.domain.port.OrderSpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind layer in front of an {@link OrderPort}. Products added to stored orders are journaled and buffered
+ * as per order quantity deltas, then written with one atomic increment per product when the order collects
+ * maxPendingAdditions, when its oldest buffered addition gets older than maxDelay, on checkout or on close.
+ * Every other operation flushes the order's buffer first and is delegated.
+ *
+ * Additions are acknowledged once journaled. {@link #replay()} applies the journal after a restart, every flush records
+ * the journal sequence it covers in its own transaction, so entries already in the database are not applied twice.
+ * Buffered additions do not change the caller's order instance, {@link #quantities(Order)} merges them over the
+ * stored lines. A single lock guards the buffer only, an order's additions are taken out of the buffer under it
+ * and written outside of it, under a lock of the order's stripe which also serializes the writes and reads
+ * of the same order. Additions are journaled outside of it too, one entry and sync per call, under another lock
+ * of the order's stripe so that an order's additions enter the buffer in the order of their journal sequences. Additions whose write fails are put back, unless the order or their product
+ * no longer exists: those are dropped, the additions of other products are written. The events of the additions are appended
+ * to the {@link OrderOutbox} when they are written, one per product and flush. Flushed orders are reported to
+ * {@link ReadYourWrites} like those mutated by the delegate.
+ */
+@Slf4j
+public class BufferedOrderPort implements OrderPort, AutoCloseable {
+
+    private static final int FLUSH_STRIPES = 64;
+
+    private final OrderPort delegate;
+
+    private final OrderRepository orderRepository;
+
+    private final ProductRepository productRepository;
+
+    private final TransactionRunner transactions;
+
+    private final CartJournal journal;
+
+    private final ReadYourWrites readYourWrites;
+
+    private final OrderOutbox outbox;
+
+    private final int maxPendingAdditions;
+
+    private final Duration maxDelay;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final OrderLocks flushLocks = new OrderLocks(FLUSH_STRIPES);
+
+    private final OrderLocks appendLocks = new OrderLocks(FLUSH_STRIPES);
+
+    private final Map<Long, PendingAdditions> pending = new HashMap<>();
+
+    /**
+     * Orders whose additions are taken out of the buffer and being written, the journal is kept meanwhile
+     */
+    private int writing;
+
+    /**
+     * Additions being journaled, not buffered yet, the journal is kept meanwhile
+     */
+    private int appending;
+
+    private final AtomicLong additions = new AtomicLong();
+
+    private final AtomicLong flushes = new AtomicLong();
+
+    public BufferedOrderPort(OrderPort delegate, OrderRepository orderRepository, ProductRepository productRepository,
+                             TransactionRunner transactions, CartJournal journal, ReadYourWrites readYourWrites,
+                             OrderOutbox outbox, int maxPendingAdditions, Duration maxDelay) {
+        this.delegate = delegate;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.transactions = transactions;
+        this.journal = journal;
+        this.readYourWrites = readYourWrites;
+        this.outbox = outbox;
+        this.maxPendingAdditions = maxPendingAdditions;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Applies journal entries not covered by the watermark of their order, then empties the journal.
+     * Entries of orders removed in the meantime are dropped. Called once, before the port is used.
+     */
+    public void replay() {
+        lock.lock();
+        try {
+            journal.advancePast(orderRepository.maxJournalSequence());
+            Map<Long, List<CartJournal.Entry>> entriesByOrder = new LinkedHashMap<>();
+            for (CartJournal.Entry entry : journal.readAll()) {
+                entriesByOrder.computeIfAbsent(entry.orderId(), orderId -> new ArrayList<>()).add(entry);
+            }
+            int replayed = 0;
+            for (Map.Entry<Long, List<CartJournal.Entry>> order : entriesByOrder.entrySet()) {
+                long watermark = orderRepository.journalWatermark(order.getKey());
+                PendingAdditions additions = new PendingAdditions(System.nanoTime());
+                order.getValue().stream()
+                        .filter(entry -> entry.sequence() > watermark)
+                        .forEach(entry -> additions.add(entry.productId(), entry.quantity(), entry.sequence()));
+                if (!additions.quantities.isEmpty() && write(order.getKey(), additions)) {
+                    replayed++;
+                }
+            }
+            journal.truncate();
+            log.info("Replayed cart journal: {} of {} orders had additions not yet stored", replayed,
+                    entriesByOrder.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Order createOrder() {
+        return delegate.createOrder();
+    }
+
+    @Override
+    public void removeOrder(Order order) {
+        flush(order);
+        delegate.removeOrder(order);
+    }
+
+    @Override
+    public void addProduct(Order order, Product product) {
+        if (order.getId() == null) {
+            delegate.addProduct(order, product);
+            return;
+        }
+        buffer(order.getId(), Map.of(requireStored(product), 1));
+    }
+
+    @Override
+    public void addProducts(Order order, Collection<Product> products) {
+        if (order.getId() == null) {
+            delegate.addProducts(order, products);
+            return;
+        }
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        products.forEach(product -> quantities.merge(requireStored(product), 1, Integer::sum));
+        buffer(order.getId(), quantities);
+    }
+
+    /**
+     * Delegated, the products have to be looked up to fail on missing ones
+     */
+    @Override
+    public void addProductsById(Order order, Map<Long, Integer> quantities) {
+        OrderService.requirePositive(quantities);
+        flush(order);
+        delegate.addProductsById(order, quantities);
+    }
+
+    @Override
+    public void removeOrderLine(Order order, Long lineId) {
+        flush(order);
+        delegate.removeOrderLine(order, lineId);
+    }
+
+    @Override
+    public Order checkout(Order order) {
+        flush(order);
+        return delegate.checkout(order);
+    }
+
+    @Override
+    public IngestionReport ingestOrders(Iterator<OrderSpec> specs) {
+        return delegate.ingestOrders(specs);
+    }
+
+    @Override
+    public IngestionReport ingestOrders(Stream<OrderSpec> specs) {
+        return delegate.ingestOrders(specs);
+    }
+
+    /**
+     * Quantities by product id of the stored lines with the buffered additions on top
+     */
+    public Map<Long, Integer> quantities(Order order) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        if (order.getId() == null) {
+            order.getLines().forEach(line -> add(quantities, line));
+            return quantities;
+        }
+        return flushLocks.withLock(order.getId(), () -> {
+            readYourWrites.reading(order.getId(), () -> orderRepository.find(order.getId(), FetchPlan.WITH_LINES))
+                    .orElseThrow().getLines()
+                    .forEach(line -> add(quantities, line));
+            lock.lock();
+            try {
+                PendingAdditions additions = pending.get(order.getId());
+                if (additions != null) {
+                    additions.quantities.forEach((productId, quantity) ->
+                            quantities.merge(productId, quantity, Integer::sum));
+                }
+            } finally {
+                lock.unlock();
+            }
+            return quantities;
+        });
+    }
+
+    private static void add(Map<Long, Integer> quantities, OrderLine line) {
+        quantities.merge(line.getProduct().getId(), line.getQuantity(), Integer::sum);
+    }
+
+    /**
+     * Flushes orders whose oldest buffered addition is older than maxDelay, called periodically
+     */
+    public void flushExpired() {
+        long now = System.nanoTime();
+        List<Long> expired;
+        lock.lock();
+        try {
+            expired = pending.entrySet().stream()
+                    .filter(entry -> now - entry.getValue().firstNanos >= maxDelay.toNanos())
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(this::flush);
+    }
+
+    public void flushAll() {
+        List<Long> orderIds;
+        lock.lock();
+        try {
+            orderIds = new ArrayList<>(pending.keySet());
+        } finally {
+            lock.unlock();
+        }
+        orderIds.forEach(this::flush);
+    }
+
+    @Override
+    public void close() {
+        flushAll();
+    }
+
+    /**
+     * Number of additions accepted by addProduct and addProducts
+     */
+    public long getAdditions() {
+        return additions.get();
+    }
+
+    /**
+     * Number of transactions writing buffered additions
+     */
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    /**
+     * The additions are acknowledged once journaled: when the flush they trigger fails, they stay buffered
+     * for the next one and the caller does not see the failure. When journaling fails nothing is buffered.
+     */
+    private void buffer(Long orderId, Map<Long, Integer> quantities) {
+        boolean full = appendLocks.withLock(orderId, () -> {
+            lock.lock();
+            try {
+                appending++;
+            } finally {
+                lock.unlock();
+            }
+            long sequence;
+            try {
+                sequence = journal.append(orderId, quantities);
+            } catch (RuntimeException | Error e) {
+                journaled(orderId, Map.of(), 0);
+                throw e;
+            }
+            return journaled(orderId, quantities, sequence);
+        });
+        if (full) {
+            try {
+                flush(orderId);
+            } catch (RuntimeException e) {
+                log.warn("Could not write buffered additions to order {}, they stay buffered", orderId, e);
+            }
+        }
+    }
+
+    /**
+     * @return whether the order collected maxPendingAdditions
+     */
+    private boolean journaled(Long orderId, Map<Long, Integer> quantities, long sequence) {
+        lock.lock();
+        try {
+            appending--;
+            if (quantities.isEmpty()) {
+                truncateJournalIfIdle();
+                return false;
+            }
+            PendingAdditions orderAdditions = pending.computeIfAbsent(orderId,
+                    id -> new PendingAdditions(System.nanoTime()));
+            quantities.forEach((productId, quantity) -> orderAdditions.add(productId, quantity, sequence));
+            additions.addAndGet(quantities.values().stream().mapToInt(Integer::intValue).sum());
+            return orderAdditions.count >= maxPendingAdditions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(Order order) {
+        flush(order.getId());
+    }
+
+    /**
+     * Additions stay buffered when the write fails, unless the order or their product no longer exists.
+     * The journal is emptied whenever nothing is journaled, buffered or being written any more.
+     */
+    private void flush(Long orderId) {
+        if (orderId == null) {
+            return;
+        }
+        flushLocks.withLock(orderId, () -> {
+            PendingAdditions orderAdditions = take(orderId);
+            if (orderAdditions == null) {
+                return;
+            }
+            boolean written = false;
+            try {
+                write(orderId, orderAdditions);
+                written = true;
+            } finally {
+                written(orderId, orderAdditions, written);
+            }
+        });
+    }
+
+    private PendingAdditions take(Long orderId) {
+        lock.lock();
+        try {
+            PendingAdditions orderAdditions = pending.remove(orderId);
+            if (orderAdditions != null) {
+                writing++;
+            }
+            return orderAdditions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts additions whose write failed back in front of those buffered meanwhile
+     */
+    private void written(Long orderId, PendingAdditions orderAdditions, boolean written) {
+        lock.lock();
+        try {
+            writing--;
+            if (!written) {
+                PendingAdditions buffered = pending.put(orderId, orderAdditions);
+                if (buffered != null) {
+                    orderAdditions.addAll(buffered);
+                }
+            }
+            truncateJournalIfIdle();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Under the lock
+     */
+    private void truncateJournalIfIdle() {
+        if (pending.isEmpty() && writing == 0 && appending == 0) {
+            journal.truncate();
+        }
+    }
+
+    private static Long requireStored(Product product) {
+        if (product.getId() == null) {
+            throw new IllegalArgumentException("Product " + product.getName() + " is not stored yet");
+        }
+        return product.getId();
+    }
+
+    /**
+     * An integrity violation is either the order or a product missing, as products are only checked to have an id
+     * when their additions are acknowledged. Additions of missing products are dropped and the others written
+     * again, any other integrity violation fails the write.
+     */
+    private boolean write(Long orderId, PendingAdditions orderAdditions) {
+        try {
+            boolean written = transactions.execute(attempt -> {
+                boolean added = orderRepository.addQuantitiesOnce(orderId, orderAdditions.quantities,
+                        orderAdditions.lastSequence);
+                if (added) {
+                    List<OrderEvent> events = new ArrayList<>(orderAdditions.quantities.size());
+                    orderAdditions.quantities.forEach((productId, quantity) ->
+                            events.add(OrderEvent.productAdded(orderId, productId, quantity)));
+                    outbox.append(events);
+                }
+                return added;
+            });
+            flushes.incrementAndGet();
+            readYourWrites.written(orderId);
+            return written;
+        } catch (DataIntegrityViolationException e) {
+            if (orderRepository.find(orderId).isEmpty()) {
+                log.warn("Dropping buffered additions to order {}, it no longer exists", orderId, e);
+                return false;
+            }
+            Set<Long> missing = productRepository.findAll(orderAdditions.quantities.keySet()).missingIds();
+            if (missing.isEmpty()) {
+                throw e;
+            }
+            log.warn("Dropping buffered additions of products {} to order {}, they no longer exist", missing,
+                    orderId, e);
+            orderAdditions.quantities.keySet().removeAll(missing);
+            return !orderAdditions.quantities.isEmpty() && write(orderId, orderAdditions);
+        }
+    }
+
+    private static final class PendingAdditions {
+
+        private final Map<Long, Integer> quantities = new LinkedHashMap<>();
+
+        private final long firstNanos;
+
+        private long lastSequence;
+
+        private int count;
+
+        private PendingAdditions(long firstNanos) {
+            this.firstNanos = firstNanos;
+        }
+
+        private void add(Long productId, int quantity, long sequence) {
+            quantities.merge(productId, quantity, Integer::sum);
+            lastSequence = Math.max(lastSequence, sequence);
+            count += quantity;
+        }
+
+        private void addAll(PendingAdditions later) {
+            later.quantities.forEach((productId, quantity) -> quantities.merge(productId, quantity, Integer::sum));
+            lastSequence = Math.max(lastSequence, later.lastSequence);
+            count += later.count;
+        }
+    }
+}
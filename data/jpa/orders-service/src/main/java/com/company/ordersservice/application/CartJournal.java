@@ -0,0 +1,39 @@
+package com.company.ordersservice.application;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only record of the quantities buffered by {@link BufferedOrderPort}, read back after a restart
+ * to apply the additions that were acknowledged but not flushed to the database.
+ */
+public interface CartJournal extends AutoCloseable {
+
+    /**
+     * Records the additions of the quantities to the order, all of them or none, durably once the method returns
+     *
+     * @return sequence of their entries, greater than the sequence of any entry appended before
+     */
+    long append(Long orderId, Map<Long, Integer> quantitiesByProductId);
+
+    List<Entry> readAll();
+
+    /**
+     * Drops every entry, called once all of them were applied. Sequences keep increasing.
+     */
+    void truncate();
+
+    /**
+     * Sequences handed out from now on are greater than the given one
+     */
+    void advancePast(long sequence);
+
+    @Override
+    void close();
+
+    /**
+     * Entries appended together share their sequence
+     */
+    record Entry(long sequence, Long orderId, Long productId, int quantity) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.company.ordersservice.application;
+
+import org.springframework.transaction.annotation.Isolation;
+
+/**
+ * How OrderService protects concurrent modifications of the same order
+ */
+public enum ConcurrencyMode {
+
+    /**
+     * Every transaction runs SERIALIZABLE, on InnoDB plain reads become locking reads
+     */
+    SERIALIZABLE(Isolation.SERIALIZABLE),
+
+    /**
+     * Transactions run READ_COMMITTED, conflicting writes are detected by @Version columns and retried
+     */
+    OPTIMISTIC(Isolation.READ_COMMITTED),
+
+    /**
+     * Like OPTIMISTIC, but products are added with atomic quantity increments on (order_id, product_id)
+     * that never read the order, so concurrent additions to the same order neither conflict nor get lost
+     */
+    ATOMIC(Isolation.READ_COMMITTED);
+
+    private final Isolation isolation;
+
+    ConcurrencyMode(Isolation isolation) {
+        this.isolation = isolation;
+    }
+
+    public Isolation getIsolation() {
+        return isolation;
+    }
+}
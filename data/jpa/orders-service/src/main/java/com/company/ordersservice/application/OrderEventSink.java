@@ -0,0 +1,20 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.OrderEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the events relayed from the outbox, e.g. a message broker.
+ * Called concurrently for different partitions, the events of an order always come through the same partition.
+ */
+public interface OrderEventSink {
+
+    /**
+     * Returns once the events are durably accepted. Events are delivered at least once: when the relay fails
+     * after publishing, the same events are published again, consumers recognize them by id.
+     *
+     * @param events events of one partition, in order
+     */
+    void publish(List<OrderEvent> events);
+}
@@ -0,0 +1,146 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.OrderRepository;
+import com.company.ordersservice.domain.OrderSummary;
+import com.company.ordersservice.domain.OrderSummaryPage;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams summaries of all orders, see {@link OrderSummary}, with a memory footprint bounded by the page size
+ * whatever the number of orders. Pages are read lazily with keyset pagination on the order id, each in a short
+ * read-only transaction of its own, so an export of millions of orders neither holds a transaction open
+ * nor accumulates entities in a persistence context: summaries are projections and are never managed.
+ */
+public class OrderExporter {
+
+    public enum Format {
+        /**
+         * Header line then one line per order: id,line_count,total_quantity,total_price
+         */
+        CSV,
+        /**
+         * One JSON object per line: {"id":1,"lineCount":2,"totalQuantity":3,"totalPrice":4.50}
+         */
+        NDJSON
+    }
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final OrderRepository orderRepository;
+
+    private final OrderMetrics metrics;
+
+    private final int pageSize;
+
+    public OrderExporter(OrderRepository orderRepository, OrderMetrics metrics, int pageSize) {
+        this.orderRepository = orderRepository;
+        this.metrics = metrics;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Summaries ordered by order id, the next page is only read once the previous one was consumed
+     */
+    public Stream<OrderSummary> summaries() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new PageIterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Writes every order to the stream in the given format, which is flushed but left open
+     *
+     * @return number of orders written
+     */
+    public long export(OutputStream output, Format format) {
+        return metrics.record("exportOrders", () -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8),
+                    WRITE_BUFFER_SIZE);
+            try {
+                if (format == Format.CSV) {
+                    writer.write("id,line_count,total_quantity,total_price\n");
+                }
+                long count = 0;
+                Iterator<OrderSummary> summaries = new PageIterator();
+                while (summaries.hasNext()) {
+                    write(writer, format, summaries.next());
+                    count++;
+                }
+                writer.flush();
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void write(Writer writer, Format format, OrderSummary summary) throws IOException {
+        switch (format) {
+            case CSV -> {
+                writer.write(Long.toString(summary.id()));
+                writer.write(',');
+                writer.write(Long.toString(summary.lineCount()));
+                writer.write(',');
+                writer.write(Long.toString(summary.totalQuantity()));
+                writer.write(',');
+                writer.write(summary.totalPrice().toString());
+            }
+            case NDJSON -> {
+                writer.write("{\"id\":");
+                writer.write(Long.toString(summary.id()));
+                writer.write(",\"lineCount\":");
+                writer.write(Long.toString(summary.lineCount()));
+                writer.write(",\"totalQuantity\":");
+                writer.write(Long.toString(summary.totalQuantity()));
+                writer.write(",\"totalPrice\":");
+                writer.write(summary.totalPrice().toString());
+                writer.write('}');
+            }
+        }
+        writer.write('\n');
+    }
+
+    private class PageIterator implements Iterator<OrderSummary> {
+
+        private List<OrderSummary> page = List.of();
+
+        private int index;
+
+        private long lastId;
+
+        private boolean exhausted;
+
+        @Override
+        public boolean hasNext() {
+            while (index == page.size() && !exhausted) {
+                OrderSummaryPage next = orderRepository.findSummariesAfter(lastId, pageSize);
+                page = next.summaries();
+                index = 0;
+                exhausted = next.last();
+                lastId = next.lastId();
+            }
+            return index < page.size();
+        }
+
+        @Override
+        public OrderSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(index++);
+        }
+    }
+}
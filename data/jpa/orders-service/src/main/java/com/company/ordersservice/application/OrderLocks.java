@@ -0,0 +1,63 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes mutations of the same order within this JVM, so that they do not conflict in the database.
+ * Orders are mapped onto a fixed number of locks by id; with no stripes nothing is locked.
+ * Other instances of the service are not covered, the configured {@link ConcurrencyMode} still applies to them.
+ */
+public class OrderLocks {
+
+    private final Lock[] stripes;
+
+    public OrderLocks(int stripes) {
+        this.stripes = new Lock[Math.max(0, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public static OrderLocks none() {
+        return new OrderLocks(0);
+    }
+
+    public boolean isEnabled() {
+        return stripes.length > 0;
+    }
+
+    public <T> T withLock(Order order, Supplier<T> work) {
+        return withLock(order.getId(), work);
+    }
+
+    /**
+     * Orders not stored yet, without id, are not locked
+     */
+    public <T> T withLock(Long orderId, Supplier<T> work) {
+        if (stripes.length == 0 || orderId == null) {
+            return work.get();
+        }
+        Lock lock = stripes[Math.floorMod(Long.hashCode(orderId) * 0x9E3779B9, stripes.length)];
+        lock.lock();
+        try {
+            return work.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void withLock(Order order, Runnable work) {
+        withLock(order.getId(), work);
+    }
+
+    public void withLock(Long orderId, Runnable work) {
+        withLock(orderId, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Meters of {@link OrderService}: latency and JDBC statements per operation, lines per order,
+ * and the transactions run by its {@link TransactionRunner}.
+ *
+ * Statements are counted as the difference of a per-thread running count, so calls on other threads do not interfere.
+ * Latencies publish client side p50 and p99, lines per order publish a histogram.
+ */
+public class OrderMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.99};
+
+    private final MeterRegistry registry;
+
+    private final LongSupplier statementCount;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> statements = new ConcurrentHashMap<>();
+
+    private final DistributionSummary linesPerOrder;
+
+    /**
+     * @param statementCount number of JDBC statements prepared so far by the current thread
+     */
+    public OrderMetrics(MeterRegistry registry, LongSupplier statementCount) {
+        this.registry = registry;
+        this.statementCount = statementCount;
+        this.linesPerOrder = DistributionSummary.builder("orders.lines")
+                .description("Lines per order after a mutation or ingestion")
+                .baseUnit("lines")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Meters kept in memory only, for services built outside of the application context
+     */
+    public static OrderMetrics inMemory() {
+        return new OrderMetrics(new SimpleMeterRegistry(), () -> 0);
+    }
+
+    public void bind(TransactionRunner transactions) {
+        FunctionCounter.builder("orders.transactions", transactions, TransactionRunner::getTransactions)
+                .description("Transactions started, retries included")
+                .register(registry);
+        FunctionCounter.builder("orders.transaction.retries", transactions, TransactionRunner::getRetries)
+                .description("Transactions rolled back on an optimistic lock conflict and retried")
+                .register(registry);
+        FunctionCounter.builder("orders.transaction.rollbacks", transactions,
+                        runner -> runner.getRetries() + runner.getFailures())
+                .description("Transactions rolled back, retried or not")
+                .register(registry);
+    }
+
+    public <T> T record(String operation, Supplier<T> call) {
+        long statementsBefore = statementCount.getAsLong();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            timer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            statements(operation).record(statementCount.getAsLong() - statementsBefore);
+        }
+    }
+
+    public void record(String operation, Runnable call) {
+        record(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public void recordLines(Order order) {
+        linesPerOrder.record(order.getLines().size());
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + ':' + outcome, key -> Timer.builder("orders.operation")
+                .description("Latency of OrderPort operations, transaction retries included")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+
+    private DistributionSummary statements(String operation) {
+        return statements.computeIfAbsent(operation, key -> DistributionSummary.builder("orders.operation.statements")
+                .description("JDBC statements prepared per OrderPort operation")
+                .tag("operation", operation)
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+}
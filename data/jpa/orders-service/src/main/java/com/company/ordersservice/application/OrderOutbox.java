@@ -0,0 +1,65 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.OrderEvent;
+import com.company.ordersservice.domain.OrderEventRepository;
+import com.company.ordersservice.domain.ReactiveOrderEventRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Appends the events of order changes to the outbox, in the transaction of the change, see {@link OutboxRelay}.
+ * The blocking and the reactive adapter of the order port append through the same outbox, with the same partitions.
+ * With no partitions nothing is appended.
+ */
+public class OrderOutbox {
+
+    private final OrderEventRepository orderEventRepository;
+
+    private final ReactiveOrderEventRepository reactiveOrderEventRepository;
+
+    private final int partitions;
+
+    /**
+     * @param reactiveOrderEventRepository null unless the reactive adapter appends events
+     */
+    public OrderOutbox(OrderEventRepository orderEventRepository,
+                       ReactiveOrderEventRepository reactiveOrderEventRepository, int partitions) {
+        this.orderEventRepository = orderEventRepository;
+        this.reactiveOrderEventRepository = reactiveOrderEventRepository;
+        this.partitions = Math.max(0, partitions);
+    }
+
+    public static OrderOutbox none() {
+        return new OrderOutbox(null, null, 0);
+    }
+
+    public void append(OrderEvent event) {
+        append(List.of(event));
+    }
+
+    public void append(List<OrderEvent> events) {
+        if (partitions > 0) {
+            orderEventRepository.append(events, partitions);
+        }
+    }
+
+    /**
+     * Appends in the reactive transaction of the change
+     *
+     * @throws IllegalStateException when the outbox has partitions but no reactive repository
+     */
+    public Mono<Void> appendReactively(List<OrderEvent> events) {
+        if (partitions == 0) {
+            return Mono.empty();
+        }
+        if (reactiveOrderEventRepository == null) {
+            return Mono.error(new IllegalStateException("The order outbox has no reactive repository"));
+        }
+        return reactiveOrderEventRepository.append(events, partitions);
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+}
@@ -0,0 +1,91 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes the orders removed by {@link OrderService#removeOrder} for good, see {@link OrderRepository#purgeRemoved(int)}.
+ * A run purges batches of batchSize orders, each in a short transaction of its own, until no removed order is left.
+ * Batches are paced so that a run deletes at most maxOrdersPerSecond orders per second, a backlog of removals
+ * is worked off gradually instead of loading the database, and its replicas, with one long burst of deletes.
+ */
+@Slf4j
+public class OrderPurger {
+
+    private final OrderRepository orderRepository;
+
+    private final TransactionRunner transactions;
+
+    private final OrderMetrics metrics;
+
+    private final int batchSize;
+
+    private final double maxOrdersPerSecond;
+
+    private final AtomicLong purged = new AtomicLong();
+
+    /**
+     * @param maxOrdersPerSecond 0 or less for no limit
+     */
+    public OrderPurger(OrderRepository orderRepository, TransactionRunner transactions, OrderMetrics metrics,
+                       int batchSize, double maxOrdersPerSecond) {
+        this.orderRepository = orderRepository;
+        this.transactions = transactions;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxOrdersPerSecond = maxOrdersPerSecond;
+    }
+
+    /**
+     * Stops early, keeping the remaining orders for the next run, when the thread is interrupted
+     *
+     * @return number of orders deleted by this run
+     */
+    public long purge() {
+        long start = System.nanoTime();
+        long deleted = 0;
+        int batch;
+        do {
+            batch = metrics.record("purgeRemovedOrders", () ->
+                    transactions.execute(attempt -> orderRepository.purgeRemoved(batchSize)));
+            deleted += batch;
+            purged.addAndGet(batch);
+        } while (batch == batchSize && pace(start, deleted));
+        if (deleted > 0) {
+            log.info("Purged {} removed orders in {} ms", deleted,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return deleted;
+    }
+
+    /**
+     * Waits until deleting the orders deleted so far took as long as the rate limit requires
+     *
+     * @return false when interrupted
+     */
+    private boolean pace(long start, long deleted) {
+        if (maxOrdersPerSecond <= 0) {
+            return true;
+        }
+        long wait = start + (long) (deleted * TimeUnit.SECONDS.toNanos(1) / maxOrdersPerSecond) - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders deleted since the purger was created
+     */
+    public long getPurged() {
+        return purged.get();
+    }
+}
@@ -1,53 +1,314 @@
 package com.company.ordersservice.application;
 
+import com.company.ordersservice.domain.FetchPlan;
 import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderEvent;
 import com.company.ordersservice.domain.OrderRepository;
 import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ProductLookup;
+import com.company.ordersservice.domain.ProductRepository;
+import com.company.ordersservice.domain.port.IngestionReport;
 import com.company.ordersservice.domain.port.OrderPort;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import com.company.ordersservice.domain.port.OrderSpec;
+import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
- * OrderService by implementing "Port" becomes an "Adapter" in hexagonal architecture design
+ * OrderService by implementing "Port" becomes an "Adapter" in hexagonal architecture design.
+ *
+ * Transactions are demarcated by {@link TransactionRunner}, whose {@link ConcurrencyMode} decides the isolation level.
+ * When a mutation is retried after an optimistic lock conflict it is applied to a freshly loaded copy of the order,
+ * the instance passed by the caller is then stale and should be loaded again.
+ * Every operation is timed and its JDBC statements counted by {@link OrderMetrics}.
+ *
+ * In {@link ConcurrencyMode#ATOMIC} mode products added to a stored order are written as atomic quantity increments,
+ * the instance passed by the caller is left unchanged and has to be loaded again to see them.
+ * Mutations of the same order can additionally be serialized within this JVM by {@link OrderLocks},
+ * they are then applied to a copy of the order loaded under the lock.
+ *
+ * Every mutation appends its events to the {@link OrderOutbox} in its own transaction, a change is published
+ * if and only if it commits.
+ *
+ * Mutated orders are reported to {@link ReadYourWrites}, so that checking them out shortly afterwards reads
+ * from the primary database even when read-only transactions are otherwise routed to replicas.
  */
-@Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.SERIALIZABLE)
+@Slf4j
 public class OrderService implements OrderPort {
 
     private final OrderRepository orderRepository;
 
-    public OrderService(OrderRepository orderRepository) {
+    private final ProductRepository productRepository;
+
+    private final TransactionRunner transactions;
+
+    private final OrderMetrics metrics;
+
+    private final OrderLocks locks;
+
+    private final ReadYourWrites readYourWrites;
+
+    private final OrderOutbox outbox;
+
+    private final int ingestionChunkSize;
+
+    public OrderService(OrderRepository orderRepository, ProductRepository productRepository,
+                        TransactionRunner transactions, OrderMetrics metrics, OrderLocks locks,
+                        ReadYourWrites readYourWrites, OrderOutbox outbox, int ingestionChunkSize) {
+        if (ingestionChunkSize < 1) {
+            throw new IllegalArgumentException("Ingestion chunk size must be positive, was " + ingestionChunkSize);
+        }
         this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.transactions = transactions;
+        this.metrics = metrics;
+        this.locks = locks;
+        this.readYourWrites = readYourWrites;
+        this.outbox = outbox;
+        this.ingestionChunkSize = ingestionChunkSize;
     }
 
     @Override
     public Order createOrder() {
-        return orderRepository.store(new Order(null, new ArrayList<>()));
+        return metrics.record("createOrder", () -> {
+            Order order = transactions.execute(attempt -> {
+                Order created = orderRepository.store(new Order(null, new ArrayList<>()));
+                outbox.append(OrderEvent.created(created.getId()));
+                return created;
+            });
+            readYourWrites.written(order.getId());
+            return order;
+        });
     }
 
+    /**
+     * The order is only marked removed, which takes a single statement whatever the number of lines,
+     * it is deleted later by {@link OrderPurger}. The version checked is that of the caller's instance on the first
+     * attempt only, like other mutations a retry removes the order as reloaded, see {@link #target(Order, int)}.
+     */
     @Override
     public void removeOrder(Order order) {
-        orderRepository.remove(order);
+        metrics.record("removeOrder", () -> locks.withLock(order, () ->
+                transactions.run(attempt -> {
+                    orderRepository.remove(target(order, attempt));
+                    if (order.getId() != null) {
+                        outbox.append(OrderEvent.removed(order.getId()));
+                    }
+                })));
+        readYourWrites.written(order.getId());
     }
 
     @Override
     public void  addProduct(Order order, Product product) {
-        order.addProduct(product);
-        orderRepository.store(order);
+        metrics.record("addProduct", () -> locks.withLock(order, () -> {
+            if (addsAtomically(order)) {
+                transactions.run(attempt -> {
+                    orderRepository.addQuantities(order.getId(), Map.of(product.getId(), 1));
+                    outbox.append(OrderEvent.productAdded(order.getId(), product.getId(), 1));
+                });
+                return;
+            }
+            transactions.run(attempt -> {
+                Order target = target(order, attempt);
+                target.addProduct(product);
+                Long orderId = storeChanges(target);
+                outbox.append(OrderEvent.productAdded(orderId, product.getId(), 1));
+                metrics.recordLines(target);
+            });
+        }));
+        readYourWrites.written(order.getId());
     }
 
     @Override
     public void addProducts(Order order, Collection<Product> product) {
-        order.addProducts(product);
-        orderRepository.store(order);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        product.forEach(added -> quantities.merge(added.getId(), 1, Integer::sum));
+        metrics.record("addProducts", () -> locks.withLock(order, () -> {
+            if (addsAtomically(order)) {
+                transactions.run(attempt -> {
+                    orderRepository.addQuantities(order.getId(), quantities);
+                    outbox.append(added(order.getId(), quantities));
+                });
+                return;
+            }
+            transactions.run(attempt -> {
+                Order target = target(order, attempt);
+                target.addProducts(product);
+                Long orderId = storeChanges(target);
+                outbox.append(added(orderId, quantities));
+                metrics.recordLines(target);
+            });
+        }));
+        readYourWrites.written(order.getId());
+    }
+
+    @Override
+    public void addProductsById(Order order, Map<Long, Integer> quantities) {
+        requirePositive(quantities);
+        metrics.record("addProductsById", () -> locks.withLock(order, () -> transactions.run(attempt -> {
+            ProductLookup products = productRepository.findAll(quantities.keySet()).requireComplete();
+            if (addsAtomically(order)) {
+                orderRepository.addQuantities(order.getId(), quantities);
+                outbox.append(added(order.getId(), quantities));
+                return;
+            }
+            Order target = target(order, attempt);
+            quantities.forEach((productId, quantity) -> target.addProduct(products.get(productId), quantity));
+            Long orderId = storeChanges(target);
+            outbox.append(added(orderId, quantities));
+            metrics.recordLines(target);
+        })));
+        readYourWrites.written(order.getId());
     }
 
     @Override
     public void removeOrderLine(Order order, Long lineId) {
-        order.removeOrderLine(lineId);
-        orderRepository.store(order);
+        metrics.record("removeOrderLine", () -> locks.withLock(order, () -> transactions.run(attempt -> {
+            Order target = target(order, attempt);
+            target.removeOrderLine(lineId);
+            Long orderId = storeChanges(target);
+            outbox.append(OrderEvent.lineRemoved(orderId, lineId));
+            metrics.recordLines(target);
+        })));
+        readYourWrites.written(order.getId());
+    }
+
+    /**
+     * Changes are written by every operation, nothing is pending: returns the order as stored.
+     * Read from the primary database when the order was mutated during the read-your-writes window.
+     */
+    @Override
+    public Order checkout(Order order) {
+        return metrics.record("checkout", () -> readYourWrites.reading(order.getId(), () ->
+                orderRepository.find(order.getId(), FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow(() ->
+                        new IllegalStateException("Order with id " + order.getId() + " no longer exists"))));
+    }
+
+    /**
+     * Quantities below 1 would be written as empty or negative lines, they are rejected before anything is read
+     */
+    static void requirePositive(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            if (quantity == null || quantity < 1) {
+                throw new IllegalArgumentException("Quantity of product " + productId + " must be positive, was "
+                        + quantity);
+            }
+        });
+    }
+
+    /**
+     * An order not stored yet is created by storing its changes, which is published before the changes
+     */
+    private Long storeChanges(Order order) {
+        boolean created = order.getId() == null;
+        Long orderId = orderRepository.storeChanges(order).getId();
+        if (created) {
+            outbox.append(OrderEvent.created(orderId));
+        }
+        return orderId;
+    }
+
+    private static List<OrderEvent> added(Long orderId, Map<Long, Integer> quantities) {
+        List<OrderEvent> events = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> events.add(OrderEvent.productAdded(orderId, productId, quantity)));
+        return events;
+    }
+
+    /**
+     * Orders not stored yet have no row to add to, they take the regular path
+     */
+    private boolean addsAtomically(Order order) {
+        return transactions.getMode() == ConcurrencyMode.ATOMIC && order.getId() != null;
+    }
+
+    /**
+     * The caller's instance on the first attempt, unless mutations are serialized by locks: the read-modify-write
+     * then happens on a copy loaded while holding the lock, which cannot conflict with other holders of it
+     */
+    private Order target(Order order, int attempt) {
+        return attempt == 1 && !locks.isEnabled() ? order : reload(order);
+    }
+
+    private Order reload(Order order) {
+        if (order.getId() == null) {
+            return order;
+        }
+        return orderRepository.find(order.getId())
+                .orElseThrow(() -> new IllegalStateException("Order with id " + order.getId() + " no longer exists"));
+    }
+
+    /**
+     * Runs in a single transaction. The persistence context is cleared after every chunk,
+     * so entities managed by the caller's transaction become detached.
+     */
+    @Override
+    public IngestionReport ingestOrders(Iterator<OrderSpec> specs) {
+        return metrics.record("ingestOrders", () -> transactions.executeOnce(attempt -> ingest(specs)));
+    }
+
+    @Override
+    public IngestionReport ingestOrders(Stream<OrderSpec> specs) {
+        try (specs) {
+            return ingestOrders(specs.iterator());
+        }
+    }
+
+    private IngestionReport ingest(Iterator<OrderSpec> specs) {
+        List<IngestionReport.Chunk> chunks = new ArrayList<>();
+        List<OrderSpec> chunk = new ArrayList<>(ingestionChunkSize);
+        while (specs.hasNext()) {
+            chunk.add(specs.next());
+            if (chunk.size() == ingestionChunkSize) {
+                chunks.add(ingestChunk(chunks.size(), chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(ingestChunk(chunks.size(), chunk));
+        }
+        return new IngestionReport(chunks);
+    }
+
+    private IngestionReport.Chunk ingestChunk(int index, List<OrderSpec> specs) {
+        long start = System.nanoTime();
+        Set<Long> productIds = new HashSet<>();
+        for (OrderSpec spec : specs) {
+            productIds.addAll(spec.quantities().keySet());
+        }
+        ProductLookup products = productRepository.findAll(productIds).requireComplete();
+
+        List<Order> orders = new ArrayList<>(specs.size());
+        int lines = 0;
+        for (OrderSpec spec : specs) {
+            Order order = new Order(null, new ArrayList<>());
+            spec.quantities().forEach((productId, quantity) -> order.addProduct(products.get(productId), quantity));
+            lines += order.getLines().size();
+            metrics.recordLines(order);
+            orders.add(order);
+        }
+        List<Order> stored = orderRepository.storeAll(orders);
+        List<OrderEvent> events = new ArrayList<>(orders.size() + lines);
+        for (Order order : stored) {
+            events.add(OrderEvent.created(order.getId()));
+            order.getLines().forEach(line -> events.add(OrderEvent.productAdded(order.getId(),
+                    line.getProduct().getId(), line.getQuantity())));
+        }
+        outbox.append(events);
+        orderRepository.flushAndClear();
+
+        IngestionReport.Chunk report = new IngestionReport.Chunk(index, orders.size(), lines,
+                Duration.ofNanos(System.nanoTime() - start));
+        log.info("Ingested chunk {}: {} orders, {} lines in {} ms ({} orders/s)", index, report.orders(),
+                report.lines(), report.elapsed().toMillis(), Math.round(report.ordersPerSecond()));
+        return report;
     }
 }
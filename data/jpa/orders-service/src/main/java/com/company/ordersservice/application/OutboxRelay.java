@@ -0,0 +1,121 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.OrderEvent;
+import com.company.ordersservice.domain.OrderEventRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the events appended by {@link OrderOutbox} to an {@link OrderEventSink} and deletes them.
+ * A run relays every partition in parallel, each on a virtual thread of its own, batches of batchSize events at a time.
+ * A batch is claimed, published and deleted in one short transaction holding the lock of its partition:
+ * other instances skip the partition meanwhile instead of waiting, so the events of an order are published
+ * once and in order, by one relay at a time. Events published by a transaction that then fails to commit
+ * are published again by the next batch.
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private final OrderEventRepository orderEventRepository;
+
+    private final TransactionRunner transactions;
+
+    private final OrderEventSink sink;
+
+    private final int partitions;
+
+    private final int batchSize;
+
+    private final AtomicLong published = new AtomicLong();
+
+    public OutboxRelay(OrderEventRepository orderEventRepository, TransactionRunner transactions, OrderEventSink sink,
+                       int partitions, int batchSize) {
+        this.orderEventRepository = orderEventRepository;
+        this.transactions = transactions;
+        this.sink = sink;
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Creates the partitions missing from the database, called once before the first run
+     */
+    public void start() {
+        transactions.run(attempt -> orderEventRepository.createPartitions(partitions));
+    }
+
+    /**
+     * Relays until every partition is empty, or skipped because another relay holds it
+     *
+     * @return number of events published by this run
+     */
+    public long relay() {
+        long start = System.nanoTime();
+        long relayed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> runs = new ArrayList<>(partitions);
+            for (int partition = 0; partition < partitions; partition++) {
+                int current = partition;
+                runs.add(executor.submit(() -> relay(current)));
+            }
+            for (Future<Long> run : runs) {
+                relayed += run.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Relaying order events failed, they are relayed again by the next run", e.getCause());
+        }
+        if (relayed > 0) {
+            long elapsed = System.nanoTime() - start;
+            log.info("Relayed {} order events in {} ms ({} events/s)", relayed,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(relayed * 1e9 / elapsed));
+        }
+        return relayed;
+    }
+
+    private long relay(int partition) {
+        long relayed = 0;
+        int batch;
+        do {
+            batch = transactions.execute(attempt -> {
+                List<OrderEvent> events = orderEventRepository.claim(partition, batchSize);
+                if (!events.isEmpty()) {
+                    sink.publish(events);
+                    orderEventRepository.delete(events);
+                }
+                return events.size();
+            });
+            relayed += batch;
+            published.addAndGet(batch);
+        } while (batch == batchSize);
+        return relayed;
+    }
+
+    /**
+     * How long the first event appended and not published yet has been waiting, zero when the outbox is empty
+     */
+    public Duration lag() {
+        return orderEventRepository.oldestPending()
+                .map(oldest -> Duration.between(oldest, Instant.now()))
+                .filter(lag -> !lag.isNegative())
+                .orElse(Duration.ZERO);
+    }
+
+    /**
+     * Events published by committed batches since the relay was created
+     */
+    public long getPublished() {
+        return published.get();
+    }
+}
@@ -0,0 +1,205 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderEvent;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ProductLookup;
+import com.company.ordersservice.domain.ReactiveOrderRepository;
+import com.company.ordersservice.domain.ReactiveProductRepository;
+import com.company.ordersservice.domain.port.ReactiveOrderPort;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Reactive adapter of the order port, the counterpart of {@link OrderService} on a non-blocking driver.
+ *
+ * Every mutation runs in a transaction of the {@link TransactionalOperator}, whose isolation is that of the
+ * configured {@link ConcurrencyMode}, and is retried like {@link TransactionRunner} does when it fails on
+ * a concurrency conflict. A retried mutation is applied to a freshly loaded copy of the order, in
+ * {@link ConcurrencyMode#ATOMIC} mode products are added with atomic quantity increments, in both cases the instance
+ * passed by the caller is then stale. Events are appended to the {@link OrderOutbox} in the transaction
+ * of the change, like the blocking adapter does.
+ *
+ * In-JVM order locks, read-your-writes routing and the operation metrics of {@link OrderMetrics} are specific
+ * to the blocking adapter and not applied here.
+ */
+public class ReactiveOrderService implements ReactiveOrderPort {
+
+    private final ReactiveOrderRepository orderRepository;
+
+    private final ReactiveProductRepository productRepository;
+
+    private final OrderOutbox outbox;
+
+    private final TransactionalOperator transactions;
+
+    private final ConcurrencyMode mode;
+
+    private final Retry retry;
+
+    public ReactiveOrderService(ReactiveOrderRepository orderRepository, ReactiveProductRepository productRepository,
+                                OrderOutbox outbox, TransactionalOperator transactions, ConcurrencyMode mode,
+                                int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.outbox = outbox;
+        this.transactions = transactions;
+        this.mode = mode;
+        this.retry = Retry.backoff(Math.max(0, maxAttempts - 1), initialBackoff)
+                .maxBackoff(maxBackoff)
+                .filter(ConcurrencyFailureException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    @Override
+    public Mono<Order> createOrder() {
+        return execute(attempt -> orderRepository.store(new Order(null, new ArrayList<>()))
+                .flatMap(order -> append(List.of(OrderEvent.created(order.getId()))).thenReturn(order)));
+    }
+
+    /**
+     * Marks the order removed, see {@link com.company.ordersservice.domain.OrderRepository#remove(Order)}.
+     * A retry removes the order as reloaded, the caller's instance failed the version check.
+     */
+    @Override
+    public Mono<Void> removeOrder(Order order) {
+        return execute(attempt -> target(order, attempt).flatMap(orderRepository::remove)
+                .then(order.getId() == null ? Mono.<Void>empty() : append(List.of(OrderEvent.removed(order.getId())))));
+    }
+
+    @Override
+    public Mono<Void> addProduct(Order order, Product product) {
+        return add(order, Map.of(product.getId(), 1), target -> target.addProduct(product));
+    }
+
+    @Override
+    public Mono<Void> addProducts(Order order, Collection<Product> products) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        products.forEach(added -> quantities.merge(added.getId(), 1, Integer::sum));
+        return add(order, quantities, target -> target.addProducts(products));
+    }
+
+    @Override
+    public Mono<Void> addProductsById(Order order, Map<Long, Integer> quantities) {
+        return Mono.fromRunnable(() -> OrderService.requirePositive(quantities))
+                .then(execute(attempt -> productRepository.findAll(quantities.keySet())
+                        .map(ProductLookup::requireComplete)
+                        .flatMap(products -> {
+                            if (addsAtomically(order)) {
+                                return addQuantities(order.getId(), quantities);
+                            }
+                            return change(order, attempt, target -> quantities.forEach((productId, quantity) ->
+                                    target.addProduct(products.get(productId), quantity)),
+                                    stored -> added(stored, quantities));
+                        })));
+    }
+
+    @Override
+    public Mono<Void> removeOrderLine(Order order, Long lineId) {
+        return execute(attempt -> change(order, attempt, target -> target.removeOrderLine(lineId),
+                stored -> List.of(OrderEvent.lineRemoved(stored.getId(), lineId))));
+    }
+
+    /**
+     * The order and its lines are read in one transaction, so they are consistent with each other
+     */
+    @Override
+    public Mono<Order> checkout(Order order) {
+        return transactions.transactional(orderRepository.find(order.getId())
+                .switchIfEmpty(Mono.error(() ->
+                        new IllegalStateException("Order with id " + order.getId() + " no longer exists"))));
+    }
+
+    private Mono<Void> add(Order order, Map<Long, Integer> quantities, Consumer<Order> addition) {
+        if (addsAtomically(order)) {
+            return execute(attempt -> addQuantities(order.getId(), quantities));
+        }
+        return execute(attempt -> change(order, attempt, addition, stored -> added(stored, quantities)));
+    }
+
+    private Mono<Void> addQuantities(Long orderId, Map<Long, Integer> quantities) {
+        return orderRepository.addQuantities(orderId, quantities)
+                .then(append(added(orderId, quantities)));
+    }
+
+    /**
+     * Applies the change to the order as loaded for the attempt, stores what changed and appends the events
+     * of the stored order, preceded by its creation when storing the changes created it
+     */
+    private Mono<Void> change(Order order, int attempt, Consumer<Order> change,
+                              Function<Order, List<OrderEvent>> events) {
+        return target(order, attempt).flatMap(target -> {
+            boolean created = target.getId() == null;
+            change.accept(target);
+            return orderRepository.storeChanges(target).flatMap(stored -> {
+                List<OrderEvent> changed = events.apply(stored);
+                if (!created) {
+                    return append(changed);
+                }
+                List<OrderEvent> appended = new ArrayList<>(changed.size() + 1);
+                appended.add(OrderEvent.created(stored.getId()));
+                appended.addAll(changed);
+                return append(appended);
+            });
+        });
+    }
+
+    private static List<OrderEvent> added(Order order, Map<Long, Integer> quantities) {
+        return added(order.getId(), quantities);
+    }
+
+    private static List<OrderEvent> added(Long orderId, Map<Long, Integer> quantities) {
+        List<OrderEvent> events = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> events.add(OrderEvent.productAdded(orderId, productId, quantity)));
+        return events;
+    }
+
+    private Mono<Void> append(List<OrderEvent> events) {
+        return outbox.appendReactively(events);
+    }
+
+    /**
+     * Orders not stored yet have no row to add to, they take the regular path
+     */
+    private boolean addsAtomically(Order order) {
+        return mode == ConcurrencyMode.ATOMIC && order.getId() != null;
+    }
+
+    /**
+     * The caller's instance on the first attempt, a copy loaded in the transaction of the attempt afterwards
+     */
+    private Mono<Order> target(Order order, int attempt) {
+        if (attempt == 1 || order.getId() == null) {
+            return Mono.just(order);
+        }
+        return orderRepository.find(order.getId())
+                .switchIfEmpty(Mono.error(() ->
+                        new IllegalStateException("Order with id " + order.getId() + " no longer exists")));
+    }
+
+    /**
+     * Every attempt runs the work in a transaction of its own
+     *
+     * @param work receives the number of the attempt, starting with 1
+     */
+    private <T> Mono<T> execute(IntFunction<Mono<T>> work) {
+        return Mono.defer(() -> {
+            AtomicInteger attempts = new AtomicInteger();
+            return Mono.defer(() -> transactions.transactional(work.apply(attempts.incrementAndGet())))
+                    .retryWhen(retry);
+        });
+    }
+}
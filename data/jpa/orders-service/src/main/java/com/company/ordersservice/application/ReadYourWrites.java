@@ -0,0 +1,69 @@
+package com.company.ordersservice.application;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the orders mutated during the last window, so that reads of such an order go to the primary database
+ * rather than to a replica that may not have received the mutation yet. The window should exceed the replication
+ * lag tolerated for replica reads. Reads of other orders are not affected; with an empty window nothing is remembered.
+ *
+ * The order being read is kept per thread by {@link #reading(Long, Supplier)} for the data source to consult
+ * through {@link #requiresPrimary()} when a read-only transaction asks for a connection.
+ */
+public class ReadYourWrites {
+
+    private final Cache<Long, Boolean> written;
+
+    private final ThreadLocal<Long> readOrderId = new ThreadLocal<>();
+
+    public ReadYourWrites(Duration window) {
+        this(window, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker time source the window is measured with
+     */
+    public ReadYourWrites(Duration window, Ticker ticker) {
+        this.written = window.isZero() || window.isNegative() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .ticker(ticker)
+                .build();
+    }
+
+    public static ReadYourWrites none() {
+        return new ReadYourWrites(Duration.ZERO);
+    }
+
+    public void written(Long orderId) {
+        if (written != null && orderId != null) {
+            written.put(orderId, Boolean.TRUE);
+        }
+    }
+
+    public <T> T reading(Long orderId, Supplier<T> read) {
+        Long previous = readOrderId.get();
+        readOrderId.set(orderId);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                readOrderId.remove();
+            } else {
+                readOrderId.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Whether the order read by the current thread was mutated during the window
+     */
+    public boolean requiresPrimary() {
+        Long orderId = readOrderId.get();
+        return written != null && orderId != null && written.getIfPresent(orderId) != null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.company.ordersservice.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Runs units of work in a transaction with the isolation of the configured {@link ConcurrencyMode}.
+ * Work failing on a concurrency conflict, an optimistic lock failure, a lock timeout or a deadlock,
+ * is retried in a new transaction with exponential backoff,
+ * unless it joined a transaction started by the caller, which cannot be retried.
+ */
+@Slf4j
+public class TransactionRunner {
+
+    private final TransactionTemplate template;
+
+    private final ConcurrencyMode mode;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final AtomicLong transactions = new AtomicLong();
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    public TransactionRunner(PlatformTransactionManager transactionManager, ConcurrencyMode mode, int maxAttempts,
+                             Duration initialBackoff, Duration maxBackoff) {
+        this.template = new TransactionTemplate(transactionManager);
+        this.template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+        this.template.setIsolationLevel(mode.getIsolation().value());
+        this.mode = mode;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * @param work receives the number of the attempt, starting with 1
+     */
+    public <T> T execute(IntFunction<T> work) {
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : maxAttempts;
+        for (int attempt = 1; ; attempt++) {
+            int current = attempt;
+            transactions.incrementAndGet();
+            try {
+                return template.execute(status -> work.apply(current));
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= attempts) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+                retries.incrementAndGet();
+                log.debug("Concurrency conflict on attempt {}, retrying", attempt, e);
+                backoff(attempt, e);
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @param work receives the number of the attempt, starting with 1
+     */
+    public void run(IntConsumer work) {
+        execute(attempt -> {
+            work.accept(attempt);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the work exactly once, for work that cannot be repeated such as consuming an iterator
+     */
+    public <T> T executeOnce(IntFunction<T> work) {
+        transactions.incrementAndGet();
+        try {
+            return template.execute(status -> work.apply(1));
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void backoff(int attempt, RuntimeException cause) {
+        long ceiling = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 30));
+        long nanos = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.incrementAndGet();
+            throw cause;
+        }
+    }
+
+    public ConcurrencyMode getMode() {
+        return mode;
+    }
+
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -1,19 +1,78 @@
 package com.company.ordersservice.configuration;
 
+import com.company.ordersservice.application.OrderExporter;
+import com.company.ordersservice.application.OrderLocks;
+import com.company.ordersservice.application.OrderMetrics;
+import com.company.ordersservice.application.OrderOutbox;
 import com.company.ordersservice.application.OrderService;
+import com.company.ordersservice.application.ReadYourWrites;
+import com.company.ordersservice.application.TransactionRunner;
+import com.company.ordersservice.domain.OrderEventRepository;
 import com.company.ordersservice.domain.OrderRepository;
+import com.company.ordersservice.domain.ProductRepository;
+import com.company.ordersservice.domain.ReactiveOrderEventRepository;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @Configuration
 @EnableJpaRepositories(basePackages = "com.company.ordersservice.infrastructure.jpa")
 @EnableTransactionManagement
+@EnableConfigurationProperties(OrdersProperties.class)
+@Import({DataSourceConfiguration.class, SecondLevelCacheConfiguration.class, MetricsConfiguration.class,
+        ExecutionConfiguration.class, CartBufferConfiguration.class, ReplicaConfiguration.class,
+        PurgeConfiguration.class, OutboxConfiguration.class, ReactiveConfiguration.class})
 public class ApplicationConfiguration {
 
     @Bean
-    OrderService orderService(OrderRepository orderRepository) {
-        return new OrderService(orderRepository);
+    TransactionRunner transactionRunner(PlatformTransactionManager transactionManager, OrdersProperties properties) {
+        OrdersProperties.Transaction transaction = properties.getTransaction();
+        return new TransactionRunner(transactionManager, transaction.getMode(), transaction.getMaxAttempts(),
+                transaction.getInitialBackoff(), transaction.getMaxBackoff());
+    }
+
+    /**
+     * Only needed when reads can go to replicas. The window is measured with the system ticker unless
+     * the context defines one.
+     */
+    @Bean
+    ReadYourWrites readYourWrites(OrdersProperties properties, ObjectProvider<Ticker> ticker) {
+        OrdersProperties.Datasource datasource = properties.getDatasource();
+        return datasource.getReplicas().isEmpty() ? ReadYourWrites.none()
+                : new ReadYourWrites(datasource.getReadYourWritesWindow(), ticker.getIfAvailable(Ticker::systemTicker));
+    }
+
+    /**
+     * Nothing is appended when the outbox is disabled. The reactive repository is only defined by the reactive profile.
+     */
+    @Bean
+    OrderOutbox orderOutbox(OrderEventRepository orderEventRepository,
+                            ObjectProvider<ReactiveOrderEventRepository> reactiveOrderEventRepository,
+                            OrdersProperties properties) {
+        OrdersProperties.Outbox outbox = properties.getOutbox();
+        return outbox.isEnabled() ? new OrderOutbox(orderEventRepository, reactiveOrderEventRepository.getIfAvailable(),
+                outbox.getPartitions()) : OrderOutbox.none();
+    }
+
+    @Bean
+    OrderService orderService(OrderRepository orderRepository, ProductRepository productRepository,
+                              TransactionRunner transactionRunner, OrderMetrics orderMetrics,
+                              ReadYourWrites readYourWrites, OrderOutbox orderOutbox, OrdersProperties properties) {
+        orderMetrics.bind(transactionRunner);
+        OrderLocks locks = new OrderLocks(properties.getTransaction().getLockStripes());
+        return new OrderService(orderRepository, productRepository, transactionRunner, orderMetrics, locks,
+                readYourWrites, orderOutbox, properties.getIngestion().getChunkSize());
+    }
+
+    @Bean
+    OrderExporter orderExporter(OrderRepository orderRepository, OrderMetrics orderMetrics,
+                                OrdersProperties properties) {
+        return new OrderExporter(orderRepository, orderMetrics, properties.getExport().getPageSize());
     }
 }
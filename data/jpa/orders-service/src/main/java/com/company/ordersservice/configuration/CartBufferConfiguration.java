@@ -0,0 +1,46 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.application.BufferedOrderPort;
+import com.company.ordersservice.application.CartJournal;
+import com.company.ordersservice.application.OrderOutbox;
+import com.company.ordersservice.application.OrderService;
+import com.company.ordersservice.application.ReadYourWrites;
+import com.company.ordersservice.application.TransactionRunner;
+import com.company.ordersservice.domain.OrderRepository;
+import com.company.ordersservice.domain.ProductRepository;
+import com.company.ordersservice.infrastructure.journal.FileCartJournal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+@Configuration
+@ConditionalOnProperty("orders.cart-buffer.enabled")
+public class CartBufferConfiguration {
+
+    @Bean
+    CartJournal cartJournal(OrdersProperties properties) {
+        OrdersProperties.CartBuffer cartBuffer = properties.getCartBuffer();
+        return new FileCartJournal(cartBuffer.getJournal(), cartBuffer.isSyncJournal());
+    }
+
+    /**
+     * Replays the journal before it is used and flushes every buffered addition when the context closes
+     */
+    @Bean(initMethod = "replay")
+    BufferedOrderPort bufferedOrderPort(OrderService orderService, OrderRepository orderRepository,
+                                        ProductRepository productRepository, TransactionRunner transactionRunner,
+                                        CartJournal cartJournal, ReadYourWrites readYourWrites,
+                                        OrderOutbox orderOutbox, OrdersProperties properties) {
+        OrdersProperties.CartBuffer cartBuffer = properties.getCartBuffer();
+        return new BufferedOrderPort(orderService, orderRepository, productRepository, transactionRunner,
+                cartJournal, readYourWrites, orderOutbox, cartBuffer.getMaxPendingAdditions(),
+                cartBuffer.getMaxDelay());
+    }
+
+    @Bean
+    SchedulingConfigurer cartBufferFlushing(BufferedOrderPort bufferedOrderPort, OrdersProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(bufferedOrderPort::flushExpired,
+                properties.getCartBuffer().getFlushInterval());
+    }
+}
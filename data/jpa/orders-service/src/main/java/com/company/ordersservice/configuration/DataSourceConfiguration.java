@@ -0,0 +1,36 @@
+package com.company.ordersservice.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DataSourceConfiguration {
+
+    /**
+     * Once requests run on virtual threads there is no thread pool left to limit concurrency, the connection pool does:
+     * callers queue for a connection instead of a thread. The pool is sized for the database rather than for the load,
+     * twice the number of processors plus the number of spindles, and kept at a fixed size.
+     * Properties under spring.datasource.hikari are bound afterwards and take precedence.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource dataSource(DataSourceProperties dataSourceProperties, OrdersProperties properties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        int poolSize = poolSize(properties.getDatasource(), Runtime.getRuntime().availableProcessors());
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(poolSize);
+        return dataSource;
+    }
+
+    static int poolSize(OrdersProperties.Datasource datasource, int processors) {
+        if (datasource.getPoolSize() != null) {
+            return datasource.getPoolSize();
+        }
+        return processors * 2 + datasource.getSpindles();
+    }
+}
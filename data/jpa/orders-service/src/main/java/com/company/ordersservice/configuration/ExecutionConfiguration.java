@@ -0,0 +1,26 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.infrastructure.metrics.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * With spring.threads.virtual.enabled Spring Boot runs Tomcat requests, @Async methods and @Scheduled tasks
+ * on virtual threads, otherwise on its usual platform thread pools.
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class ExecutionConfiguration {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry meterRegistry, OrdersProperties properties) {
+        return new VirtualThreadPinningMonitor(meterRegistry, properties.getVirtualThreads().getPinnedThreshold());
+    }
+}
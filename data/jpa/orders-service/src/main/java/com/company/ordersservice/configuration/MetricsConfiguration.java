@@ -0,0 +1,24 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.application.OrderMetrics;
+import com.company.ordersservice.infrastructure.metrics.StatementCountingListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    OrderMetrics orderMetrics(MeterRegistry meterRegistry) {
+        return new OrderMetrics(meterRegistry, StatementCountingListener::currentThreadCount);
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                StatementCountingListener.class.getName());
+    }
+}
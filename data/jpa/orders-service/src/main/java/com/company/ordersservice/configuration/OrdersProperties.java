@@ -0,0 +1,242 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.application.ConcurrencyMode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "orders")
+public class OrdersProperties {
+
+    private Ingestion ingestion = new Ingestion();
+
+    private Transaction transaction = new Transaction();
+
+    private ProductCache productCache = new ProductCache();
+
+    private Datasource datasource = new Datasource();
+
+    private VirtualThreads virtualThreads = new VirtualThreads();
+
+    private CartBuffer cartBuffer = new CartBuffer();
+
+    private Export export = new Export();
+
+    private Purge purge = new Purge();
+
+    private Outbox outbox = new Outbox();
+
+    private Reactive reactive = new Reactive();
+
+    @Getter
+    @Setter
+    public static class Ingestion {
+        /**
+         * Number of orders persisted between two flushes of the persistence context, at least 1
+         */
+        private int chunkSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Transaction {
+        private ConcurrencyMode mode = ConcurrencyMode.SERIALIZABLE;
+
+        /**
+         * Attempts of a mutation failing on concurrency conflicts, including the first one
+         */
+        private int maxAttempts = 5;
+
+        private Duration initialBackoff = Duration.ofMillis(5);
+
+        private Duration maxBackoff = Duration.ofMillis(200);
+
+        /**
+         * Number of in-JVM locks serializing mutations of the same order, 0 disables them
+         */
+        private int lockStripes = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class ProductCache {
+        private long maximumSize = 10_000;
+
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Datasource {
+        /**
+         * Maximum number of connections, derived from the number of processors and spindles when not set
+         */
+        private Integer poolSize;
+
+        /**
+         * Disks the database can read from concurrently, added to twice the number of processors
+         */
+        private int spindles = 1;
+
+        /**
+         * Read replicas of the primary, read-only transactions are routed to them, see ReplicaConfiguration
+         */
+        private List<Replica> replicas = new ArrayList<>();
+
+        /**
+         * Replicas lagging further behind the primary are not read from
+         */
+        private Duration maxReplicaLag = Duration.ofSeconds(5);
+
+        private Duration replicaProbeInterval = Duration.ofSeconds(1);
+
+        /**
+         * Reads of an order mutated during this window go to the primary, should exceed maxReplicaLag
+         */
+        private Duration readYourWritesWindow = Duration.ofSeconds(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+
+        /**
+         * Those of the primary when not set
+         */
+        private String username;
+
+        private String password;
+    }
+
+    @Getter
+    @Setter
+    public static class VirtualThreads {
+        /**
+         * Virtual threads pinned to their carrier for longer than this are reported
+         */
+        private Duration pinnedThreshold = Duration.ofMillis(20);
+    }
+
+    @Getter
+    @Setter
+    public static class CartBuffer {
+        /**
+         * Buffers products added to stored orders in memory and a local journal, see BufferedOrderPort
+         */
+        private boolean enabled = false;
+
+        /**
+         * Buffered quantity of an order at which it is written
+         */
+        private int maxPendingAdditions = 20;
+
+        /**
+         * Longest time an addition stays buffered, checked every flush interval
+         */
+        private Duration maxDelay = Duration.ofSeconds(2);
+
+        private Duration flushInterval = Duration.ofMillis(500);
+
+        private Path journal = Path.of("data", "cart.journal");
+
+        /**
+         * Forces every journal append to disk before acknowledging it
+         */
+        private boolean syncJournal = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+        /**
+         * Orders read per query by OrderExporter, also used as JDBC fetch size
+         */
+        private int pageSize = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Purge {
+        /**
+         * Delay between the end of a purge of removed orders and the start of the next one
+         */
+        private Duration interval = Duration.ofMinutes(1);
+
+        /**
+         * Removed orders deleted per transaction
+         */
+        private int batchSize = 500;
+
+        /**
+         * Upper bound on the rate at which removed orders are deleted, 0 for none
+         */
+        private double maxOrdersPerSecond = 2000;
+    }
+
+    @Getter
+    @Setter
+    public static class Outbox {
+        /**
+         * Appends an event of every order change to the outbox table and relays them, see OutboxRelay
+         */
+        private boolean enabled = false;
+
+        /**
+         * Events are spread over this many partitions by order id, relayed in parallel. Changing it reorders
+         * the events of orders still in the outbox, it should only be changed once the outbox is empty.
+         */
+        private int partitions = 8;
+
+        /**
+         * Events published per transaction
+         */
+        private int batchSize = 500;
+
+        /**
+         * Delay between the end of a relay run and the start of the next one
+         */
+        private Duration interval = Duration.ofMillis(200);
+
+        /**
+         * File the events are published to, one JSON object per line, see FileOrderEventSink
+         */
+        private Path file = Path.of("data", "order-events.ndjson");
+
+        /**
+         * Forces every published batch to disk
+         */
+        private boolean syncFile = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Reactive {
+        /**
+         * R2DBC url of the database also used through JPA, e.g. r2dbc:mysql://localhost:3306/orders,
+         * read by the reactive adapter of the reactive profile
+         */
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * Maximum number of connections, which alone bounds the statements in flight: none holds a thread
+         */
+        private int poolSize = 10;
+
+        /**
+         * Time to wait for a free connection before failing
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,65 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.application.ConcurrencyMode;
+import com.company.ordersservice.application.OrderEventSink;
+import com.company.ordersservice.application.OutboxRelay;
+import com.company.ordersservice.application.TransactionRunner;
+import com.company.ordersservice.domain.OrderEventRepository;
+import com.company.ordersservice.infrastructure.outbox.FileOrderEventSink;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty("orders.outbox.enabled")
+public class OutboxConfiguration {
+
+    /**
+     * Events go to a local file unless the application defines a sink of its own, e.g. for a message broker
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(OrderEventSink.class)
+    FileOrderEventSink fileOrderEventSink(OrdersProperties properties) {
+        OrdersProperties.Outbox outbox = properties.getOutbox();
+        return new FileOrderEventSink(outbox.getFile(), outbox.isSyncFile());
+    }
+
+    /**
+     * The relay runs READ_COMMITTED whatever the concurrency mode of the service: partitions are claimed with row locks,
+     * and SERIALIZABLE reads of the outbox would lock out the transactions appending to it.
+     * Lag is the age of the oldest event not published yet, read from the outbox when scraped.
+     */
+    @Bean(initMethod = "start")
+    OutboxRelay outboxRelay(OrderEventRepository orderEventRepository, PlatformTransactionManager transactionManager,
+                            OrderEventSink orderEventSink, OrdersProperties properties, MeterRegistry meterRegistry) {
+        OrdersProperties.Outbox outbox = properties.getOutbox();
+        OrdersProperties.Transaction transaction = properties.getTransaction();
+        TransactionRunner transactions = new TransactionRunner(transactionManager, ConcurrencyMode.OPTIMISTIC,
+                transaction.getMaxAttempts(), transaction.getInitialBackoff(), transaction.getMaxBackoff());
+        OutboxRelay relay = new OutboxRelay(orderEventRepository, transactions, orderEventSink,
+                outbox.getPartitions(), outbox.getBatchSize());
+        FunctionCounter.builder("orders.outbox.published", relay, OutboxRelay::getPublished)
+                .description("Order events published from the outbox")
+                .register(meterRegistry);
+        TimeGauge.builder("orders.outbox.lag", relay, TimeUnit.MILLISECONDS, r -> r.lag().toMillis())
+                .description("Time the oldest order event not published yet has been waiting")
+                .register(meterRegistry);
+        return relay;
+    }
+
+    @Bean
+    SchedulingConfigurer outboxRelaying(OutboxRelay outboxRelay, OrdersProperties properties) {
+        Duration interval = properties.getOutbox().getInterval();
+        return registrar -> registrar.addFixedDelayTask(new FixedDelayTask(outboxRelay::relay, interval, interval));
+    }
+}
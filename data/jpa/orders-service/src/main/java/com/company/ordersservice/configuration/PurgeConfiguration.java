@@ -0,0 +1,32 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.application.OrderMetrics;
+import com.company.ordersservice.application.OrderPurger;
+import com.company.ordersservice.application.TransactionRunner;
+import com.company.ordersservice.domain.OrderRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+@Configuration
+public class PurgeConfiguration {
+
+    @Bean
+    OrderPurger orderPurger(OrderRepository orderRepository, TransactionRunner transactionRunner,
+                            OrderMetrics orderMetrics, OrdersProperties properties, MeterRegistry meterRegistry) {
+        OrdersProperties.Purge purge = properties.getPurge();
+        OrderPurger purger = new OrderPurger(orderRepository, transactionRunner, orderMetrics, purge.getBatchSize(),
+                purge.getMaxOrdersPerSecond());
+        FunctionCounter.builder("orders.purged", purger, OrderPurger::getPurged)
+                .description("Removed orders deleted with their lines")
+                .register(meterRegistry);
+        return purger;
+    }
+
+    @Bean
+    SchedulingConfigurer orderPurging(OrderPurger orderPurger, OrdersProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(orderPurger::purge, properties.getPurge().getInterval());
+    }
+}
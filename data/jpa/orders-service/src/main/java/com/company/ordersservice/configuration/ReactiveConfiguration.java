@@ -0,0 +1,103 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.application.OrderOutbox;
+import com.company.ordersservice.application.ReactiveOrderService;
+import com.company.ordersservice.domain.ReactiveOrderEventRepository;
+import com.company.ordersservice.domain.ReactiveOrderRepository;
+import com.company.ordersservice.domain.ReactiveProductRepository;
+import com.company.ordersservice.infrastructure.r2dbc.R2dbcDatabase;
+import com.company.ordersservice.infrastructure.r2dbc.R2dbcOrderEventRepository;
+import com.company.ordersservice.infrastructure.r2dbc.R2dbcOrderRepository;
+import com.company.ordersservice.infrastructure.r2dbc.R2dbcProductRepository;
+import com.company.ordersservice.infrastructure.r2dbc.R2dbcSequence;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Reactive adapter of the order port, next to the JPA one and on the same database, in the reactive profile.
+ * The connection pool is not a ConnectionFactory bean: Spring Boot would run its SQL scripts against it instead of
+ * the data source.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    /**
+     * allocationSize of the sequences of the entities
+     */
+    private static final int ID_BLOCK_SIZE = 50;
+
+    @Bean
+    R2dbcDatabase r2dbcDatabase(OrdersProperties properties) {
+        OrdersProperties.Reactive reactive = properties.getReactive();
+        if (reactive.getUrl() == null) {
+            throw new IllegalStateException("orders.reactive.url is required by the reactive profile");
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(reactive.getUrl()).mutate();
+        if (reactive.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, reactive.getUsername());
+        }
+        if (reactive.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, reactive.getPassword());
+        }
+        ConnectionFactory connectionFactory = ConnectionFactories.get(options.build());
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("reactive")
+                .maxSize(reactive.getPoolSize())
+                .initialSize(Math.min(reactive.getPoolSize(), 2))
+                .maxAcquireTime(reactive.getAcquireTimeout())
+                .build());
+        ConnectionPool sequencePool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("reactive-sequences")
+                .maxSize(2)
+                .initialSize(1)
+                .maxAcquireTime(reactive.getAcquireTimeout())
+                .build());
+        return new R2dbcDatabase(pool, sequencePool);
+    }
+
+    @Bean
+    ReactiveProductRepository reactiveProductRepository(R2dbcDatabase r2dbcDatabase) {
+        return new R2dbcProductRepository(r2dbcDatabase,
+                new R2dbcSequence(r2dbcDatabase, "products_seq", ID_BLOCK_SIZE));
+    }
+
+    @Bean
+    ReactiveOrderRepository reactiveOrderRepository(R2dbcDatabase r2dbcDatabase) {
+        return new R2dbcOrderRepository(r2dbcDatabase,
+                new R2dbcSequence(r2dbcDatabase, "orders_seq", ID_BLOCK_SIZE),
+                new R2dbcSequence(r2dbcDatabase, "order_lines_seq", ID_BLOCK_SIZE));
+    }
+
+    /**
+     * Appended to through the {@link OrderOutbox}, which knows whether the outbox is enabled and its partitions
+     */
+    @Bean
+    ReactiveOrderEventRepository reactiveOrderEventRepository(R2dbcDatabase r2dbcDatabase) {
+        return new R2dbcOrderEventRepository(r2dbcDatabase);
+    }
+
+    /**
+     * Transactions and retries follow orders.transaction, events go to the outbox when orders.outbox is enabled
+     */
+    @Bean
+    ReactiveOrderService reactiveOrderService(R2dbcDatabase r2dbcDatabase, ReactiveOrderRepository orderRepository,
+                                              ReactiveProductRepository productRepository, OrderOutbox orderOutbox,
+                                              OrdersProperties properties) {
+        OrdersProperties.Transaction transaction = properties.getTransaction();
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(transaction.getMode().getIsolation().value());
+        return new ReactiveOrderService(orderRepository, productRepository, orderOutbox,
+                TransactionalOperator.create(r2dbcDatabase.transactionManager(), definition),
+                transaction.getMode(), transaction.getMaxAttempts(), transaction.getInitialBackoff(),
+                transaction.getMaxBackoff());
+    }
+}
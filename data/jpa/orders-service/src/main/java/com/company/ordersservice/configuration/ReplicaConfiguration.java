@@ -0,0 +1,95 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.application.ReadYourWrites;
+import com.company.ordersservice.infrastructure.datasource.ReplicaRouter;
+import com.company.ordersservice.infrastructure.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes read-only transactions, such as order lookups, summaries and product reads outside of a mutation,
+ * to the replicas configured under orders.datasource.replicas, everything else to the primary.
+ * Replicas get a pool of their own, sized like the primary's.
+ */
+@Configuration
+@ConditionalOnProperty("orders.datasource.replicas[0].url")
+public class ReplicaConfiguration {
+
+    @Bean
+    ReplicaRouter replicaRouter(HikariDataSource dataSource, DataSourceProperties dataSourceProperties,
+                                OrdersProperties properties, MeterRegistry meterRegistry) {
+        OrdersProperties.Datasource datasource = properties.getDatasource();
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (OrdersProperties.Replica replica : datasource.getReplicas()) {
+            HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername() != null ? replica.getUsername() : dataSource.getUsername())
+                    .password(replica.getPassword() != null ? replica.getPassword() : dataSource.getPassword())
+                    .build();
+            pool.setPoolName("replica-" + replicas.size());
+            pool.setMaximumPoolSize(dataSource.getMaximumPoolSize());
+            pool.setMinimumIdle(dataSource.getMinimumIdle());
+            pool.setReadOnly(true);
+            replicas.add(pool);
+        }
+        ReplicaRouter router = new ReplicaRouter(dataSource, replicas, datasource.getMaxReplicaLag());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = i;
+            Gauge.builder("orders.datasource.replica.lag", router, r -> {
+                        ReplicaRouter.Status status = r.status().get(index);
+                        return status.healthy() ? status.lag().toMillis() / 1000.0 : Double.NaN;
+                    })
+                    .description("Lag of the replica behind the primary as of its last probe, NaN when unreachable")
+                    .baseUnit("seconds")
+                    .tag("replica", Integer.toString(index))
+                    .register(meterRegistry);
+        }
+        return router;
+    }
+
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource dataSource, ReplicaRouter replicaRouter,
+                                                      ReadYourWrites readYourWrites, MeterRegistry meterRegistry) {
+        ReplicaRoutingDataSource reads = new ReplicaRoutingDataSource(dataSource, replicaRouter,
+                readYourWrites::requiresPrimary);
+        FunctionCounter.builder("orders.datasource.read.connections", reads,
+                        ReplicaRoutingDataSource::getReplicaConnections)
+                .description("Connections handed out to read-only transactions")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.datasource.read.connections", reads,
+                        ReplicaRoutingDataSource::getPrimaryConnections)
+                .description("Connections handed out to read-only transactions")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        return reads;
+    }
+
+    /**
+     * The data source used by JPA and everything else injecting a DataSource
+     */
+    @Bean
+    @Primary
+    DataSource routingDataSource(HikariDataSource dataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return ReplicaRoutingDataSource.routing(dataSource, replicaRoutingDataSource);
+    }
+
+    @Bean
+    SchedulingConfigurer replicaProbing(ReplicaRouter replicaRouter, OrdersProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(replicaRouter::probe,
+                properties.getDatasource().getReplicaProbeInterval());
+    }
+}
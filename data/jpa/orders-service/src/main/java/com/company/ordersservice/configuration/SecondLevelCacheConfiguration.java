@@ -0,0 +1,27 @@
+package com.company.ordersservice.configuration;
+
+import com.company.ordersservice.infrastructure.cache.ProductCache;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SecondLevelCacheConfiguration {
+
+    @Bean
+    ProductCache productCache(OrdersProperties properties) {
+        OrdersProperties.ProductCache productCache = properties.getProductCache();
+        return new ProductCache(productCache.getMaximumSize(), productCache.getTimeToLive());
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer(ProductCache productCache) {
+        return hibernateProperties -> {
+            hibernateProperties.put("hibernate.cache.use_second_level_cache", true);
+            hibernateProperties.put("hibernate.cache.region.factory_class", "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, productCache.getCacheManager());
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package com.company.ordersservice.domain;
+
+/**
+ * Parts of the Order aggregate loaded together with the order itself
+ */
+public enum FetchPlan {
+
+    /**
+     * Lines and their products are loaded on first access, in batches
+     */
+    ORDER,
+
+    /**
+     * Products of the lines are loaded on first access, in batches. Only their ids can be read once the order is
+     * detached, pricing a detached order needs {@link #WITH_LINES_AND_PRODUCTS}.
+     */
+    WITH_LINES,
+
+    WITH_LINES_AND_PRODUCTS
+}
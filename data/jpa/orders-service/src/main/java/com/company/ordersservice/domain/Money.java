@@ -0,0 +1,48 @@
+package com.company.ordersservice.domain;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money kept as a long number of minor units (cents), so sums are exact and allocation free
+ */
+public record Money(long cents) implements Comparable<Money>, Serializable {
+
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Uses the shortest decimal representation of the double, 156.56 becomes exactly 15656 cents
+     */
+    public static Money of(double amount) {
+        return of(BigDecimal.valueOf(amount));
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(cents, other.cents));
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(cents, quantity));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
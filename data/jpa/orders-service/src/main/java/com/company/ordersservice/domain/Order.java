@@ -1,56 +1,300 @@
 package com.company.ordersservice.domain;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.time.Instant;
+import java.util.AbstractList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
-@AllArgsConstructor
+/**
+ * Removed orders are kept as tombstones until purged and are invisible to every load and query of the entity
+ */
 @NoArgsConstructor
 @Getter
 @Entity
 @Table(name = "orders")
+@SQLRestriction("removed_at is null")
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     /**
      * No usage of mappedBy property OneToMany relationship because relation is unidirectional.
      *
-     * @JoinColumn will add additional order_id colum on OrderLine side
+     * @JoinColumn will add additional order_id colum on OrderLine side.
+     * Declaring it not nullable and not updatable lets Hibernate write order_id in the (batched) INSERT
+     * of the line instead of issuing a separate UPDATE per line afterwards.
+     * Lines of up to 50 orders of the same persistence context are initialized with a single query.
+     * Exposed through {@link #getLines()}, see {@link LinesView}.
      */
     @OneToMany(orphanRemoval = true, cascade = CascadeType.ALL)
-    @JoinColumn(name = "order_id")
+    @BatchSize(size = 50)
+    @JoinColumn(name = "order_id", nullable = false, updatable = false)
+    @Getter(AccessLevel.NONE)
     private List<OrderLine> lines;
 
+    /**
+     * Incremented by Hibernate whenever the set of lines changes, used for optimistic concurrency control
+     */
+    @Version
+    private Long version;
+
+    /**
+     * Set by the single row update removing the order, its lines are only deleted when the order is purged
+     */
+    @Column(name = "removed_at")
+    private Instant removedAt;
+
+    /**
+     * Lines indexed by product id, built on first use and kept in sync by addProduct and removeOrderLine.
+     * Dropped, and rebuilt on next use, whenever the list is modified through {@link #getLines()}.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private Map<Long, OrderLine> linesByProductId;
+
+    /**
+     * Cached result of calculatePrice, updated by addProduct and dropped by removeOrderLine and by any modification
+     * of the list through {@link #getLines()}. Quantities of lines are only changed by addProduct.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private Money total;
+
+    /**
+     * Lines changed since the order was loaded or last stored, lets a detached order be written without a merge
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private OrderChanges changes = new OrderChanges();
+
+    public Order(Long id, List<OrderLine> lines) {
+        this.id = id;
+        this.lines = lines;
+    }
+
+    /**
+     * Stored state read by a repository that does not go through Hibernate
+     */
+    public Order(Long id, Long version, List<OrderLine> lines) {
+        this(id, lines);
+        this.version = version;
+    }
+
+    /**
+     * The lines of the order. Modifying the list directly is supported, the order then rebuilds what it derives
+     * from its lines.
+     */
+    public List<OrderLine> getLines() {
+        return lines == null ? null : new LinesView();
+    }
+
     public void addProduct(Product product) {
-        lines.stream()
-                .filter(orderLine -> orderLine.getProduct().getId().equals(product.getId()))
-                .findFirst()
-                .ifPresentOrElse(OrderLine::increaseQuantity, () -> {
-                    lines.add(new OrderLine(null, product, 1));
-                });
+        addProduct(product, 1);
+    }
+
+    public void addProduct(Product product, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be positive, was " + quantity);
+        }
+        Map<Long, OrderLine> index = linesByProductId();
+        OrderLine orderLine = index.get(product.getId());
+        if (orderLine != null) {
+            orderLine.increaseQuantity(quantity);
+            changes.quantityChanged(orderLine);
+        } else {
+            OrderLine added = changes.restoreRemoved(product.getId());
+            if (added == null) {
+                added = new OrderLine(null, product, quantity);
+                changes.lineAdded(added);
+            } else {
+                added.replaceQuantity(quantity);
+                changes.quantityChanged(added);
+            }
+            lines.add(added);
+            index.put(product.getId(), added);
+        }
+        if (total != null) {
+            total = total.plus(product.getPrice().times(quantity));
+        }
     }
 
+    /**
+     * Duplicates in products are added as a single quantity increase
+     */
     public void addProducts(Collection<Product> products) {
-        for (Product product : products){
-            addProduct(product);
+        Map<Long, Product> distinct = new LinkedHashMap<>();
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Product product : products) {
+            distinct.putIfAbsent(product.getId(), product);
+            quantities.merge(product.getId(), 1, Integer::sum);
+        }
+        for (Product product : distinct.values()) {
+            addProduct(product, quantities.get(product.getId()));
         }
     }
 
-    public Double calculatePrice() {
-        return lines.stream().map(OrderLine::getProduct).map(Product::getPrice).reduce(Double::sum).orElse(0.0);
+    /**
+     * Sum of product price times quantity over all lines
+     */
+    public Money calculatePrice() {
+        if (total == null) {
+            total = new Money(sumLines());
+        }
+        return total;
+    }
+
+    long sumLines() {
+        long cents = 0;
+        for (OrderLine orderLine : lines) {
+            cents = Math.addExact(cents,
+                    Math.multiplyExact(orderLine.getProduct().getPrice().cents(), orderLine.getQuantity()));
+        }
+        return cents;
     }
 
     public void removeOrderLine(Long lineId) {
-        lines.removeIf(orderLine -> orderLine.getId().equals(lineId));
+        Iterator<OrderLine> iterator = lines.iterator();
+        while (iterator.hasNext()) {
+            OrderLine orderLine = iterator.next();
+            if (lineId.equals(orderLine.getId())) {
+                iterator.remove();
+                changes.lineRemoved(orderLine);
+                total = null;
+                if (linesByProductId != null) {
+                    linesByProductId.remove(orderLine.getProduct().getId(), orderLine);
+                }
+            }
+        }
+    }
+
+    public OrderChanges pendingChanges() {
+        return changes;
+    }
+
+    /**
+     * Called once the pending changes were written by statements of their own rather than by Hibernate:
+     * assigns the ids of the inserted lines, in the order of {@link OrderChanges#getInserted()},
+     * and increments the versions the way the database did.
+     */
+    public void changesStored(List<Long> insertedLineIds) {
+        List<OrderLine> inserted = changes.getInserted();
+        if (insertedLineIds.size() != inserted.size()) {
+            throw new IllegalArgumentException("Expected " + inserted.size() + " line ids, got " + insertedLineIds.size());
+        }
+        for (int i = 0; i < inserted.size(); i++) {
+            inserted.get(i).stored(insertedLineIds.get(i));
+        }
+        changes.getUpdated().forEach(OrderLine::incrementVersion);
+        if (changes.isStructural()) {
+            version++;
+        }
+        changes.clear();
     }
 
+    /**
+     * Called once a new order was inserted by statements of its own rather than by Hibernate: assigns the id
+     * and initial version of the order, and the ids of its lines in the order of {@link #getLines()}
+     */
+    public void inserted(Long id, List<Long> lineIds) {
+        if (this.id != null) {
+            throw new IllegalStateException("Order with id " + this.id + " is already stored");
+        }
+        if (lineIds.size() != lines.size()) {
+            throw new IllegalArgumentException("Expected " + lines.size() + " line ids, got " + lineIds.size());
+        }
+        this.id = id;
+        this.version = 0L;
+        for (int i = 0; i < lines.size(); i++) {
+            lines.get(i).stored(lineIds.get(i));
+        }
+        changes.clear();
+    }
+
+    /**
+     * Called once Hibernate wrote the order, which keeps ids and versions of managed entities up to date itself
+     */
+    public void clearChanges() {
+        changes.clear();
+    }
+
+    private Map<Long, OrderLine> linesByProductId() {
+        if (linesByProductId == null) {
+            Map<Long, OrderLine> index = new HashMap<>(Math.max(16, lines.size() * 2));
+            for (OrderLine orderLine : lines) {
+                index.putIfAbsent(orderLine.getProduct().getId(), orderLine);
+            }
+            linesByProductId = index;
+        }
+        return linesByProductId;
+    }
+
+    private void linesModified() {
+        linesByProductId = null;
+        total = null;
+    }
+
+    /**
+     * Lines modified by a caller rather than by a method of the order, whatever the way: adding, removing or
+     * replacing a line at some index all go through the methods below, which record the change like the methods
+     * of the order do, so that it is stored also when the order is detached
+     */
+    private class LinesView extends AbstractList<OrderLine> {
+
+        @Override
+        public OrderLine get(int index) {
+            return lines.get(index);
+        }
+
+        @Override
+        public int size() {
+            return lines.size();
+        }
+
+        /**
+         * Moving lines of the order, e.g. sorting them, changes nothing stored: the line set is only added when
+         * it was not a line of the order yet, the replaced one only removed when it no longer is
+         */
+        @Override
+        public OrderLine set(int index, OrderLine line) {
+            boolean added = !lines.contains(line);
+            OrderLine replaced = lines.set(index, line);
+            if (!lines.contains(replaced)) {
+                changes.lineRemoved(replaced);
+            }
+            if (added) {
+                changes.lineAdded(line);
+            }
+            linesModified();
+            return replaced;
+        }
+
+        @Override
+        public void add(int index, OrderLine line) {
+            lines.add(index, line);
+            changes.lineAdded(line);
+            linesModified();
+        }
+
+        @Override
+        public OrderLine remove(int index) {
+            OrderLine removed = lines.remove(index);
+            changes.lineRemoved(removed);
+            linesModified();
+            return removed;
+        }
+    }
 }
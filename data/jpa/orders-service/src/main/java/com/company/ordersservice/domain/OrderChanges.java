@@ -0,0 +1,99 @@
+package com.company.ordersservice.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lines of an order changed since it was loaded or last stored, so that only those need to be written.
+ *
+ * Updated lines and removed lines are persisted lines (they have an id), inserted lines are not persisted yet.
+ */
+public class OrderChanges {
+
+    private final List<OrderLine> inserted = new ArrayList<>();
+
+    private final Set<OrderLine> updated = new LinkedHashSet<>();
+
+    private final List<OrderLine> removed = new ArrayList<>();
+
+    void quantityChanged(OrderLine line) {
+        if (line.getId() != null) {
+            updated.add(line);
+        }
+    }
+
+    /**
+     * A persisted line added back after being removed is kept rather than removed and inserted again
+     */
+    void lineAdded(OrderLine line) {
+        if (line.getId() == null || !removed.remove(line)) {
+            inserted.add(line);
+        }
+    }
+
+    /**
+     * A persisted line stays among the updated ones, not reported while it is removed, in case it is added back
+     */
+    void lineRemoved(OrderLine line) {
+        if (line.getId() == null) {
+            inserted.remove(line);
+        } else {
+            removed.add(line);
+        }
+    }
+
+    /**
+     * Takes back the removed line of the product, if any, so that adding a product whose line was just removed
+     * updates that line: deleting it and inserting another one for the same product would break the
+     * (order_id, product_id) unique key, as Hibernate executes inserts before deletes
+     */
+    OrderLine restoreRemoved(Long productId) {
+        Iterator<OrderLine> iterator = removed.iterator();
+        while (iterator.hasNext()) {
+            OrderLine line = iterator.next();
+            if (line.getProduct().getId().equals(productId)) {
+                iterator.remove();
+                return line;
+            }
+        }
+        return null;
+    }
+
+    public List<OrderLine> getInserted() {
+        return Collections.unmodifiableList(inserted);
+    }
+
+    public Set<OrderLine> getUpdated() {
+        if (removed.isEmpty()) {
+            return Collections.unmodifiableSet(updated);
+        }
+        Set<OrderLine> kept = new LinkedHashSet<>(updated);
+        removed.forEach(kept::remove);
+        return Collections.unmodifiableSet(kept);
+    }
+
+    public List<OrderLine> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * Whether the set of lines changed, which increments the version of the order itself
+     */
+    public boolean isStructural() {
+        return !inserted.isEmpty() || !removed.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return inserted.isEmpty() && getUpdated().isEmpty() && removed.isEmpty();
+    }
+
+    void clear() {
+        inserted.clear();
+        updated.clear();
+        removed.clear();
+    }
+}
@@ -0,0 +1,43 @@
+package com.company.ordersservice.domain;
+
+import java.time.Instant;
+
+/**
+ * Change of an order as published to downstream systems. Only the fields of its type are set: the product and
+ * quantity added, or the line removed.
+ *
+ * @param id position in the outbox, null until appended. Events of an order are published in id order.
+ */
+public record OrderEvent(Long id, Long orderId, Type type, Long productId, Long lineId, int quantity,
+                         Instant occurredAt) {
+
+    public enum Type {
+        ORDER_CREATED,
+        PRODUCT_ADDED,
+        LINE_REMOVED,
+        ORDER_REMOVED
+    }
+
+    public static OrderEvent created(Long orderId) {
+        return new OrderEvent(null, orderId, Type.ORDER_CREATED, null, null, 0, Instant.now());
+    }
+
+    public static OrderEvent productAdded(Long orderId, Long productId, int quantity) {
+        return new OrderEvent(null, orderId, Type.PRODUCT_ADDED, productId, null, quantity, Instant.now());
+    }
+
+    public static OrderEvent lineRemoved(Long orderId, Long lineId) {
+        return new OrderEvent(null, orderId, Type.LINE_REMOVED, null, lineId, 0, Instant.now());
+    }
+
+    public static OrderEvent removed(Long orderId) {
+        return new OrderEvent(null, orderId, Type.ORDER_REMOVED, null, null, 0, Instant.now());
+    }
+
+    /**
+     * Outbox partition of the event, the same for every event of its order
+     */
+    public int partition(int partitions) {
+        return Math.floorMod(Long.hashCode(orderId), partitions);
+    }
+}
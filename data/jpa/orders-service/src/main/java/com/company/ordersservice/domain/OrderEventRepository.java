@@ -0,0 +1,39 @@
+package com.company.ordersservice.domain;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Outbox of order events: appended in the transaction of the change they describe, claimed, published and deleted
+ * by a relay. Events are spread over partitions by order id, so that the events of an order stay in one partition
+ * and partitions can be relayed in parallel without reordering them.
+ */
+public interface OrderEventRepository {
+
+    /**
+     * Inserts the events with one batched statement, in the caller's transaction
+     */
+    void append(List<OrderEvent> events, int partitions);
+
+    /**
+     * Creates the rows the partitions are claimed by, partitions already there are kept
+     */
+    void createPartitions(int partitions);
+
+    /**
+     * Locks the partition until the end of the transaction and returns its oldest events, in id order.
+     * A partition locked by another transaction is skipped rather than waited for: no events are returned.
+     */
+    List<OrderEvent> claim(int partition, int maxEvents);
+
+    /**
+     * Deletes published events, with one statement
+     */
+    void delete(List<OrderEvent> events);
+
+    /**
+     * Time the first event appended and not published yet occurred at, empty when every event was published
+     */
+    Optional<Instant> oldestPending();
+}
@@ -1,28 +1,68 @@
 package com.company.ordersservice.domain;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
-@AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Entity
-@Table(name = "order_lines")
+@Table(name = "order_lines", uniqueConstraints = @UniqueConstraint(name = "uk_order_lines_order_product",
+        columnNames = {"order_id", "product_id"}))
 public class OrderLine {
 
     @Id
-    @GeneratedValue(strategy= GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_lines_seq")
+    @SequenceGenerator(name = "order_lines_seq", sequenceName = "order_lines_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    /**
+     * Lazy so that the fetch plan used to load the order decides when products are read
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 
     private Integer quantity;
 
-    public void increaseQuantity() {
-        this.quantity++;
+    @Version
+    private Long version;
+
+    public OrderLine(Long id, Product product, Integer quantity) {
+        this.id = id;
+        this.product = product;
+        this.quantity = quantity;
+    }
+
+    /**
+     * Stored state read by a repository that does not go through Hibernate
+     */
+    public OrderLine(Long id, Product product, Integer quantity, Long version) {
+        this(id, product, quantity);
+        this.version = version;
+    }
+
+    /**
+     * Only called by {@link Order#addProduct(Product, int)}, which keeps the total and the pending changes
+     * of the order in line with the new quantity
+     */
+    void increaseQuantity(int delta) {
+        this.quantity += delta;
+    }
+
+    /**
+     * Only called by {@link Order#addProduct(Product, int)} when it adds a removed line back
+     */
+    void replaceQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    void stored(Long id) {
+        this.id = id;
+        this.version = 0L;
+    }
+
+    void incrementVersion() {
+        this.version++;
     }
 }
@@ -1,9 +1,92 @@
 package com.company.ordersservice.domain;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface OrderRepository {
     Order store(Order order);
+
+    /**
+     * Writes only the lines changed since the order was loaded or last stored, see {@link OrderChanges}.
+     * Unlike {@link #store(Order)} a detached order is not merged and stays the instance to keep working with.
+     */
+    Order storeChanges(Order order);
     Optional<Order> find(Long id);
+
+    /**
+     * Adds to the quantity of the order's line of every product, creating missing lines, without reading the order.
+     * Concurrent calls for the same order and product are all applied.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException if the order is missing or removed
+     */
+    void addQuantities(Long orderId, Map<Long, Integer> quantitiesByProductId);
+
+    /**
+     * Like {@link #addQuantities(Long, Map)}, unless quantities up to the given journal sequence were already added
+     * to the order, which makes replaying a journal of additions idempotent
+     *
+     * @return whether the quantities were added
+     */
+    boolean addQuantitiesOnce(Long orderId, Map<Long, Integer> quantitiesByProductId, long journalSequence);
+
+    /**
+     * Journal sequence up to which quantities were added to the order, 0 when none were
+     */
+    long journalWatermark(Long orderId);
+
+    /**
+     * Highest journal sequence passed to {@link #addQuantitiesOnce(Long, Map, long)} for any order
+     */
+    long maxJournalSequence();
+
+    /**
+     * Loads the order with the given fetch plan using a fixed number of queries, whatever the number of lines
+     */
+    Optional<Order> find(Long id, FetchPlan plan);
+
+    /**
+     * Loads several orders with the given fetch plan using a fixed number of queries
+     */
+    List<Order> findAll(Collection<Long> ids, FetchPlan plan);
+
+    /**
+     * Marks the order removed with a single row update, whatever the number of its lines. From then on the order
+     * is no longer found by any read of this repository, its version is incremented so that concurrent writes
+     * of the order fail their optimistic check. The order and its lines are deleted by {@link #purgeRemoved(int)}.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the order was changed or removed
+     *                                                                   since it was loaded
+     */
     void remove(Order order);
+
+    /**
+     * Deletes up to maxOrders removed orders together with their lines and journal watermarks,
+     * with one bulk statement per table, those removed first go first
+     *
+     * @return number of orders deleted, less than maxOrders once no removed order is left
+     */
+    int purgeRemoved(int maxOrders);
+
+    List<Order> storeAll(Collection<Order> orders);
+
+    /**
+     * Summaries ordered by order id, computed with a single aggregate query
+     *
+     * @param page zero based page number
+     */
+    List<OrderSummary> findSummaries(int page, int size);
+
+    /**
+     * Summaries of at most size orders with an id greater than afterId, ordered by order id.
+     * Keyset pagination: pass the id of the last summary to get the next page, which costs the same deep
+     * into the table as on the first page and neither skips nor repeats orders inserted or removed in between.
+     */
+    OrderSummaryPage findSummariesAfter(long afterId, int size);
+
+    /**
+     * Writes pending changes and detaches every managed entity, used between chunks of bulk operations
+     */
+    void flushAndClear();
 }
@@ -0,0 +1,13 @@
+package com.company.ordersservice.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Read model of an order computed by the database, without loading the order or its lines
+ */
+public record OrderSummary(Long id, long lineCount, long totalQuantity, Money totalPrice) {
+
+    public OrderSummary(Long id, Long lineCount, Long totalQuantity, BigDecimal totalPrice) {
+        this(id, lineCount, totalQuantity, Money.of(totalPrice));
+    }
+}
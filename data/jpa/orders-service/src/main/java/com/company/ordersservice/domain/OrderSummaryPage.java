@@ -0,0 +1,14 @@
+package com.company.ordersservice.domain;
+
+import java.util.List;
+
+/**
+ * Summaries of the orders whose ids were read for one page of keyset pagination, see
+ * {@link OrderRepository#findSummariesAfter(long, int)}. Orders removed between reading the ids and summarizing
+ * them are missing, so the summaries alone do not tell whether more pages follow.
+ *
+ * @param lastId id to read the next page after, the last id read for this page
+ * @param last   whether fewer ids than requested were read, no page follows
+ */
+public record OrderSummaryPage(List<OrderSummary> summaries, long lastId, boolean last) {
+}
@@ -0,0 +1,28 @@
+package com.company.ordersservice.domain;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of resolving many product ids at once
+ *
+ * @param products   found products indexed by id
+ * @param missingIds requested ids without a product
+ */
+public record ProductLookup(Map<Long, Product> products, Set<Long> missingIds) {
+
+    public Product get(Long id) {
+        return products.get(id);
+    }
+
+    public boolean isComplete() {
+        return missingIds.isEmpty();
+    }
+
+    public ProductLookup requireComplete() {
+        if (!isComplete()) {
+            throw new IllegalArgumentException("Products with ids " + missingIds + " do not exist");
+        }
+        return this;
+    }
+}
@@ -1,8 +1,14 @@
 package com.company.ordersservice.domain;
 
+import java.util.Collection;
 import java.util.Optional;
 
 public interface ProductRepository {
     Product store(Product product);
     Optional<Product> find(Long id);
+
+    /**
+     * Resolves all ids with a few chunked queries instead of one query per id
+     */
+    ProductLookup findAll(Collection<Long> ids);
 }
@@ -0,0 +1,13 @@
+package com.company.ordersservice.domain;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Appends to the outbox read by {@link OrderEventRepository#claim(int, int)}, see {@link OrderEventRepository#append}
+ */
+public interface ReactiveOrderEventRepository {
+
+    Mono<Void> append(List<OrderEvent> events, int partitions);
+}
@@ -0,0 +1,38 @@
+package com.company.ordersservice.domain;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of {@link OrderRepository}. Orders are always read whole, with their lines and products:
+ * there is no persistence context to load parts of the aggregate lazily.
+ */
+public interface ReactiveOrderRepository {
+
+    /**
+     * Inserts a new order with its lines, then assigns their ids to the given instance
+     */
+    Mono<Order> store(Order order);
+
+    /**
+     * Writes only the lines changed since the order was loaded or last stored, see {@link OrderChanges},
+     * with the same optimistic checks as {@link OrderRepository#storeChanges(Order)}
+     */
+    Mono<Order> storeChanges(Order order);
+
+    /**
+     * Loads the order with its lines and their products with two queries, empty when it does not exist or was removed
+     */
+    Mono<Order> find(Long id);
+
+    /**
+     * See {@link OrderRepository#addQuantities(Long, Map)}
+     */
+    Mono<Void> addQuantities(Long orderId, Map<Long, Integer> quantitiesByProductId);
+
+    /**
+     * See {@link OrderRepository#remove(Order)}
+     */
+    Mono<Void> remove(Order order);
+}
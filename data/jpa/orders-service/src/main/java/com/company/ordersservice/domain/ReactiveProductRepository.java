@@ -0,0 +1,20 @@
+package com.company.ordersservice.domain;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking counterpart of {@link ProductRepository}
+ */
+public interface ReactiveProductRepository {
+
+    Mono<Product> store(Product product);
+
+    Mono<Product> find(Long id);
+
+    /**
+     * Resolves all ids with a single query
+     */
+    Mono<ProductLookup> findAll(Collection<Long> ids);
+}
@@ -0,0 +1,27 @@
+package com.company.ordersservice.domain.port;
+
+import java.time.Duration;
+import java.util.List;
+
+public record IngestionReport(List<Chunk> chunks) {
+
+    public int orders() {
+        return chunks.stream().mapToInt(Chunk::orders).sum();
+    }
+
+    public int lines() {
+        return chunks.stream().mapToInt(Chunk::lines).sum();
+    }
+
+    public Duration elapsed() {
+        return chunks.stream().map(Chunk::elapsed).reduce(Duration.ZERO, Duration::plus);
+    }
+
+    public record Chunk(int index, int orders, int lines, Duration elapsed) {
+
+        public double ordersPerSecond() {
+            long nanos = Math.max(1, elapsed.toNanos());
+            return orders * 1_000_000_000.0 / nanos;
+        }
+    }
+}
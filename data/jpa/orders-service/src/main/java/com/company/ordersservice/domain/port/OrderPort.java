@@ -4,7 +4,14 @@ import com.company.ordersservice.domain.Order;
 import com.company.ordersservice.domain.Product;
 
 import java.util.Collection;
-
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Orders returned by the port are detached and can be priced without a transaction: their lines and products
+ * are loaded, see {@link com.company.ordersservice.domain.FetchPlan#WITH_LINES_AND_PRODUCTS}.
+ */
 public interface OrderPort {
 
     Order createOrder();
@@ -15,5 +22,26 @@ public interface OrderPort {
 
     void addProducts(Order order, Collection<Product> products);
 
+    /**
+     * Resolves all products with a single lookup and adds them with the given quantities
+     *
+     * @throws IllegalArgumentException when some of the products do not exist or a quantity is not positive,
+     *                                  the order is left unchanged
+     */
+    void addProductsById(Order order, Map<Long, Integer> quantities);
+
     void removeOrderLine(Order order, Long lineId);
+
+    /**
+     * Makes every change of the order durable and returns its stored state, with lines and products
+     */
+    Order checkout(Order order);
+
+    /**
+     * Creates an order for every spec. Input is consumed in chunks, each chunk is written with JDBC batching
+     * and detached from the persistence context afterwards, so memory does not grow with the input size.
+     */
+    IngestionReport ingestOrders(Iterator<OrderSpec> specs);
+
+    IngestionReport ingestOrders(Stream<OrderSpec> specs);
 }
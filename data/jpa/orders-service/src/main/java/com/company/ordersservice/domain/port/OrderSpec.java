@@ -0,0 +1,9 @@
+package com.company.ordersservice.domain.port;
+
+import java.util.Map;
+
+/**
+ * Description of an order to ingest: quantity per product id
+ */
+public record OrderSpec(Map<Long, Integer> quantities) {
+}
@@ -0,0 +1,37 @@
+package com.company.ordersservice.domain.port;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Non-blocking variant of {@link OrderPort}: nothing happens until the returned publisher is subscribed to,
+ * and no thread waits for the database meanwhile
+ */
+public interface ReactiveOrderPort {
+
+    Mono<Order> createOrder();
+
+    Mono<Void> removeOrder(Order order);
+
+    Mono<Void> addProduct(Order order, Product product);
+
+    Mono<Void> addProducts(Order order, Collection<Product> products);
+
+    /**
+     * Resolves all products with a single lookup and adds them with the given quantities
+     *
+     * @return fails with IllegalArgumentException when some of the products do not exist, the order is left unchanged
+     */
+    Mono<Void> addProductsById(Order order, Map<Long, Integer> quantities);
+
+    Mono<Void> removeOrderLine(Order order, Long lineId);
+
+    /**
+     * The stored state of the order, with lines and products
+     */
+    Mono<Order> checkout(Order order);
+}
@@ -0,0 +1,78 @@
+package com.company.ordersservice.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import javax.cache.CacheManager;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process Caffeine backed second-level cache region holding Product entities.
+ *
+ * Every instance owns its cache manager, so two application contexts in the same JVM never share entries.
+ */
+public class ProductCache implements AutoCloseable {
+
+    public static final String REGION = "products";
+
+    private final CaffeineCachingProvider provider = new CaffeineCachingProvider();
+
+    private final CacheManager cacheManager;
+
+    private final javax.cache.Cache<Object, Object> region;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(long maximumSize, Duration timeToLive) {
+        this.cacheManager = provider.getCacheManager(URI.create(getClass().getName()), getClass().getClassLoader());
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(maximumSize))
+                .setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()))
+                .setNativeStatisticsEnabled(true)
+                // maintenance on the calling thread keeps size based eviction deterministic
+                .setExecutorFactory(() -> (Executor) Runnable::run);
+        this.region = cacheManager.createCache(REGION, configuration);
+    }
+
+    /**
+     * Passed to Hibernate as the cache manager of its JCache region factory
+     */
+    public CacheManager getCacheManager() {
+        return cacheManager;
+    }
+
+    public void recordInvalidation() {
+        invalidations.incrementAndGet();
+    }
+
+    public Statistics statistics() {
+        Cache<?, ?> cache = region.unwrap(Cache.class);
+        CacheStats stats = cache.stats();
+        return new Statistics(stats.hitCount(), stats.missCount(), stats.evictionCount(), invalidations.get(),
+                cache.estimatedSize());
+    }
+
+    @Override
+    public void close() {
+        cacheManager.close();
+        provider.close();
+    }
+
+    /**
+     * @param evictions     entries removed because of the size bound or time to live
+     * @param invalidations entries removed explicitly because the product was stored
+     */
+    public record Statistics(long hits, long misses, long evictions, long invalidations, long size) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.company.ordersservice.infrastructure.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of which read replicas can serve reads. Every {@link #probe()} writes the current time to the
+ * replication_heartbeats table of the primary and reads it back from each replica: the difference is the replica's
+ * lag, overestimated by up to one probe interval. A replica is eligible while its last probe succeeded
+ * and its lag does not exceed maxLag, eligible replicas are selected in turn.
+ * Until the first probe no replica is eligible.
+ */
+@Slf4j
+public class ReplicaRouter implements AutoCloseable {
+
+    private static final int HEARTBEAT_ID = 1;
+
+    private final JdbcTemplate primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final Duration maxLag;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRouter(DataSource primary, List<? extends DataSource> replicas, Duration maxLag) {
+        this.primary = new JdbcTemplate(primary);
+        this.maxLag = maxLag;
+        int queryTimeout = (int) Math.max(1, maxLag.toSeconds());
+        for (DataSource replica : replicas) {
+            JdbcTemplate jdbc = new JdbcTemplate(replica);
+            jdbc.setQueryTimeout(queryTimeout);
+            this.replicas.add(new Replica(replica, jdbc));
+        }
+    }
+
+    public void probe() {
+        long now = System.currentTimeMillis();
+        try {
+            beat(now);
+        } catch (DataAccessException e) {
+            log.warn("Could not write the replication heartbeat to the primary", e);
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            boolean wasEligible = replica.isEligible();
+            try {
+                List<Long> beats = replica.jdbc.queryForList(
+                        "select beat_millis from replication_heartbeats where id = ?", Long.class, HEARTBEAT_ID);
+                replica.healthy = !beats.isEmpty();
+                replica.lagMillis = beats.isEmpty() ? Long.MAX_VALUE : Math.max(0, now - beats.getFirst());
+            } catch (DataAccessException e) {
+                replica.healthy = false;
+                replica.lagMillis = Long.MAX_VALUE;
+                log.debug("Replica {} failed its probe", i, e);
+            }
+            if (wasEligible != replica.isEligible()) {
+                log.warn("Replica {} is {}: healthy {}, lag {} ms", i, replica.isEligible() ? "eligible" : "excluded",
+                        replica.healthy, replica.healthy ? replica.lagMillis : "unknown");
+            }
+        }
+    }
+
+    private void beat(long now) {
+        if (primary.update("update replication_heartbeats set beat_millis = ? where id = ?", now, HEARTBEAT_ID) == 0) {
+            try {
+                primary.update("insert into replication_heartbeats (id, beat_millis) values (?, ?)", HEARTBEAT_ID, now);
+            } catch (DuplicateKeyException e) {
+                // inserted by another instance in the meantime
+            }
+        }
+    }
+
+    /**
+     * The next eligible replica, empty when none is
+     */
+    public Optional<DataSource> select() {
+        List<Replica> eligible = replicas.stream().filter(Replica::isEligible).toList();
+        if (eligible.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(eligible.get(Math.floorMod(next.getAndIncrement(), eligible.size())).dataSource);
+    }
+
+    /**
+     * State of every replica as of its last probe, in configuration order
+     */
+    public List<Status> status() {
+        return replicas.stream()
+                .map(replica -> new Status(replica.healthy, replica.isEligible(),
+                        replica.healthy ? Duration.ofMillis(replica.lagMillis) : null))
+                .toList();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * @param lag null when the replica is not healthy
+     */
+    public record Status(boolean healthy, boolean eligible, Duration lag) {
+    }
+
+    private final class Replica {
+
+        private final DataSource dataSource;
+
+        private final JdbcTemplate jdbc;
+
+        private volatile boolean healthy;
+
+        private volatile long lagMillis = Long.MAX_VALUE;
+
+        private Replica(DataSource dataSource, JdbcTemplate jdbc) {
+            this.dataSource = dataSource;
+            this.jdbc = jdbc;
+        }
+
+        private boolean isEligible() {
+            return healthy && lagMillis <= maxLag.toMillis();
+        }
+    }
+}
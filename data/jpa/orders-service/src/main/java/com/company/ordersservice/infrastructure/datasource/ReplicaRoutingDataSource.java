@@ -0,0 +1,79 @@
+package com.company.ordersservice.infrastructure.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Connections for read-only transactions: from a replica selected by {@link ReplicaRouter}, or from the primary
+ * when no replica is eligible or the read has to see the caller's own recent writes.
+ *
+ * Meant to be the read-only data source of a {@link LazyConnectionDataSourceProxy} in front of the primary,
+ * which defers fetching a connection until the transaction manager marked it read-only, see {@link #routing}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+
+    private final ReplicaRouter router;
+
+    private final BooleanSupplier requiresPrimary;
+
+    private final AtomicLong replicaConnections = new AtomicLong();
+
+    private final AtomicLong primaryConnections = new AtomicLong();
+
+    /**
+     * @param requiresPrimary whether the read on the current thread has to go to the primary
+     */
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaRouter router, BooleanSupplier requiresPrimary) {
+        this.primary = primary;
+        this.router = router;
+        this.requiresPrimary = requiresPrimary;
+    }
+
+    /**
+     * Data source handing out primary connections, unless the connection is marked read-only before its first use
+     */
+    public static LazyConnectionDataSourceProxy routing(DataSource primary, ReplicaRoutingDataSource reads) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(reads);
+        return proxy;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    private DataSource target() {
+        DataSource replica = requiresPrimary.getAsBoolean() ? null : router.select().orElse(null);
+        if (replica == null) {
+            primaryConnections.incrementAndGet();
+            return primary;
+        }
+        replicaConnections.incrementAndGet();
+        return replica;
+    }
+
+    public long getReplicaConnections() {
+        return replicaConnections.get();
+    }
+
+    /**
+     * Read-only connections handed out by the primary
+     */
+    public long getPrimaryConnections() {
+        return primaryConnections.get();
+    }
+}
@@ -0,0 +1,205 @@
+package com.company.ordersservice.infrastructure.journal;
+
+import com.company.ordersservice.application.CartJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Journal kept in a local text file, one "sequence,orderId,productId,quantity[,productId,quantity...]" line
+ * per append. With sync every append is forced to disk before it is acknowledged, otherwise entries written
+ * shortly before an operating system crash may be lost. Appends are forced outside of the lock that orders them,
+ * one force covers every append written before it started, so that concurrent appends share their syncs.
+ * A line torn by a crash is dropped when the journal is opened, so an append is applied whole or not at all.
+ */
+public class FileCartJournal implements CartJournal {
+
+    private final Path file;
+
+    private final boolean sync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private FileChannel channel;
+
+    private long sequence;
+
+    /**
+     * Set when a failed append could not be removed, further lines would be appended to the torn one
+     */
+    private boolean torn;
+
+    /**
+     * Length of the file known to be on disk, under the sync lock
+     */
+    private long synced;
+
+    public FileCartJournal(Path file, boolean sync) {
+        this.file = file;
+        this.sync = sync;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.channel = open(file);
+            channel.truncate(completeLength(Files.readString(file, StandardCharsets.US_ASCII)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open cart journal " + file, e);
+        }
+        readAll().forEach(entry -> sequence = Math.max(sequence, entry.sequence()));
+    }
+
+    /**
+     * Length of the content up to its last complete line, a line without its newline was torn by a crash
+     */
+    private static int completeLength(String content) {
+        return content.lastIndexOf('\n') + 1;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * A line only partly written is cut off again before the failure is reported
+     */
+    @Override
+    public long append(Long orderId, Map<Long, Integer> quantitiesByProductId) {
+        StringBuilder line = new StringBuilder().append(',').append(orderId);
+        quantitiesByProductId.forEach((productId, quantity) -> line.append(',').append(productId)
+                .append(',').append(quantity));
+        long next;
+        long end;
+        lock.lock();
+        try {
+            if (torn) {
+                throw new IllegalStateException("Cart journal " + file + " ends with a torn entry, reopen it");
+            }
+            next = sequence + 1;
+            ByteBuffer buffer = ByteBuffer.wrap((next + line.toString() + "\n").getBytes(StandardCharsets.US_ASCII));
+            long start = channel.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                cutOff(start);
+                throw new UncheckedIOException("Could not append to cart journal " + file, e);
+            }
+            sequence = next;
+            end = start + buffer.limit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to cart journal " + file, e);
+        } finally {
+            lock.unlock();
+        }
+        if (sync) {
+            sync(end);
+        }
+        return next;
+    }
+
+    private void cutOff(long length) {
+        try {
+            channel.truncate(length);
+        } catch (IOException e) {
+            torn = true;
+        }
+    }
+
+    /**
+     * Forces the file unless a force started after the given length was written already covered it
+     */
+    private void sync(long end) {
+        syncLock.lock();
+        try {
+            if (synced < end) {
+                long length = channel.size();
+                channel.force(false);
+                synced = length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync cart journal " + file, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Entry> readAll() {
+        lock.lock();
+        try {
+            List<Entry> entries = new ArrayList<>();
+            String content = Files.readString(file, StandardCharsets.US_ASCII);
+            for (String line : content.substring(0, completeLength(content)).split("\n")) {
+                String[] fields = line.split(",");
+                if (fields.length < 4 || fields.length % 2 != 0) {
+                    continue;
+                }
+                for (int i = 2; i < fields.length; i += 2) {
+                    entries.add(new Entry(Long.parseLong(fields[0]), Long.valueOf(fields[1]), Long.valueOf(fields[i]),
+                            Integer.parseInt(fields[i + 1])));
+                }
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read cart journal " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Only called while no append is under way, see {@link com.company.ordersservice.application.BufferedOrderPort}
+     */
+    @Override
+    public void truncate() {
+        lock.lock();
+        syncLock.lock();
+        try {
+            channel.truncate(0);
+            torn = false;
+            synced = 0;
+            if (sync) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not truncate cart journal " + file, e);
+        } finally {
+            syncLock.unlock();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void advancePast(long sequence) {
+        lock.lock();
+        try {
+            this.sequence = Math.max(this.sequence, sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close cart journal " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sequence of the last cart journal entry applied to an order, written in the transaction applying it,
+ * so that replaying the journal after a crash skips entries already in the database.
+ * Only mapped for the schema, read and written with SQL by {@link OrderQuantityOperationsImpl}.
+ */
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "cart_journal_watermarks")
+public class CartJournalWatermark {
+
+    @Id
+    private Long orderId;
+
+    private long sequence;
+}
@@ -0,0 +1,23 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Order;
+
+/**
+ * Spring Data fragment writing the pending changes of a detached order with targeted statements
+ */
+public interface OrderChangeOperations {
+
+    boolean isManaged(Order order);
+
+    /**
+     * Locks the row of a managed order right away, failing if it was changed concurrently. The version itself is
+     * incremented by Hibernate when the changed lines are flushed.
+     */
+    void lockVersion(Order order);
+
+    /**
+     * Inserts, updates and deletes only the lines recorded in {@link Order#pendingChanges()}.
+     * Versions are checked like Hibernate would, a conflict raises an optimistic locking failure.
+     */
+    void writeChanges(Order order);
+}
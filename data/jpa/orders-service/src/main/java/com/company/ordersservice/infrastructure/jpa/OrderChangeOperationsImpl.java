@@ -0,0 +1,152 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderChanges;
+import com.company.ordersservice.domain.OrderLine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class OrderChangeOperationsImpl implements OrderChangeOperations {
+
+    private static final String BUMP_ORDER_VERSION =
+            "update orders set version = version + 1 where id = ? and version = ? and removed_at is null";
+
+    private static final String DELETE_LINE =
+            "delete from order_lines where id = ? and version = ?";
+
+    private static final String UPDATE_LINE_QUANTITY =
+            "update order_lines set quantity = ?, version = version + 1 where id = ? and version = ?";
+
+    private static final String INSERT_LINE =
+            "insert into order_lines (id, order_id, product_id, quantity, version) values (?, ?, ?, ?, 0)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public boolean isManaged(Order order) {
+        return entityManager.contains(order);
+    }
+
+    @Override
+    public void lockVersion(Order order) {
+        entityManager.lock(order, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * The order row is only touched when lines are inserted or removed, as Hibernate does for collection changes,
+     * and is written first so that concurrent structural changes conflict before any line is written.
+     * Line ids come from the same pooled sequence generator Hibernate uses. Entities pending in the persistence
+     * context, such as a product persisted earlier in the transaction, are flushed before, so that the statements
+     * can refer to them.
+     */
+    @Override
+    @Transactional
+    public void writeChanges(Order order) {
+        OrderChanges changes = order.pendingChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        List<Long> insertedIds = new ArrayList<>(changes.getInserted().size());
+        for (OrderLine line : changes.getInserted()) {
+            insertedIds.add(generateId(session, line));
+        }
+
+        try (SessionStatements statements = new SessionStatements(session)) {
+            if (changes.isStructural()) {
+                PreparedStatement statement = statements.prepare(BUMP_ORDER_VERSION);
+                statement.setLong(1, order.getId());
+                statement.setLong(2, order.getVersion());
+                if (statement.executeUpdate() != 1) {
+                    throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+                }
+            }
+            deleteLines(statements, changes.getRemoved());
+            updateQuantities(statements, changes.getUpdated());
+            insertLines(statements, order.getId(), changes.getInserted(), insertedIds);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "Could not write changes of order " + order.getId());
+        }
+        order.changesStored(insertedIds);
+    }
+
+    private static Long generateId(SharedSessionContractImplementor session, OrderLine line) {
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(OrderLine.class).getGenerator();
+        return (Long) generator.generate(session, line, null, EventType.INSERT);
+    }
+
+    private static void deleteLines(SessionStatements statements, List<OrderLine> lines) throws SQLException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        PreparedStatement statement = statements.prepare(DELETE_LINE);
+        for (OrderLine line : lines) {
+            statement.setLong(1, line.getId());
+            statement.setLong(2, line.getVersion());
+            statement.addBatch();
+        }
+        verify(statement.executeBatch(), lines);
+    }
+
+    private static void updateQuantities(SessionStatements statements, Collection<OrderLine> lines)
+            throws SQLException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        List<OrderLine> batched = new ArrayList<>(lines);
+        PreparedStatement statement = statements.prepare(UPDATE_LINE_QUANTITY);
+        for (OrderLine line : batched) {
+            statement.setInt(1, line.getQuantity());
+            statement.setLong(2, line.getId());
+            statement.setLong(3, line.getVersion());
+            statement.addBatch();
+        }
+        verify(statement.executeBatch(), batched);
+    }
+
+    private static void insertLines(SessionStatements statements, Long orderId, List<OrderLine> lines,
+                                    List<Long> ids) throws SQLException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        PreparedStatement statement = statements.prepare(INSERT_LINE);
+        for (int i = 0; i < lines.size(); i++) {
+            OrderLine line = lines.get(i);
+            statement.setLong(1, ids.get(i));
+            statement.setLong(2, orderId);
+            statement.setLong(3, line.getProduct().getId());
+            statement.setInt(4, line.getQuantity());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    /**
+     * Drivers rewriting batches, such as MySQL with rewriteBatchedStatements, may not report row counts,
+     * those statements can not be verified and are accepted.
+     */
+    private static void verify(int[] counts, List<OrderLine> lines) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 1 && counts[i] != Statement.SUCCESS_NO_INFO) {
+                throw new ObjectOptimisticLockingFailureException(OrderLine.class, lines.get(i).getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.OrderEventRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Every method is implemented by {@link OrderEventOperationsImpl}
+ */
+@Repository
+public interface OrderEventJpaRepository extends OrderEventRepository,
+        org.springframework.data.repository.Repository<OrderOutboxEvent, Long>, OrderEventOperations {
+}
@@ -0,0 +1,23 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.OrderEvent;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data fragment appending order events to the outbox and claiming them by partition
+ */
+public interface OrderEventOperations {
+
+    void append(List<OrderEvent> events, int partitions);
+
+    void createPartitions(int partitions);
+
+    List<OrderEvent> claim(int partition, int maxEvents);
+
+    void delete(List<OrderEvent> events);
+
+    Optional<Instant> oldestPending();
+}
@@ -0,0 +1,156 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.OrderEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public class OrderEventOperationsImpl implements OrderEventOperations {
+
+    private static final String INSERT_EVENT = """
+            insert into order_outbox (partition_no, order_id, type, product_id, line_id, quantity, occurred_at)
+            values (?, ?, ?, ?, ?, ?, ?)""";
+
+    /**
+     * MySQL syntax, also understood by H2 in MySQL mode
+     */
+    private static final String INSERT_PARTITION =
+            "insert ignore into order_outbox_partitions (partition_no) values (?)";
+
+    private static final String LOCK_PARTITION =
+            "select partition_no from order_outbox_partitions where partition_no = :partition for update skip locked";
+
+    /**
+     * Ordered by partition first, though it is the same for all rows, to read the (partition_no, id) index in order
+     */
+    private static final String SELECT_EVENTS = """
+            select id, order_id, type, product_id, line_id, quantity, occurred_at from order_outbox
+            where partition_no = :partition
+            order by partition_no, id""";
+
+    private static final String DELETE_EVENTS = "delete from order_outbox where id in (:ids)";
+
+    /**
+     * The event of the lowest id rather than the earliest time: ids follow the order events were appended in,
+     * and reading the first one takes a single primary key lookup whatever the size of the outbox
+     */
+    private static final String SELECT_OLDEST = "select occurred_at as oldest from order_outbox order by id limit 1";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Joins the caller's transaction, the events are only visible to the relay once the change they describe commits.
+     * The time is bound by Hibernate, in UTC like every time it writes, see hibernate.jdbc.time_zone.
+     */
+    @Override
+    @Transactional
+    public void append(List<OrderEvent> events, int partitions) {
+        if (events.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BasicType<Instant> instant = session.getTypeConfiguration().getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.INSTANT);
+        try (SessionStatements statements = new SessionStatements(session)) {
+            PreparedStatement statement = statements.prepare(INSERT_EVENT);
+            for (OrderEvent event : events) {
+                statement.setInt(1, event.partition(partitions));
+                statement.setLong(2, event.orderId());
+                statement.setString(3, event.type().name());
+                statement.setObject(4, event.productId(), Types.BIGINT);
+                statement.setObject(5, event.lineId(), Types.BIGINT);
+                statement.setInt(6, event.quantity());
+                instant.getJdbcValueBinder().bind(statement, event.occurredAt(), 7, session);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "Could not append order events");
+        }
+    }
+
+    @Override
+    @Transactional
+    public void createPartitions(int partitions) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        try (SessionStatements statements = new SessionStatements(session)) {
+            PreparedStatement statement = statements.prepare(INSERT_PARTITION);
+            for (int partition = 0; partition < partitions; partition++) {
+                statement.setInt(1, partition);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "Could not create outbox partitions");
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<OrderEvent> claim(int partition, int maxEvents) {
+        List<?> locked = nativeQuery(LOCK_PARTITION, "order_outbox_partitions")
+                .setParameter("partition", partition)
+                .getResultList();
+        if (locked.isEmpty()) {
+            return List.of();
+        }
+        List<?> rows = nativeQuery(SELECT_EVENTS, "order_outbox")
+                .addScalar("id", StandardBasicTypes.LONG)
+                .addScalar("order_id", StandardBasicTypes.LONG)
+                .addScalar("type", StandardBasicTypes.STRING)
+                .addScalar("product_id", StandardBasicTypes.LONG)
+                .addScalar("line_id", StandardBasicTypes.LONG)
+                .addScalar("quantity", StandardBasicTypes.INTEGER)
+                .addScalar("occurred_at", StandardBasicTypes.INSTANT)
+                .setParameter("partition", partition)
+                .setMaxResults(maxEvents)
+                .getResultList();
+        return rows.stream().map(row -> {
+            Object[] columns = (Object[]) row;
+            return new OrderEvent((Long) columns[0], (Long) columns[1], OrderEvent.Type.valueOf((String) columns[2]),
+                    (Long) columns[3], (Long) columns[4], (Integer) columns[5], (Instant) columns[6]);
+        }).toList();
+    }
+
+    @Override
+    @Transactional
+    public void delete(List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        nativeQuery(DELETE_EVENTS, "order_outbox")
+                .setParameter("ids", events.stream().map(OrderEvent::id).toList())
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public Optional<Instant> oldestPending() {
+        List<?> oldest = nativeQuery(SELECT_OLDEST, "order_outbox")
+                .addScalar("oldest", StandardBasicTypes.INSTANT)
+                .getResultList();
+        return oldest.stream().map(Instant.class::cast).findFirst();
+    }
+
+    /**
+     * Declares the table the statement works on, so that Hibernate does not invalidate every second level cache
+     * region, the product cache included, as it does for native statements it knows nothing about
+     */
+    private NativeQuery<?> nativeQuery(String sql, String table) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(table);
+    }
+}
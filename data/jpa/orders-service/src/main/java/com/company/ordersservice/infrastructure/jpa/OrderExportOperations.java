@@ -0,0 +1,11 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.OrderSummaryPage;
+
+/**
+ * Spring Data fragment reading order summaries page by page with keyset pagination
+ */
+public interface OrderExportOperations {
+
+    OrderSummaryPage findSummariesAfter(long afterId, int size);
+}
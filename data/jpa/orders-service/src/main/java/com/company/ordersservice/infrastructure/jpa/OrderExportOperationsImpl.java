@@ -0,0 +1,47 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.OrderSummary;
+import com.company.ordersservice.domain.OrderSummaryPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class OrderExportOperationsImpl implements OrderExportOperations {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * The page's id range is read from the primary key index first, lines are then aggregated for that range only,
+     * so the cost of a page does not depend on how far into the table it is. Rows are fetched by the JDBC driver
+     * in round trips of the page size and mapped to summaries, no entity enters the persistence context.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public OrderSummaryPage findSummariesAfter(long afterId, int size) {
+        List<Long> ids = entityManager.createQuery(
+                        "select o.id from Order o where o.id > :afterId order by o.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(size)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, size)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return new OrderSummaryPage(List.of(), afterId, true);
+        }
+        List<OrderSummary> summaries = entityManager.createQuery("""
+                        select new com.company.ordersservice.domain.OrderSummary(o.id, count(l.id),
+                            coalesce(sum(l.quantity), 0), coalesce(sum(l.quantity * p.price), 0))
+                        from Order o left join o.lines l left join l.product p
+                        where o.id > :afterId and o.id <= :lastId
+                        group by o.id
+                        order by o.id""", OrderSummary.class)
+                .setParameter("afterId", afterId)
+                .setParameter("lastId", ids.getLast())
+                .setHint(AvailableHints.HINT_FETCH_SIZE, size)
+                .getResultList();
+        return new OrderSummaryPage(summaries, ids.getLast(), ids.size() < size);
+    }
+}
@@ -1,27 +1,112 @@
 package com.company.ordersservice.infrastructure.jpa;
 
+import com.company.ordersservice.domain.FetchPlan;
 import com.company.ordersservice.domain.Order;
 import com.company.ordersservice.domain.OrderRepository;
+import com.company.ordersservice.domain.OrderSummary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * Finders declared here run in read-only transactions like those inherited from JpaRepository, so that they can be
+ * routed to a replica, see ReplicaConfiguration. Called within a transaction they join it.
+ */
 @Repository
-public interface OrderJpaRepository extends OrderRepository, JpaRepository<Order,Long> {
+public interface OrderJpaRepository extends OrderRepository, JpaRepository<Order,Long>, PersistenceContextOperations,
+        OrderChangeOperations, OrderQuantityOperations, OrderExportOperations, OrderRemovalOperations {
 
     @Override
     default Order store(Order order){
-        return save(order);
+        Order stored = save(order);
+        order.clearChanges();
+        return stored;
     }
 
+    /**
+     * Orders managed by the current persistence context are flushed by Hibernate, which already writes only
+     * dirty lines and increments the version. Their row is locked, and the version checked, before lines are
+     * inserted or deleted, so that a concurrent change of the same order fails on the version rather than on
+     * the (order_id, product_id) unique key.
+     * Detached orders are not merged, their recorded changes are written directly.
+     */
     @Override
+    default Order storeChanges(Order order) {
+        if (order.getId() == null || order.getVersion() == null) {
+            return store(order);
+        }
+        if (isManaged(order)) {
+            if (order.pendingChanges().isStructural()) {
+                lockVersion(order);
+            }
+            return store(order);
+        }
+        writeChanges(order);
+        return order;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     default Optional<Order> find(Long id){
         return findById(id);
     }
 
     @Override
-    default void remove(Order order) {
-        delete(order);
+    @Transactional(readOnly = true)
+    default Optional<Order> find(Long id, FetchPlan plan) {
+        return switch (plan) {
+            case ORDER -> findById(id);
+            case WITH_LINES -> findWithLinesById(id);
+            case WITH_LINES_AND_PRODUCTS -> findWithLinesAndProductsById(id);
+        };
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    default List<Order> findAll(Collection<Long> ids, FetchPlan plan) {
+        return switch (plan) {
+            case ORDER -> findAllById(ids);
+            case WITH_LINES -> findWithLinesByIdIn(ids);
+            case WITH_LINES_AND_PRODUCTS -> findWithLinesAndProductsByIdIn(ids);
+        };
+    }
+
+    @EntityGraph(attributePaths = "lines")
+    Optional<Order> findWithLinesById(Long id);
+
+    @EntityGraph(attributePaths = {"lines", "lines.product"})
+    Optional<Order> findWithLinesAndProductsById(Long id);
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findWithLinesByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"lines", "lines.product"})
+    List<Order> findWithLinesAndProductsByIdIn(Collection<Long> ids);
+
+    @Override
+    default List<Order> storeAll(Collection<Order> orders) {
+        return saveAll(orders);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    default List<OrderSummary> findSummaries(int page, int size) {
+        return findSummaries(PageRequest.of(page, size));
+    }
+
+    @Query(value = """
+            select new com.company.ordersservice.domain.OrderSummary(o.id, count(l.id), coalesce(sum(l.quantity), 0),
+                coalesce(sum(l.quantity * p.price), 0))
+            from Order o left join o.lines l left join l.product p
+            group by o.id
+            order by o.id""")
+    List<OrderSummary> findSummaries(Pageable pageable);
 }
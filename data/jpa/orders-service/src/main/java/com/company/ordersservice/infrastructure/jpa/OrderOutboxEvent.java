@@ -0,0 +1,47 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Order event waiting to be published. Ids are assigned by the database in insert order, unlike pooled sequences
+ * whose blocks interleave between instances, so that events of an order are relayed in the order they were appended.
+ * Only mapped for the schema, read and written with SQL by {@link OrderEventOperationsImpl}.
+ */
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "order_outbox", indexes = @Index(name = "idx_order_outbox_partition", columnList = "partition_no, id"))
+public class OrderOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "partition_no", nullable = false)
+    private int partition;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false, length = 20)
+    private String type;
+
+    private Long productId;
+
+    private Long lineId;
+
+    private int quantity;
+
+    @Column(nullable = false)
+    private Instant occurredAt;
+}
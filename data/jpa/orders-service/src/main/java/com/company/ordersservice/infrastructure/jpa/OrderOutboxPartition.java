@@ -0,0 +1,23 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row locked by the relay publishing a partition of the outbox, so that a partition is relayed by one transaction
+ * at a time, across instances. Only mapped for the schema, see {@link OrderOutboxEvent}.
+ */
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "order_outbox_partitions")
+public class OrderOutboxPartition {
+
+    @Id
+    @Column(name = "partition_no")
+    private Integer partition;
+}
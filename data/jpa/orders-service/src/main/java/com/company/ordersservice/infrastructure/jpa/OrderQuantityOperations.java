@@ -0,0 +1,17 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import java.util.Map;
+
+/**
+ * Spring Data fragment adding quantities to order lines with atomic upserts
+ */
+public interface OrderQuantityOperations {
+
+    void addQuantities(Long orderId, Map<Long, Integer> quantitiesByProductId);
+
+    boolean addQuantitiesOnce(Long orderId, Map<Long, Integer> quantitiesByProductId, long journalSequence);
+
+    long journalWatermark(Long orderId);
+
+    long maxJournalSequence();
+}
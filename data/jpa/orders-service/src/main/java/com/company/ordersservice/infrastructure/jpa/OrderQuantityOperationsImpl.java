@@ -0,0 +1,129 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.OrderLine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class OrderQuantityOperationsImpl implements OrderQuantityOperations {
+
+    /**
+     * MySQL upsert, also understood by H2 in MySQL mode. The unique key on (order_id, product_id) turns
+     * a concurrent second insert of the same product into an increment of the line inserted first.
+     * The row is selected from the order, so nothing is written to an order that is missing or removed.
+     */
+    private static final String UPSERT_LINE = """
+            insert into order_lines (id, order_id, product_id, quantity, version)
+            select ?, id, ?, ?, 0 from orders where id = ? and removed_at is null
+            on duplicate key update quantity = quantity + values(quantity), version = version + 1""";
+
+    private static final String SELECT_WATERMARK =
+            "select sequence from cart_journal_watermarks where order_id = ? for update";
+
+    private static final String SELECT_WATERMARK_NO_LOCK =
+            "select sequence from cart_journal_watermarks where order_id = ?";
+
+    private static final String UPSERT_WATERMARK = """
+            insert into cart_journal_watermarks (order_id, sequence) values (?, ?)
+            on duplicate key update sequence = values(sequence)""";
+
+    private static final String MAX_WATERMARK = "select coalesce(max(sequence), 0) from cart_journal_watermarks";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Rows are written in product id order, so that concurrent transactions lock lines in the same order
+     * and cannot deadlock. Every row consumes a line id, also when it ends up updating an existing line.
+     * The order row and its version are not touched, orders loaded before keep working with optimistic checks
+     * on the lines they change. Fails with a {@link DataIntegrityViolationException} when the order is missing
+     * or removed.
+     */
+    @Override
+    @Transactional
+    public void addQuantities(Long orderId, Map<Long, Integer> quantitiesByProductId) {
+        if (quantitiesByProductId.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(OrderLine.class).getGenerator();
+        try (SessionStatements statements = new SessionStatements(session)) {
+            PreparedStatement statement = statements.prepare(UPSERT_LINE);
+            for (Map.Entry<Long, Integer> quantity : new TreeMap<>(quantitiesByProductId).entrySet()) {
+                statement.setLong(1, (Long) generator.generate(session, null, null, EventType.INSERT));
+                statement.setLong(2, quantity.getKey());
+                statement.setInt(3, quantity.getValue());
+                statement.setLong(4, orderId);
+                statement.addBatch();
+            }
+            verifyOrderExists(statement.executeBatch(), orderId);
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "Could not add quantities to order " + orderId);
+        }
+    }
+
+    /**
+     * A row count of 0 means the select found no order, other counts are those of an insert or an update.
+     * Drivers rewriting batches may not report row counts, see OrderChangeOperationsImpl.
+     */
+    private static void verifyOrderExists(int[] counts, Long orderId) {
+        for (int count : counts) {
+            if (count == 0) {
+                throw new DataIntegrityViolationException("Order with id " + orderId + " no longer exists");
+            }
+        }
+    }
+
+    /**
+     * The watermark row is locked first, so concurrent calls for the same order are applied one after the other
+     */
+    @Override
+    @Transactional
+    public boolean addQuantitiesOnce(Long orderId, Map<Long, Integer> quantitiesByProductId, long journalSequence) {
+        List<?> watermark = entityManager.createNativeQuery(SELECT_WATERMARK)
+                .setParameter(1, orderId)
+                .getResultList();
+        if (!watermark.isEmpty() && ((Number) watermark.get(0)).longValue() >= journalSequence) {
+            return false;
+        }
+        entityManager.createNativeQuery(UPSERT_WATERMARK)
+                .setParameter(1, orderId)
+                .setParameter(2, journalSequence)
+                .executeUpdate();
+        addQuantities(orderId, quantitiesByProductId);
+        return true;
+    }
+
+    /**
+     * Not read-only, so that it is read from the primary: a lagging replica would return an older watermark
+     */
+    @Override
+    @Transactional
+    public long journalWatermark(Long orderId) {
+        List<?> watermark = entityManager.createNativeQuery(SELECT_WATERMARK_NO_LOCK)
+                .setParameter(1, orderId)
+                .getResultList();
+        return watermark.isEmpty() ? 0 : ((Number) watermark.get(0)).longValue();
+    }
+
+    /**
+     * Not read-only, so that it is read from the primary, see {@link #journalWatermark(Long)}
+     */
+    @Override
+    @Transactional
+    public long maxJournalSequence() {
+        return ((Number) entityManager.createNativeQuery(MAX_WATERMARK).getSingleResult()).longValue();
+    }
+}
@@ -0,0 +1,13 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Order;
+
+/**
+ * Spring Data fragment removing orders as tombstones and purging them in bulk
+ */
+public interface OrderRemovalOperations {
+
+    void remove(Order order);
+
+    int purgeRemoved(int maxOrders);
+}
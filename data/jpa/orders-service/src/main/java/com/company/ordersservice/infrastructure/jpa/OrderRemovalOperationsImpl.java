@@ -0,0 +1,87 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public class OrderRemovalOperationsImpl implements OrderRemovalOperations {
+
+    private static final String MARK_REMOVED = """
+            update orders set removed_at = ?, version = version + 1
+            where id = ? and version = ? and removed_at is null""";
+
+    private static final String SELECT_REMOVED =
+            "select id from orders where removed_at is not null order by removed_at, id";
+
+    private static final String DELETE_LINES = "delete from order_lines where order_id in (:ids)";
+
+    private static final String DELETE_WATERMARKS = "delete from cart_journal_watermarks where order_id in (:ids)";
+
+    private static final String DELETE_ORDERS = "delete from orders where id in (:ids) and removed_at is not null";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Lines are neither loaded nor touched. Removing an order never stored does nothing, removing one changed
+     * or removed since it was loaded fails the optimistic check. An order managed by the current persistence
+     * context is flushed first, so that its version is checked as stored, and detached afterwards, with its lines,
+     * so that it is no longer returned by lookups within the same transaction.
+     */
+    @Override
+    @Transactional
+    public void remove(Order order) {
+        if (order.getId() == null) {
+            return;
+        }
+        if (entityManager.contains(order)) {
+            entityManager.flush();
+        }
+        int marked = nativeQuery(MARK_REMOVED, "orders")
+                .setParameter(1, Instant.now())
+                .setParameter(2, order.getId())
+                .setParameter(3, order.getVersion())
+                .executeUpdate();
+        if (marked != 1) {
+            throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+        }
+        if (entityManager.contains(order)) {
+            entityManager.detach(order);
+        }
+    }
+
+    /**
+     * Lines are deleted before their orders because of the foreign key. Removed orders are never restored,
+     * so lines added to one in the meantime, e.g. by an atomic increment, are deleted along with it.
+     */
+    @Override
+    @Transactional
+    public int purgeRemoved(int maxOrders) {
+        List<?> ids = nativeQuery(SELECT_REMOVED, "orders")
+                .setMaxResults(maxOrders)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Long> orderIds = ids.stream().map(id -> ((Number) id).longValue()).toList();
+        nativeQuery(DELETE_LINES, "order_lines").setParameter("ids", orderIds).executeUpdate();
+        nativeQuery(DELETE_WATERMARKS, "cart_journal_watermarks").setParameter("ids", orderIds).executeUpdate();
+        return nativeQuery(DELETE_ORDERS, "orders").setParameter("ids", orderIds).executeUpdate();
+    }
+
+    /**
+     * Declares the table the statement works on, so that Hibernate does not invalidate every second level cache
+     * region, the product cache included, as it does for native statements it knows nothing about
+     */
+    private NativeQuery<?> nativeQuery(String sql, String table) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(table);
+    }
+}
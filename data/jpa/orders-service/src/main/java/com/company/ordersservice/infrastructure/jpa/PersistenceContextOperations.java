@@ -0,0 +1,9 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+/**
+ * Spring Data fragment giving repositories access to the underlying persistence context
+ */
+public interface PersistenceContextOperations {
+
+    void flushAndClear();
+}
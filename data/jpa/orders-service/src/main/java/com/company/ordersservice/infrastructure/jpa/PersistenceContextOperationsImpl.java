@@ -0,0 +1,16 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class PersistenceContextOperationsImpl implements PersistenceContextOperations {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,12 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+/**
+ * Spring Data fragment evicting products from the second-level cache
+ */
+public interface ProductCacheOperations {
+
+    /**
+     * Evicts the product once the current transaction commits, or immediately without a transaction
+     */
+    void evictFromCache(Long productId);
+}
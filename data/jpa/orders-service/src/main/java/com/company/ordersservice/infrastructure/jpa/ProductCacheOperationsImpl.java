@@ -0,0 +1,39 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.cache.ProductCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ProductCacheOperationsImpl implements ProductCacheOperations {
+
+    private final ProductCache productCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductCacheOperationsImpl(ProductCache productCache) {
+        this.productCache = productCache;
+    }
+
+    @Override
+    public void evictFromCache(Long productId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(productId);
+                }
+            });
+        } else {
+            evict(productId);
+        }
+    }
+
+    private void evict(Long productId) {
+        entityManager.getEntityManagerFactory().getCache().evict(Product.class, productId);
+        productCache.recordInvalidation();
+    }
+}
@@ -8,11 +8,17 @@ import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface ProductJpaRepository extends ProductRepository, JpaRepository<Product, Long> {
+public interface ProductJpaRepository extends ProductRepository, JpaRepository<Product, Long>, ProductCacheOperations,
+        ProductLookupOperations {
 
+    /**
+     * Products are read through the second-level cache, the stored one is evicted so the next read sees it
+     */
     @Override
     default Product store(Product product) {
-        return save(product);
+        Product stored = save(product);
+        evictFromCache(stored.getId());
+        return stored;
     }
 
     @Override
@@ -0,0 +1,13 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.ProductLookup;
+
+import java.util.Collection;
+
+/**
+ * Spring Data fragment resolving many products at once
+ */
+public interface ProductLookupOperations {
+
+    ProductLookup findAll(Collection<Long> ids);
+}
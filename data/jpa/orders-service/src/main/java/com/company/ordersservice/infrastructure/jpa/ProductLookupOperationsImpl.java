@@ -0,0 +1,56 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ProductLookup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ProductLookupOperationsImpl implements ProductLookupOperations {
+
+    /**
+     * Maximum number of ids bound to a single IN clause
+     */
+    static final int IN_CLAUSE_CHUNK = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Products already in the persistence context or the second-level cache are not queried again,
+     * the remaining ids are loaded with IN queries of at most {@link #IN_CLAUSE_CHUNK} ids.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ProductLookup findAll(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Product> loaded = entityManager.unwrap(Session.class)
+                .byMultipleIds(Product.class)
+                .with(CacheMode.NORMAL)
+                .enableSessionCheck(true)
+                .withBatchSize(IN_CLAUSE_CHUNK)
+                .multiLoad(distinct);
+
+        Map<Long, Product> products = new HashMap<>(Math.max(16, distinct.size() * 2));
+        Set<Long> missingIds = new LinkedHashSet<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            Product product = loaded.get(i);
+            if (product == null) {
+                missingIds.add(distinct.get(i));
+            } else {
+                products.put(distinct.get(i), product);
+            }
+        }
+        return new ProductLookup(products, missingIds);
+    }
+}
@@ -0,0 +1,23 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Time the primary database was last known alive, written to the primary and read back from every replica
+ * to measure how far behind it is. Only mapped for the schema, read and written with SQL by ReplicaRouter.
+ */
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "replication_heartbeats")
+public class ReplicationHeartbeat {
+
+    @Id
+    private Integer id;
+
+    private long beatMillis;
+}
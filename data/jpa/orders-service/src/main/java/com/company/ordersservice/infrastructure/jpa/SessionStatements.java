@@ -0,0 +1,39 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.resource.jdbc.ResourceRegistry;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statements prepared through the JDBC coordinator of the session, so that they are counted by its statistics.
+ * Closing releases only the statements prepared here, resources Hibernate still holds for the session, such as
+ * pending batches or open result sets, are left alone.
+ */
+class SessionStatements implements AutoCloseable {
+
+    private final JdbcCoordinator jdbc;
+
+    private final List<PreparedStatement> prepared = new ArrayList<>();
+
+    SessionStatements(SharedSessionContractImplementor session) {
+        this.jdbc = session.getJdbcCoordinator();
+    }
+
+    PreparedStatement prepare(String sql) {
+        PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+        prepared.add(statement);
+        return statement;
+    }
+
+    @Override
+    public void close() {
+        ResourceRegistry resources = jdbc.getLogicalConnection().getResourceRegistry();
+        prepared.forEach(resources::release);
+        prepared.clear();
+        jdbc.afterStatementExecution();
+    }
+}
@@ -0,0 +1,21 @@
+package com.company.ordersservice.infrastructure.metrics;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Counts the JDBC statements Hibernate prepares on each thread, from the same session events
+ * that feed Hibernate statistics. Registered for every session with hibernate.session.events.auto.
+ */
+public class StatementCountingListener implements SessionEventListener {
+
+    private static final ThreadLocal<long[]> PREPARED = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        PREPARED.get()[0]++;
+    }
+
+    public static long currentThreadCount() {
+        return PREPARED.get()[0];
+    }
+}
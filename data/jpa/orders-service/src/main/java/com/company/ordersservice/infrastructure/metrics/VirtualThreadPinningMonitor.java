@@ -0,0 +1,85 @@
+package com.company.ordersservice.infrastructure.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads blocking while pinned to their carrier thread, typically inside a synchronized block
+ * of a JDBC driver or pool, which silently turns virtual threads back into a small pool of platform threads.
+ * Listens to the jdk.VirtualThreadPinned JFR event, counts it and logs where it happened.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Counter pinned;
+
+    private final Duration threshold;
+
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.threshold = threshold;
+        this.pinned = Counter.builder("orders.virtual.threads.pinned")
+                .description("Virtual threads blocked while pinned to their carrier for longer than " + threshold)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(EVENT, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frames(event.getStackTrace()));
+    }
+
+    private static String frames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown location";
+        }
+        return stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::frame)
+                .collect(Collectors.joining(" <- "));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        if (recording != null) {
+            recording.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    public double getPinnedCount() {
+        return pinned.count();
+    }
+}
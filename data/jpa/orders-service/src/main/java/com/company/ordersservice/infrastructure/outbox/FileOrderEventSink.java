@@ -0,0 +1,86 @@
+package com.company.ordersservice.infrastructure.outbox;
+
+import com.company.ordersservice.application.OrderEventSink;
+import com.company.ordersservice.domain.OrderEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends the published events to a local file, one JSON object per line:
+ * {"id":1,"orderId":2,"type":"PRODUCT_ADDED","productId":3,"lineId":null,"quantity":1,"occurredAt":"..."}.
+ * With sync every batch is forced to disk before it counts as published. Stands in for a message broker
+ * when the service runs offline.
+ */
+public class FileOrderEventSink implements OrderEventSink, AutoCloseable {
+
+    private final Path file;
+
+    private final boolean sync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final FileChannel channel;
+
+    public FileOrderEventSink(Path file, boolean sync) {
+        this.file = file;
+        this.sync = sync;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open order event file " + file, e);
+        }
+    }
+
+    /**
+     * A batch is written with a single write, batches of concurrent partitions do not interleave
+     */
+    @Override
+    public void publish(List<OrderEvent> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 128);
+        events.forEach(event -> append(lines, event));
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        lock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write order events to " + file, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void append(StringBuilder lines, OrderEvent event) {
+        lines.append("{\"id\":").append(event.id())
+                .append(",\"orderId\":").append(event.orderId())
+                .append(",\"type\":\"").append(event.type().name()).append('"')
+                .append(",\"productId\":").append(event.productId())
+                .append(",\"lineId\":").append(event.lineId())
+                .append(",\"quantity\":").append(event.quantity())
+                .append(",\"occurredAt\":\"").append(event.occurredAt()).append("\"}\n");
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close order event file " + file, e);
+        }
+    }
+}
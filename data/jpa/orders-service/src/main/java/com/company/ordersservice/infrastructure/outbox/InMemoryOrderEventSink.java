@@ -0,0 +1,28 @@
+package com.company.ordersservice.infrastructure.outbox;
+
+import com.company.ordersservice.application.OrderEventSink;
+import com.company.ordersservice.domain.OrderEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the published events in memory, in the order they were published, for tests and local runs
+ */
+public class InMemoryOrderEventSink implements OrderEventSink {
+
+    private final List<OrderEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<OrderEvent> published) {
+        events.addAll(published);
+    }
+
+    public synchronized List<OrderEvent> getEvents() {
+        return List.copyOf(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,101 @@
+package com.company.ordersservice.infrastructure.r2dbc;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * Pool of non-blocking connections to the database also used through JPA, with the client the repositories of
+ * the reactive adapter run their statements with. Statements join the transaction of the subscriber, if any.
+ *
+ * Sequences are read outside of any transaction, as Hibernate does: on MySQL they are emulated with single row tables
+ * whose row would otherwise stay locked until the caller's transaction ends. They are read from a small pool of their
+ * own, a transaction waiting for ids never waits for a connection behind transactions waiting for the one it holds.
+ */
+public class R2dbcDatabase implements AutoCloseable {
+
+    private final ConnectionPool pool;
+
+    private final ConnectionPool sequencePool;
+
+    private final DatabaseClient client;
+
+    private final Dialect dialect;
+
+    public R2dbcDatabase(ConnectionPool pool, ConnectionPool sequencePool) {
+        this.pool = pool;
+        this.sequencePool = sequencePool;
+        this.client = DatabaseClient.create(pool);
+        this.dialect = Dialect.of(pool.getMetadata().getName());
+    }
+
+    public DatabaseClient getClient() {
+        return client;
+    }
+
+    /**
+     * A transaction manager of its own rather than a bean, which would make the JPA one ambiguous
+     */
+    public ReactiveTransactionManager transactionManager() {
+        return new R2dbcTransactionManager(pool);
+    }
+
+    /**
+     * Next value of the sequence, incremented by increment
+     */
+    public Mono<Long> nextValue(String sequence, int increment) {
+        return Mono.usingWhen(sequencePool.create(), connection -> dialect.nextValue(connection, sequence, increment),
+                Connection::close);
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+        sequencePool.dispose();
+    }
+
+    private enum Dialect {
+
+        H2 {
+            @Override
+            Mono<Long> nextValue(Connection connection, String sequence, int increment) {
+                return Mono.from(connection.createStatement("select next value for " + sequence).execute())
+                        .flatMap(result -> Mono.from(result.map(row -> row.get(0, Number.class).longValue())));
+            }
+        },
+
+        /**
+         * Hibernate's table emulation: the sequence table holds the next value, the update stores it incremented
+         * and keeps it for last_insert_id() of the same connection
+         */
+        MYSQL {
+            @Override
+            Mono<Long> nextValue(Connection connection, String sequence, int increment) {
+                String update = "update " + sequence + " set next_val = last_insert_id(next_val + " + increment + ")";
+                return Mono.from(connection.createStatement(update).execute())
+                        .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                        .then(Mono.from(connection.createStatement("select last_insert_id()").execute()))
+                        .flatMap(result -> Mono.from(result.map(row -> row.get(0, Number.class).longValue())))
+                        .map(incremented -> incremented - increment);
+            }
+        };
+
+        abstract Mono<Long> nextValue(Connection connection, String sequence, int increment);
+
+        static Dialect of(String databaseName) {
+            String name = databaseName.toLowerCase(Locale.ROOT);
+            if (name.contains("h2")) {
+                return H2;
+            }
+            if (name.contains("mysql") || name.contains("mariadb")) {
+                return MYSQL;
+            }
+            throw new IllegalStateException("Unsupported database " + databaseName);
+        }
+    }
+}
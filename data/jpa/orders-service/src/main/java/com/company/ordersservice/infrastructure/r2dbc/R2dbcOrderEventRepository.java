@@ -0,0 +1,62 @@
+package com.company.ordersservice.infrastructure.r2dbc;
+
+import com.company.ordersservice.domain.OrderEvent;
+import com.company.ordersservice.domain.ReactiveOrderEventRepository;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Appends all events with one multi-row statement. Columns not set for the type of an event are written as
+ * null literals rather than bound, drivers need the type of a bound null.
+ */
+public class R2dbcOrderEventRepository implements ReactiveOrderEventRepository {
+
+    private static final String INSERT_EVENTS = "insert into order_outbox "
+            + "(partition_no, order_id, type, product_id, line_id, quantity, occurred_at) values ";
+
+    private final DatabaseClient client;
+
+    public R2dbcOrderEventRepository(R2dbcDatabase database) {
+        this.client = database.getClient();
+    }
+
+    @Override
+    public Mono<Void> append(List<OrderEvent> events, int partitions) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        StringBuilder sql = new StringBuilder(INSERT_EVENTS);
+        for (int i = 0; i < events.size(); i++) {
+            OrderEvent event = events.get(i);
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:partition").append(i)
+                    .append(", :order").append(i)
+                    .append(", :type").append(i)
+                    .append(event.productId() == null ? ", null" : ", :product" + i)
+                    .append(event.lineId() == null ? ", null" : ", :line" + i)
+                    .append(", :quantity").append(i)
+                    .append(", :occurred").append(i)
+                    .append(')');
+        }
+        DatabaseClient.GenericExecuteSpec statement = client.sql(sql.toString());
+        for (int i = 0; i < events.size(); i++) {
+            OrderEvent event = events.get(i);
+            statement = statement.bind("partition" + i, event.partition(partitions))
+                    .bind("order" + i, event.orderId())
+                    .bind("type" + i, event.type().name())
+                    .bind("quantity" + i, event.quantity())
+                    .bind("occurred" + i, OffsetDateTime.ofInstant(event.occurredAt(), ZoneOffset.UTC));
+            if (event.productId() != null) {
+                statement = statement.bind("product" + i, event.productId());
+            }
+            if (event.lineId() != null) {
+                statement = statement.bind("line" + i, event.lineId());
+            }
+        }
+        return statement.then();
+    }
+}
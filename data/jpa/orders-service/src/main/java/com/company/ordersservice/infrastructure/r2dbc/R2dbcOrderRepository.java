@@ -0,0 +1,245 @@
+package com.company.ordersservice.infrastructure.r2dbc;
+
+import com.company.ordersservice.domain.Money;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderChanges;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ReactiveOrderRepository;
+import io.r2dbc.spi.Readable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the Order aggregate with explicit statements, the same ones the JPA adapter writes changes and quantity
+ * increments with, so both adapters can work on the same database at the same time. Rows of several lines
+ * are written by a single multi-row statement. Ids come from the sequences Hibernate uses.
+ */
+public class R2dbcOrderRepository implements ReactiveOrderRepository {
+
+    private static final String INSERT_ORDER = "insert into orders (id, version) values (:id, 0)";
+
+    private static final String INSERT_LINES =
+            "insert into order_lines (id, order_id, product_id, quantity, version) values :lines";
+
+    private static final String BUMP_ORDER_VERSION =
+            "update orders set version = version + 1 where id = :id and version = :version and removed_at is null";
+
+    private static final String DELETE_LINES =
+            "delete from order_lines where order_id = :orderId and (id, version) in (:lines)";
+
+    private static final String UPDATE_LINE_QUANTITY =
+            "update order_lines set quantity = :quantity, version = version + 1 where id = :id and version = :version";
+
+    /**
+     * MySQL upsert, also understood by H2 in MySQL mode, see OrderQuantityOperationsImpl. Nothing is written
+     * for an order removed or missing.
+     */
+    private static final String UPSERT_LINE = """
+            insert into order_lines (id, order_id, product_id, quantity, version)
+            select :id, id, :productId, :quantity, 0 from orders where id = :orderId and removed_at is null
+            on duplicate key update quantity = quantity + values(quantity), version = version + 1""";
+
+    private static final String MARK_REMOVED = """
+            update orders set removed_at = :removedAt, version = version + 1
+            where id = :id and version = :version and removed_at is null""";
+
+    private static final String SELECT_ORDER = "select id, version from orders where id = :id and removed_at is null";
+
+    private static final String SELECT_LINES = """
+            select l.id, l.quantity, l.version, p.id as product_id, p.name, p.price
+            from order_lines l left join products p on p.id = l.product_id
+            where l.order_id = :orderId
+            order by l.id""";
+
+    private final DatabaseClient client;
+
+    private final R2dbcSequence orderIds;
+
+    private final R2dbcSequence lineIds;
+
+    public R2dbcOrderRepository(R2dbcDatabase database, R2dbcSequence orderIds, R2dbcSequence lineIds) {
+        this.client = database.getClient();
+        this.orderIds = orderIds;
+        this.lineIds = lineIds;
+    }
+
+    @Override
+    public Mono<Order> store(Order order) {
+        return Mono.defer(() -> {
+            List<OrderLine> lines = List.copyOf(order.getLines());
+            return Mono.zip(orderIds.next(), lineIds.next(lines.size())).flatMap(ids -> {
+                Long orderId = ids.getT1();
+                return client.sql(INSERT_ORDER)
+                        .bind("id", orderId)
+                        .then()
+                        .then(insertLines(orderId, lines, ids.getT2()))
+                        .then(Mono.fromCallable(() -> {
+                            order.inserted(orderId, ids.getT2());
+                            return order;
+                        }));
+            });
+        });
+    }
+
+    /**
+     * The order row is only touched when lines are inserted or removed, and is written first so that concurrent
+     * structural changes conflict before any line is written, see OrderChangeOperationsImpl
+     */
+    @Override
+    public Mono<Order> storeChanges(Order order) {
+        if (order.getId() == null) {
+            return store(order);
+        }
+        return Mono.defer(() -> {
+            OrderChanges changes = order.pendingChanges();
+            if (changes.isEmpty()) {
+                return Mono.just(order);
+            }
+            List<OrderLine> inserted = List.copyOf(changes.getInserted());
+            List<OrderLine> updated = List.copyOf(changes.getUpdated());
+            List<OrderLine> removed = List.copyOf(changes.getRemoved());
+            return lineIds.next(inserted.size()).flatMap(ids -> {
+                Mono<Void> bump = changes.isStructural() ? bumpVersion(order) : Mono.empty();
+                return bump.then(deleteLines(order.getId(), removed))
+                        .then(updateQuantities(updated))
+                        .then(insertLines(order.getId(), inserted, ids))
+                        .then(Mono.fromCallable(() -> {
+                            order.changesStored(ids);
+                            return order;
+                        }));
+            });
+        });
+    }
+
+    @Override
+    public Mono<Order> find(Long id) {
+        return client.sql(SELECT_ORDER)
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one()
+                .flatMap(version -> client.sql(SELECT_LINES)
+                        .bind("orderId", id)
+                        .map(R2dbcOrderRepository::line)
+                        .all()
+                        .collect(ArrayList<OrderLine>::new, ArrayList::add)
+                        .map(lines -> new Order(id, version, lines)));
+    }
+
+    /**
+     * Rows are written one statement each, in product id order, so that concurrent transactions lock lines
+     * in the same order and cannot deadlock. Every row consumes a line id, also when it ends up updating
+     * an existing line.
+     */
+    @Override
+    public Mono<Void> addQuantities(Long orderId, Map<Long, Integer> quantitiesByProductId) {
+        if (quantitiesByProductId.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Map.Entry<Long, Integer>> sorted = List.copyOf(new TreeMap<>(quantitiesByProductId).entrySet());
+        return lineIds.next(sorted.size()).flatMapMany(ids -> Flux.range(0, sorted.size())
+                        .concatMap(i -> client.sql(UPSERT_LINE)
+                                .bind("id", ids.get(i))
+                                .bind("productId", sorted.get(i).getKey())
+                                .bind("quantity", sorted.get(i).getValue())
+                                .bind("orderId", orderId)
+                                .fetch()
+                                .rowsUpdated()))
+                .filter(rows -> rows == 0)
+                .next()
+                .flatMap(rows -> Mono.<Void>error(new DataIntegrityViolationException("Order with id " + orderId
+                        + " no longer exists")));
+    }
+
+    /**
+     * Lines are neither loaded nor touched. Removing an order never stored does nothing, an order changed
+     * or removed since it was loaded fails the optimistic check.
+     */
+    @Override
+    public Mono<Void> remove(Order order) {
+        if (order.getId() == null) {
+            return Mono.empty();
+        }
+        return client.sql(MARK_REMOVED)
+                .bind("removedAt", OffsetDateTime.now(ZoneOffset.UTC))
+                .bind("id", order.getId())
+                .bind("version", order.getVersion())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> rows == 1 ? Mono.<Void>empty()
+                        : Mono.error(new OptimisticLockingFailureException("Order with id " + order.getId()
+                        + " was changed or removed concurrently")));
+    }
+
+    private Mono<Void> bumpVersion(Order order) {
+        return client.sql(BUMP_ORDER_VERSION)
+                .bind("id", order.getId())
+                .bind("version", order.getVersion())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> rows == 1 ? Mono.<Void>empty()
+                        : Mono.error(new OptimisticLockingFailureException("Order with id " + order.getId()
+                        + " was changed or removed concurrently")));
+    }
+
+    private Mono<Void> deleteLines(Long orderId, List<OrderLine> lines) {
+        if (lines.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Object[]> keys = lines.stream().map(line -> new Object[]{line.getId(), line.getVersion()}).toList();
+        return client.sql(DELETE_LINES)
+                .bind("orderId", orderId)
+                .bind("lines", keys)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> rows == lines.size() ? Mono.<Void>empty()
+                        : Mono.error(new OptimisticLockingFailureException("Lines of order with id " + orderId
+                        + " were changed concurrently")));
+    }
+
+    private Mono<Void> updateQuantities(List<OrderLine> lines) {
+        return Flux.fromIterable(lines)
+                .concatMap(line -> client.sql(UPDATE_LINE_QUANTITY)
+                        .bind("quantity", line.getQuantity())
+                        .bind("id", line.getId())
+                        .bind("version", line.getVersion())
+                        .fetch()
+                        .rowsUpdated()
+                        .flatMap(rows -> rows == 1 ? Mono.<Void>empty()
+                                : Mono.error(new OptimisticLockingFailureException("Order line with id "
+                                + line.getId() + " was changed concurrently"))))
+                .then();
+    }
+
+    private Mono<Void> insertLines(Long orderId, List<OrderLine> lines, List<Long> ids) {
+        if (lines.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Object[]> rows = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            OrderLine line = lines.get(i);
+            rows.add(new Object[]{ids.get(i), orderId, line.getProduct().getId(), line.getQuantity(), 0L});
+        }
+        return client.sql(INSERT_LINES).bind("lines", rows).then();
+    }
+
+    private static OrderLine line(Readable row) {
+        Long productId = row.get("product_id", Long.class);
+        BigDecimal price = row.get("price", BigDecimal.class);
+        Product product = productId == null ? null
+                : new Product(productId, row.get("name", String.class), price == null ? null : Money.of(price));
+        return new OrderLine(row.get("id", Long.class), product, row.get("quantity", Integer.class),
+                row.get("version", Long.class));
+    }
+}
@@ -0,0 +1,83 @@
+package com.company.ordersservice.infrastructure.r2dbc;
+
+import com.company.ordersservice.domain.Money;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ProductLookup;
+import com.company.ordersservice.domain.ReactiveProductRepository;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Products are not cached: the second level cache of the JPA adapter is not shared with this one
+ */
+public class R2dbcProductRepository implements ReactiveProductRepository {
+
+    private static final String INSERT_PRODUCT = "insert into products (id, name, price) values (:id, :name, :price)";
+
+    private static final String SELECT_PRODUCT = "select id, name, price from products where id = :id";
+
+    private static final String SELECT_PRODUCTS = "select id, name, price from products where id in (:ids)";
+
+    private final DatabaseClient client;
+
+    private final R2dbcSequence ids;
+
+    public R2dbcProductRepository(R2dbcDatabase database, R2dbcSequence ids) {
+        this.client = database.getClient();
+        this.ids = ids;
+    }
+
+    /**
+     * Inserts the product, products are never updated
+     */
+    @Override
+    public Mono<Product> store(Product product) {
+        return ids.next().flatMap(id -> client.sql(INSERT_PRODUCT)
+                .bind("id", id)
+                .bind("name", product.getName())
+                .bind("price", product.getPrice().toBigDecimal())
+                .then()
+                .thenReturn(new Product(id, product.getName(), product.getPrice())));
+    }
+
+    @Override
+    public Mono<Product> find(Long id) {
+        return client.sql(SELECT_PRODUCT)
+                .bind("id", id)
+                .map(R2dbcProductRepository::product)
+                .one();
+    }
+
+    @Override
+    public Mono<ProductLookup> findAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(new ProductLookup(Map.of(), Set.of()));
+        }
+        Set<Long> requested = new HashSet<>(ids);
+        return client.sql(SELECT_PRODUCTS)
+                .bind("ids", requested)
+                .map(R2dbcProductRepository::product)
+                .all()
+                .collect(Collectors.toMap(Product::getId, Function.identity()))
+                .map(products -> {
+                    Set<Long> missingIds = new HashSet<>(requested);
+                    missingIds.removeAll(products.keySet());
+                    return new ProductLookup(products, missingIds);
+                });
+    }
+
+    static Product product(Readable row) {
+        BigDecimal price = row.get("price", BigDecimal.class);
+        return new Product(row.get("id", Long.class), row.get("name", String.class),
+                price == null ? null : Money.of(price));
+    }
+}
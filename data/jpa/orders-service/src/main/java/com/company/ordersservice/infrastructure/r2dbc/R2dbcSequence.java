@@ -0,0 +1,72 @@
+package com.company.ordersservice.infrastructure.r2dbc;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Ids from a database sequence shared with Hibernate, allocated the way its pooled-lo optimizer does
+ * (hibernate.id.optimizer.pooled.preferred=pooled-lo): a value read from the sequence is the lowest id of a block
+ * of increment ids. Reads only happen once the blocks at hand are used up, concurrent callers may read a block each,
+ * the one not needed right away is kept for later.
+ */
+public class R2dbcSequence {
+
+    private final R2dbcDatabase database;
+
+    private final String name;
+
+    private final int increment;
+
+    /**
+     * Blocks not used up yet, as {next id, end of the block}
+     */
+    private final Deque<long[]> blocks = new ArrayDeque<>();
+
+    public R2dbcSequence(R2dbcDatabase database, String name, int increment) {
+        this.database = database;
+        this.name = name;
+        this.increment = increment;
+    }
+
+    public Mono<Long> next() {
+        return next(1).map(List::getFirst);
+    }
+
+    public Mono<List<Long>> next(int count) {
+        return Mono.defer(() -> {
+            List<Long> ids = new ArrayList<>(count);
+            take(ids, count);
+            int missing = count - ids.size();
+            if (missing == 0) {
+                return Mono.just(ids);
+            }
+            return Flux.range(0, (missing + increment - 1) / increment)
+                    .concatMap(block -> database.nextValue(name, increment))
+                    .doOnNext(this::add)
+                    .then(next(missing))
+                    .map(rest -> {
+                        ids.addAll(rest);
+                        return ids;
+                    });
+        });
+    }
+
+    private synchronized void take(List<Long> ids, int count) {
+        while (ids.size() < count && !blocks.isEmpty()) {
+            long[] block = blocks.peekFirst();
+            ids.add(block[0]++);
+            if (block[0] == block[1]) {
+                blocks.pollFirst();
+            }
+        }
+    }
+
+    private synchronized void add(long low) {
+        blocks.addLast(new long[]{low, low + increment});
+    }
+}
@@ -4,14 +4,20 @@ VALUES (1,'Drill', 156.34);
 INSERT INTO products (id, name, price)
 VALUES (2,'Saw', 86.23);
 
-INSERT INTO orders (id)
-VALUES (1);
+INSERT INTO orders (id, version)
+VALUES (1, 0);
 
-INSERT INTO order_lines (id, product_id, quantity, order_id)
-VALUES (1,1,1,1);
+INSERT INTO order_lines (id, product_id, quantity, order_id, version)
+VALUES (1,1,1,1,0);
 
-INSERT INTO order_lines (id, product_id, quantity, order_id)
-VALUES (2,2,5,1);
+INSERT INTO order_lines (id, product_id, quantity, order_id, version)
+VALUES (2,2,5,1,0);
+
+-- MySQL has no native sequences, Hibernate emulates them with single row tables.
+-- Move them past the seeded ids so the first pooled block does not collide with the rows above.
+UPDATE products_seq SET next_val = 51;
+UPDATE orders_seq SET next_val = 51;
+UPDATE order_lines_seq SET next_val = 51;
 
 --INSERT INTO orders_lines (order_id, lines_id)
 --VALUES (1,1);
@@ -0,0 +1,44 @@
+-- Schema of the entities as of the introduction of migrations, applied by Flyway in the prod profile.
+-- Hibernate only validates it there (ddl-auto=validate), any later entity change needs a migration of its own,
+-- for the embedded database here and for MySQL in ../mysql.
+
+create table products (
+    id bigint not null,
+    name varchar(255),
+    price decimal(19,2),
+    primary key (id)
+);
+
+create table orders (
+    id bigint not null,
+    version bigint,
+    primary key (id)
+);
+
+create table order_lines (
+    id bigint not null,
+    order_id bigint not null,
+    product_id bigint,
+    quantity integer,
+    version bigint,
+    primary key (id),
+    constraint uk_order_lines_order_product unique (order_id, product_id),
+    constraint fk_order_lines_order foreign key (order_id) references orders (id),
+    constraint fk_order_lines_product foreign key (product_id) references products (id)
+);
+
+create sequence products_seq start with 1 increment by 50;
+create sequence orders_seq start with 1 increment by 50;
+create sequence order_lines_seq start with 1 increment by 50;
+
+create table cart_journal_watermarks (
+    order_id bigint not null,
+    sequence bigint not null,
+    primary key (order_id)
+);
+
+create table replication_heartbeats (
+    id integer not null,
+    beat_millis bigint not null,
+    primary key (id)
+);
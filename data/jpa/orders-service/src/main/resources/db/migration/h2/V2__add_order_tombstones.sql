@@ -0,0 +1,4 @@
+-- Removed orders are marked instead of deleted, OrderPurger deletes them with their lines later on.
+-- Unlike ../mysql no index on removed_at: the embedded database would use it rather than the primary key
+-- for every read of live orders (removed_at is null), keyset pages then scan all orders.
+alter table orders add column removed_at timestamp(6) with time zone;
@@ -0,0 +1,56 @@
+-- Schema of the entities as of the introduction of migrations, applied by Flyway in the prod profile.
+-- Hibernate only validates it there (ddl-auto=validate), any later entity change needs a migration of its own,
+-- for MySQL here and for the embedded database in ../h2.
+
+create table products (
+    id bigint not null,
+    name varchar(255),
+    price decimal(19,2),
+    primary key (id)
+) engine=InnoDB;
+
+create table orders (
+    id bigint not null,
+    version bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table order_lines (
+    id bigint not null,
+    order_id bigint not null,
+    product_id bigint,
+    quantity integer,
+    version bigint,
+    primary key (id),
+    constraint uk_order_lines_order_product unique (order_id, product_id),
+    constraint fk_order_lines_order foreign key (order_id) references orders (id),
+    constraint fk_order_lines_product foreign key (product_id) references products (id)
+) engine=InnoDB;
+
+-- MySQL has no native sequences, Hibernate emulates them with single row tables
+create table products_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into products_seq values (1);
+
+create table orders_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into orders_seq values (1);
+
+create table order_lines_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into order_lines_seq values (1);
+
+create table cart_journal_watermarks (
+    order_id bigint not null,
+    sequence bigint not null,
+    primary key (order_id)
+) engine=InnoDB;
+
+create table replication_heartbeats (
+    id integer not null,
+    beat_millis bigint not null,
+    primary key (id)
+) engine=InnoDB;
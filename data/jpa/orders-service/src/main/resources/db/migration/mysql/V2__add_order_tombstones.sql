@@ -0,0 +1,4 @@
+-- Removed orders are marked instead of deleted, OrderPurger deletes them with their lines later on.
+-- The index lets the purge find them without scanning the table, reads of live orders keep using the primary key.
+alter table orders add column removed_at datetime(6);
+create index idx_orders_removed_at on orders (removed_at);
@@ -0,0 +1,20 @@
+-- Events of order changes, appended in the transaction of the change and deleted once published by OutboxRelay.
+-- Ids are auto increments so that events are relayed in insert order, the index serves the claim of a partition.
+create table order_outbox (
+    id bigint not null auto_increment,
+    partition_no integer not null,
+    order_id bigint not null,
+    type varchar(20) not null,
+    product_id bigint,
+    line_id bigint,
+    quantity integer not null,
+    occurred_at datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+create index idx_order_outbox_partition on order_outbox (partition_no, id);
+
+-- One row per partition, locked with SKIP LOCKED by the relay publishing it
+create table order_outbox_partitions (
+    partition_no integer not null,
+    primary key (partition_no)
+) engine=InnoDB;
@@ -0,0 +1,222 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.journal.FileCartJournal;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a synthetic click stream through the write-behind cart buffer and checks journal replay after a crash
+ */
+@SpringBootTest(properties = {
+        "orders.cart-buffer.enabled=true",
+        "orders.cart-buffer.journal=${java.io.tmpdir}/orders-service-${random.uuid}/cart.journal",
+        "orders.cart-buffer.max-delay=1h"})
+@ActiveProfiles("h2")
+public class BufferedOrderPortTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BufferedOrderPortTest.class);
+
+    private static final int ORDERS = 40;
+
+    private static final int CLICKS = 4_000;
+
+    @Autowired
+    private BufferedOrderPort bufferedOrderPort;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private TransactionRunner transactionRunner;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    private Path journalDirectory;
+
+    /**
+     * Replays the same synthetic click stream, a few popular products clicked many times per order,
+     * against the buffered port and directly against OrderService
+     */
+    @Test
+    public void shouldSaveDatabaseWritesUnderClickStream() {
+        List<Product> products = storeProducts(10);
+        List<Order> buffered = createOrders();
+        List<Order> direct = createOrders();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        long flushesBefore = bufferedOrderPort.getFlushes();
+        clickStream(products, (order, product) -> bufferedOrderPort.addProduct(buffered.get(order), product));
+        buffered.forEach(bufferedOrderPort::checkout);
+        long bufferedStatements = statistics.getPrepareStatementCount();
+        long bufferedTransactions = bufferedOrderPort.getFlushes() - flushesBefore;
+
+        statistics.clear();
+        clickStream(products, (order, product) -> orderService.addProduct(direct.get(order), product));
+        long directStatements = statistics.getPrepareStatementCount();
+
+        log.info("{} clicks on {} orders: buffered {} transactions {} statements (checkout reads included), "
+                + "direct {} transactions {} statements", CLICKS, ORDERS, bufferedTransactions, bufferedStatements,
+                CLICKS, directStatements);
+        for (int i = 0; i < ORDERS; i++) {
+            Assertions.assertEquals(stored(direct.get(i)), stored(buffered.get(i)));
+        }
+        Assertions.assertTrue(bufferedTransactions < CLICKS / 10);
+        Assertions.assertTrue(bufferedStatements * 3 < directStatements);
+    }
+
+    @Test
+    public void shouldRejectProductsNotStoredYet() {
+        Order order = orderService.createOrder();
+        Product unsaved = new Product(null, "Unsaved", 1.0);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bufferedOrderPort.addProduct(order, unsaved));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                bufferedOrderPort.addProducts(order, List.of(unsaved)));
+        Assertions.assertEquals(Map.of(), bufferedOrderPort.quantities(order));
+    }
+
+    @Test
+    public void shouldServeReadsFromBufferOverStoredLines() {
+        List<Product> products = storeProducts(2);
+        Order order = orderService.createOrder();
+        orderService.addProduct(order, products.get(0));
+        long flushes = bufferedOrderPort.getFlushes();
+
+        bufferedOrderPort.addProduct(order, products.get(0));
+        bufferedOrderPort.addProducts(order, List.of(products.get(1), products.get(1)));
+
+        Assertions.assertEquals(Map.of(products.get(0).getId(), 2, products.get(1).getId(), 2),
+                bufferedOrderPort.quantities(order));
+        Assertions.assertEquals(Map.of(products.get(0).getId(), 1), stored(order));
+        Assertions.assertEquals(flushes, bufferedOrderPort.getFlushes());
+
+        bufferedOrderPort.checkout(order);
+        Assertions.assertEquals(Map.of(products.get(0).getId(), 2, products.get(1).getId(), 2), stored(order));
+    }
+
+    /**
+     * A product deleted, or never stored, after its addition was acknowledged loses that addition only
+     */
+    @Test
+    public void shouldDropAdditionsOfMissingProductsOnly() {
+        List<Product> products = storeProducts(2);
+        Product missing = new Product(Long.MAX_VALUE, "Missing", 1.0);
+        Order order = orderService.createOrder();
+
+        bufferedOrderPort.addProduct(order, products.get(0));
+        bufferedOrderPort.addProducts(order, List.of(missing, products.get(1), products.get(1)));
+
+        bufferedOrderPort.checkout(order);
+        Assertions.assertEquals(Map.of(products.get(0).getId(), 1, products.get(1).getId(), 2), stored(order));
+    }
+
+    /**
+     * The first port is abandoned without flushing as in a crash, after having written one of its two orders.
+     * Replaying its journal adds the other order's clicks, journaled a call at a time, once and skips those
+     * already written.
+     */
+    @Test
+    public void shouldReplayJournalOnceAfterCrash() {
+        Path journal = journalDirectory.resolve("cart.journal");
+        List<Product> products = storeProducts(3);
+        Order flushed = orderService.createOrder();
+        Order lost = orderService.createOrder();
+
+        try (FileCartJournal crashingJournal = new FileCartJournal(journal, true)) {
+            BufferedOrderPort crashing = port(crashingJournal);
+            crashing.replay();
+            for (Product product : products) {
+                crashing.addProduct(flushed, product);
+            }
+            crashing.addProducts(lost, products);
+            crashing.addProducts(lost, products);
+            crashing.checkout(flushed);
+        }
+
+        try (FileCartJournal restartedJournal = new FileCartJournal(journal, true)) {
+            port(restartedJournal).replay();
+        }
+
+        Map<Long, Integer> once = products.stream().collect(Collectors.toMap(Product::getId, product -> 1));
+        Map<Long, Integer> twice = products.stream().collect(Collectors.toMap(Product::getId, product -> 2));
+        Assertions.assertEquals(once, stored(flushed));
+        Assertions.assertEquals(twice, stored(lost));
+
+        try (FileCartJournal replayedJournal = new FileCartJournal(journal, true)) {
+            port(replayedJournal).replay();
+        }
+        Assertions.assertEquals(twice, stored(lost));
+    }
+
+    /**
+     * Not closed, a crashed instance does not flush what it buffered
+     */
+    private BufferedOrderPort port(FileCartJournal journal) {
+        return new BufferedOrderPort(orderService, orderRepository, productRepository, transactionRunner, journal,
+                ReadYourWrites.none(), OrderOutbox.none(), 1_000, Duration.ofHours(1));
+    }
+
+    private void clickStream(List<Product> products, Click click) {
+        Random random = new Random(42);
+        for (int i = 0; i < CLICKS; i++) {
+            int product = Math.min(products.size() - 1, (int) Math.abs(random.nextGaussian() * 2));
+            click.on(random.nextInt(ORDERS), products.get(product));
+        }
+    }
+
+    private List<Product> storeProducts(int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            products.add(new Product(null, "Product " + i, 2.5 + i));
+        }
+        return productRepository.saveAll(products);
+    }
+
+    private List<Order> createOrders() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(orderService.createOrder());
+        }
+        return orders;
+    }
+
+    private Map<Long, Integer> stored(Order order) {
+        return orderService.checkout(order).getLines().stream()
+                .collect(Collectors.toMap(line -> line.getProduct().getId(), OrderLine::getQuantity));
+    }
+
+    private interface Click {
+        void on(int order, Product product);
+    }
+}
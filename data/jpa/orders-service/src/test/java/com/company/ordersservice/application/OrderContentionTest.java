@@ -0,0 +1,182 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Several threads add products to a handful of shared orders, or all to the same one, once per {@link ConcurrencyMode}.
+ * Logs throughput and how many transactions were retried or aborted.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+public class OrderContentionTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderContentionTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int OPERATIONS_PER_THREAD = 40;
+
+    private static final int ORDERS = 4;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void optimisticModeShouldNotLoseUpdates() throws Exception {
+        Result result = run(ConcurrencyMode.OPTIMISTIC, 20, ORDERS, 0);
+
+        Assertions.assertEquals(0, result.aborted());
+        Assertions.assertEquals(THREADS * OPERATIONS_PER_THREAD, result.succeeded());
+        Assertions.assertEquals(result.succeeded(), result.storedQuantity());
+    }
+
+    @Test
+    public void serializableModeShouldNotLoseUpdates() throws Exception {
+        Result result = run(ConcurrencyMode.SERIALIZABLE, 1, ORDERS, 0);
+
+        Assertions.assertEquals(THREADS * OPERATIONS_PER_THREAD, result.succeeded() + result.aborted());
+        Assertions.assertEquals(result.succeeded(), result.storedQuantity());
+    }
+
+    @Test
+    public void atomicIncrementsAndStripedLocksShouldApplyEveryAdditionToOneHotOrder() throws Exception {
+        Result optimistic = run(ConcurrencyMode.OPTIMISTIC, 20, 1, 0);
+        Result striped = run(ConcurrencyMode.OPTIMISTIC, 1, 1, 16);
+        Result atomic = run(ConcurrencyMode.ATOMIC, 1, 1, 0);
+
+        for (Result result : List.of(striped, atomic)) {
+            Assertions.assertEquals(0, result.aborted());
+            Assertions.assertEquals(0, result.retries());
+            Assertions.assertEquals(THREADS * OPERATIONS_PER_THREAD, result.storedQuantity());
+        }
+        Assertions.assertEquals(optimistic.succeeded(), optimistic.storedQuantity());
+    }
+
+    /**
+     * Hibernate inserts lines before it deletes them, the removed line is updated instead so that the
+     * (order_id, product_id) unique key holds
+     */
+    @Test
+    public void shouldAddProductAgainAfterRemovingItsLineInOneTransaction() {
+        Product drill = productRepository.store(new Product(null, "Drill", 156.56));
+        Order order = new Order(null, new ArrayList<>());
+        order.addProduct(drill);
+        Long orderId = orderRepository.store(order).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Order managed = orderRepository.findById(orderId).orElseThrow();
+            managed.removeOrderLine(managed.getLines().getFirst().getId());
+            managed.addProduct(drill, 3);
+            orderRepository.storeChanges(managed);
+        });
+
+        Order stored = load(orderId);
+        Assertions.assertEquals(1, stored.getLines().size());
+        Assertions.assertEquals(3, stored.getLines().getFirst().getQuantity());
+    }
+
+    @Test
+    public void shouldIncrementVersionOnceWhenLinesOfManagedOrderAreAdded() {
+        Product drill = productRepository.store(new Product(null, "Drill", 156.56));
+        Long orderId = orderRepository.store(new Order(null, new ArrayList<>())).getId();
+        Long version = load(orderId).getVersion();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Order managed = orderRepository.findById(orderId).orElseThrow();
+            managed.addProduct(drill);
+            orderRepository.storeChanges(managed);
+        });
+
+        Assertions.assertEquals(version + 1, load(orderId).getVersion());
+    }
+
+    private Result run(ConcurrencyMode mode, int maxAttempts, int orders, int lockStripes) throws Exception {
+        TransactionRunner runner = new TransactionRunner(transactionManager, mode, maxAttempts,
+                Duration.ofMillis(1), Duration.ofMillis(50));
+        OrderService orderService = new OrderService(orderRepository, productRepository, runner,
+                OrderMetrics.inMemory(), new OrderLocks(lockStripes), ReadYourWrites.none(), OrderOutbox.none(), 100);
+        Product drill = productRepository.store(new Product(null, "Drill", 156.56));
+        Product saw = productRepository.store(new Product(null, "Saw", 86.23));
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            orderIds.add(orderService.createOrder().getId());
+        }
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger aborted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Order order = load(orderIds.get(random.nextInt(orders)));
+                    try {
+                        orderService.addProduct(order, random.nextBoolean() ? drill : saw);
+                        succeeded.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        aborted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        int storedQuantity = orderIds.stream()
+                .map(this::load)
+                .flatMap(order -> order.getLines().stream())
+                .mapToInt(OrderLine::getQuantity)
+                .sum();
+        log.info("{} on {} orders with {} lock stripes: {} ops/s, {} succeeded, {} aborted, "
+                        + "{} retries in {} transactions", mode, orders, lockStripes,
+                Math.round(succeeded.get() / seconds), succeeded.get(), aborted.get(), runner.getRetries(),
+                runner.getTransactions());
+        return new Result(succeeded.get(), aborted.get(), runner.getRetries(), storedQuantity);
+    }
+
+    private Order load(Long orderId) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Order order = orderRepository.findById(orderId).orElseThrow();
+            order.getLines().size();
+            return order;
+        });
+    }
+
+    private record Result(int succeeded, int aborted, long retries, int storedQuantity) {
+    }
+}
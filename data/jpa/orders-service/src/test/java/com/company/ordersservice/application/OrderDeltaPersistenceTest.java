@@ -0,0 +1,183 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compares writing a single line change of a detached order by merging the aggregate and by writing only the delta
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+public class OrderDeltaPersistenceTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderDeltaPersistenceTest.class);
+
+    private static final int REPETITIONS = 20;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldWriteSingleLineChangeWithOneStatementWhateverOrderSize() {
+        for (int size : new int[]{10, 100, 1000, 2000}) {
+            Long orderId = storeOrder(size);
+
+            Order detached = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+            Product product = detached.getLines().get(size / 2).getProduct();
+            Statistics statistics = statistics();
+            long deltaNanos = 0;
+            for (int i = 0; i < REPETITIONS; i++) {
+                long start = System.nanoTime();
+                orderService.addProduct(detached, product);
+                deltaNanos += System.nanoTime() - start;
+            }
+            long deltaStatements = statistics.getPrepareStatementCount() / REPETITIONS;
+
+            long mergeNanos = 0;
+            long mergeStatements = 0;
+            for (int i = 0; i < REPETITIONS; i++) {
+                Order copy = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+                statistics.clear();
+                long start = System.nanoTime();
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    copy.addProduct(product);
+                    orderRepository.store(copy);
+                });
+                mergeNanos += System.nanoTime() - start;
+                mergeStatements += statistics.getPrepareStatementCount();
+            }
+            mergeStatements /= REPETITIONS;
+
+            log.info("Single line change on an order of {} lines: delta {} statements {} ms, merge {} statements {} ms",
+                    size, deltaStatements, String.format("%.3f", deltaNanos / 1e6 / REPETITIONS), mergeStatements,
+                    String.format("%.3f", mergeNanos / 1e6 / REPETITIONS));
+            Assertions.assertEquals(1, deltaStatements);
+            Assertions.assertTrue(mergeStatements > deltaStatements);
+            Assertions.assertEquals(1 + 2 * REPETITIONS, quantities(orderId).get(product.getId()));
+        }
+    }
+
+    @Test
+    public void shouldKeepWorkingWithDetachedOrderAcrossInsertsUpdatesAndRemovals() {
+        Long orderId = storeOrder(3);
+        Order order = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+        List<OrderLine> lines = new ArrayList<>(order.getLines());
+        Product added = productRepository.store(new Product(null, "Added", 9.99));
+
+        orderService.addProducts(order, List.of(lines.get(0).getProduct(), added, added));
+        orderService.removeOrderLine(order, lines.get(1).getId());
+        orderService.addProduct(order, added);
+
+        Assertions.assertEquals(Map.of(lines.get(0).getProduct().getId(), 2, lines.get(2).getProduct().getId(), 1,
+                added.getId(), 3), quantities(orderId));
+        Order reloaded = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+        Assertions.assertEquals(reloaded.getVersion(), order.getVersion());
+        Assertions.assertEquals(reloaded.calculatePrice(), order.calculatePrice());
+        Assertions.assertTrue(order.pendingChanges().isEmpty());
+    }
+
+    /**
+     * The product is only pending in the persistence context when the order lines referring to it are written
+     */
+    @Test
+    public void shouldWriteLinesOfProductPersistedInTheSameTransaction() {
+        Long orderId = storeOrder(1);
+        Order order = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+
+        Product added = new TransactionTemplate(transactionManager).execute(status -> {
+            Product product = productRepository.save(new Product(null, "Persisted", 4.5));
+            order.addProduct(product);
+            orderRepository.storeChanges(order);
+            return product;
+        });
+
+        Assertions.assertEquals(1, quantities(orderId).get(added.getId()));
+    }
+
+    @Test
+    public void shouldStoreLinesChangedThroughTheListOfDetachedOrder() {
+        Long orderId = storeOrder(3);
+        Order order = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+        Product added = productRepository.store(new Product(null, "Listed", 2.5));
+        OrderLine restored = order.getLines().get(2);
+
+        order.getLines().remove(0);
+        order.getLines().set(0, new OrderLine(null, added, 2));
+        order.getLines().remove(restored);
+        order.getLines().add(restored);
+        orderRepository.storeChanges(order);
+
+        Assertions.assertEquals(Map.of(added.getId(), 2, restored.getProduct().getId(), 1), quantities(orderId));
+        Assertions.assertEquals(restored.getId(), orderRepository.find(orderId, FetchPlan.WITH_LINES).orElseThrow()
+                .getLines().stream().filter(line -> line.getProduct().getId().equals(restored.getProduct().getId()))
+                .findFirst().orElseThrow().getId());
+        Assertions.assertTrue(order.pendingChanges().isEmpty());
+    }
+
+    @Test
+    public void shouldRetryWhenLineWasChangedConcurrently() {
+        Long orderId = storeOrder(2);
+        Order first = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+        Order second = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+        Product product = first.getLines().get(0).getProduct();
+
+        orderService.addProduct(first, product);
+        orderService.addProduct(second, product);
+
+        Assertions.assertEquals(3, quantities(orderId).get(product.getId()));
+    }
+
+    private Long storeOrder(int lines) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            products.add(new Product(null, "Product " + i, 1.5 + i));
+        }
+        Order order = new Order(null, new ArrayList<>());
+        order.addProducts(productRepository.saveAll(products));
+        return orderRepository.store(order).getId();
+    }
+
+    private Map<Long, Integer> quantities(Long orderId) {
+        return orderRepository.find(orderId, FetchPlan.WITH_LINES).orElseThrow().getLines().stream()
+                .collect(Collectors.toMap(line -> line.getProduct().getId(), OrderLine::getQuantity));
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,57 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderSummary;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages of two orders over a handful of orders, small enough for the default test run, see {@link OrderExportTest}
+ * for an export of a million orders. Orders of other tests sharing the database are ignored.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+public class OrderExportPagingTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Test
+    public void shouldReadEveryPageUpToTheLastOrder() {
+        Product product = productRepository.store(new Product(null, "Paged", 1.25));
+        List<Long> orderIds = new ArrayList<>();
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Order order = orderService.createOrder();
+            orderService.addProduct(order, product);
+            orderIds.add(order.getId());
+            if (i == 3) {
+                orderService.removeOrder(order);
+            } else {
+                expected.add(order.getId());
+            }
+        }
+
+        OrderExporter exporter = new OrderExporter(orderRepository, OrderMetrics.inMemory(), 2);
+
+        Assertions.assertEquals(expected, exporter.summaries()
+                .map(OrderSummary::id)
+                .filter(orderIds::contains)
+                .toList());
+    }
+}
@@ -0,0 +1,237 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Money;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Exports a million orders from an embedded database kept on disk, so that the heap holds the export only,
+ * sampling the used heap every 100 000 exported orders. Tagged perf, run by the perfTest task only.
+ */
+@Tag("perf")
+@SpringBootTest(properties = "orders.export.page-size=1000")
+@ActiveProfiles("h2")
+public class OrderExportTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportTest.class);
+
+    private static final int ORDERS = 1_000_000;
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final int SAMPLE_EVERY = 100_000;
+
+    private static final double FIRST_PRICE = 2.5;
+
+    private static final double SECOND_PRICE = 10;
+
+    @TempDir
+    private static Path databaseDirectory;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:file:" + databaseDirectory.resolve("orders")
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    }
+
+    @Autowired
+    private OrderExporter orderExporter;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void shouldExportMillionOrdersWithConstantMemory() {
+        insertOrders();
+        Money first = Money.of(FIRST_PRICE);
+        Money second = Money.of(SECOND_PRICE);
+
+        long expectedLines = 0;
+        long expectedQuantity = 0;
+        long expectedCents = 0;
+        for (long id = 1; id <= ORDERS; id++) {
+            expectedLines++;
+            expectedQuantity += 1 + id % 5;
+            expectedCents += (1 + id % 5) * first.cents();
+            if (id % 4 == 0) {
+                expectedLines++;
+                expectedQuantity += 2;
+                expectedCents += 2 * second.cents();
+            }
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CsvTotals totals = new CsvTotals();
+        List<Long> heapSamples = new ArrayList<>();
+        long start = System.nanoTime();
+        long exported = orderExporter.export(new LineOutputStream(line -> {
+            totals.add(line);
+            if (totals.rows % SAMPLE_EVERY == 0 && totals.rows > 0) {
+                heapSamples.add(usedHeap());
+            }
+        }), OrderExporter.Format.CSV);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long heapGrowth = heapSamples.stream().mapToLong(Long::longValue).max().orElseThrow()
+                - heapSamples.stream().mapToLong(Long::longValue).min().orElseThrow();
+        log.info("Exported {} orders as CSV in {} ms ({} orders/s), {} statements, "
+                        + "used heap after GC every {} orders: {} MB, spread {} MB", exported, elapsedMillis,
+                Math.round(exported * 1000.0 / Math.max(1, elapsedMillis)), statistics.getPrepareStatementCount(),
+                SAMPLE_EVERY, heapSamples.stream().map(used -> used / (1024 * 1024)).toList(),
+                heapGrowth / (1024 * 1024));
+
+        Assertions.assertEquals("id,line_count,total_quantity,total_price", totals.header);
+        Assertions.assertEquals(ORDERS, exported);
+        Assertions.assertEquals(ORDERS, totals.rows);
+        Assertions.assertEquals(expectedLines, totals.lines);
+        Assertions.assertEquals(expectedQuantity, totals.quantity);
+        Assertions.assertEquals(expectedCents, totals.cents);
+        Assertions.assertEquals(2L * ORDERS / PAGE_SIZE + 1, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertTrue(heapGrowth < 32 * 1024 * 1024);
+    }
+
+    @Test
+    public void shouldStreamNdjsonPageByPage() {
+        insertOrders();
+
+        List<String> lines = new ArrayList<>();
+        long exported = orderExporter.export(new LineOutputStream(line -> {
+            if (lines.size() < 4) {
+                lines.add(line);
+            }
+        }), OrderExporter.Format.NDJSON);
+
+        Assertions.assertEquals(ORDERS, exported);
+        Assertions.assertEquals(List.of(
+                "{\"id\":1,\"lineCount\":1,\"totalQuantity\":2,\"totalPrice\":5.00}",
+                "{\"id\":2,\"lineCount\":1,\"totalQuantity\":3,\"totalPrice\":7.50}",
+                "{\"id\":3,\"lineCount\":1,\"totalQuantity\":4,\"totalPrice\":10.00}",
+                "{\"id\":4,\"lineCount\":2,\"totalQuantity\":7,\"totalPrice\":32.50}"), lines);
+        Assertions.assertEquals(ORDERS, orderExporter.summaries().skip(ORDERS - 1).findFirst().orElseThrow().id());
+    }
+
+    /**
+     * Orders 1 to ORDERS with a line of the first product, every fourth one with a line of the second product too.
+     * Inserted once for both tests, which share the application context and its database.
+     */
+    private void insertOrders() {
+        if (jdbcTemplate.queryForObject("select count(*) from orders", Long.class) > 0) {
+            return;
+        }
+        Product first = productRepository.store(new Product(null, "First", FIRST_PRICE));
+        Product second = productRepository.store(new Product(null, "Second", SECOND_PRICE));
+        jdbcTemplate.update("insert into orders (id, version) select x, 0 from system_range(1, ?) range (x)", ORDERS);
+        jdbcTemplate.update("insert into order_lines (id, order_id, product_id, quantity, version) "
+                + "select x, x, ?, 1 + mod(x, 5), 0 from system_range(1, ?) range (x)", first.getId(), ORDERS);
+        jdbcTemplate.update("insert into order_lines (id, order_id, product_id, quantity, version) "
+                + "select ? + x, x, ?, 2, 0 from system_range(1, ?) range (x) where mod(x, 4) = 0",
+                ORDERS, second.getId(), ORDERS);
+        jdbcTemplate.execute("alter sequence orders_seq restart with " + (4L * ORDERS));
+        jdbcTemplate.execute("alter sequence order_lines_seq restart with " + (4L * ORDERS));
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static class CsvTotals {
+
+        private String header;
+
+        private long rows;
+
+        private long lastId;
+
+        private long lines;
+
+        private long quantity;
+
+        private long cents;
+
+        private void add(String line) {
+            if (header == null) {
+                header = line;
+                return;
+            }
+            String[] columns = line.split(",");
+            long id = Long.parseLong(columns[0]);
+            Assertions.assertTrue(id > lastId);
+            lastId = id;
+            lines += Long.parseLong(columns[1]);
+            quantity += Long.parseLong(columns[2]);
+            cents += Money.of(new BigDecimal(columns[3])).cents();
+            rows++;
+        }
+    }
+
+    /**
+     * Hands every written line to a consumer instead of keeping the output
+     */
+    private static class LineOutputStream extends OutputStream {
+
+        private final Consumer<String> consumer;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private LineOutputStream(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                consumer.accept(line.toString());
+                line.setLength(0);
+            } else {
+                line.append((char) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            int from = offset;
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] == '\n') {
+                    line.append(new String(bytes, from, i - from, StandardCharsets.UTF_8));
+                    consumer.accept(line.toString());
+                    line.setLength(0);
+                    from = i + 1;
+                }
+            }
+            line.append(new String(bytes, from, offset + length - from, StandardCharsets.UTF_8));
+        }
+    }
+}
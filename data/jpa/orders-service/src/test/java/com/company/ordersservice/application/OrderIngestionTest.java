@@ -0,0 +1,61 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.port.IngestionReport;
+import com.company.ordersservice.domain.port.OrderSpec;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@SpringBootTest(properties = "orders.ingestion.chunk-size=500")
+@ActiveProfiles("h2")
+public class OrderIngestionTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Test
+    public void shouldIngestOrdersInChunks() {
+        Product drill = productRepository.store(new Product(null, "Drill", 156.56));
+        Product saw = productRepository.store(new Product(null, "Saw", 86.23));
+        long ordersBefore = orderRepository.count();
+
+        Stream<OrderSpec> specs = IntStream.range(0, 2_300)
+                .mapToObj(i -> new OrderSpec(Map.of(drill.getId(), 1 + i % 3, saw.getId(), 2)));
+        IngestionReport report = orderService.ingestOrders(specs);
+
+        Assertions.assertEquals(5, report.chunks().size());
+        Assertions.assertEquals(300, report.chunks().get(4).orders());
+        Assertions.assertEquals(2_300, report.orders());
+        Assertions.assertEquals(4_600, report.lines());
+        Assertions.assertEquals(ordersBefore + 2_300, orderRepository.count());
+    }
+
+    @Test
+    public void shouldRejectUnknownProduct() {
+        Stream<OrderSpec> specs = Stream.of(new OrderSpec(Map.of(-1L, 1)));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> orderService.ingestOrders(specs));
+    }
+
+    @Test
+    public void shouldRejectChunkSizeBelowOne() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OrderService(orderRepository,
+                productRepository, null, null, OrderLocks.none(), ReadYourWrites.none(), OrderOutbox.none(), 0));
+    }
+}
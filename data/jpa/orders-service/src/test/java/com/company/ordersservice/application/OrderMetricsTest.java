@@ -0,0 +1,100 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("h2")
+public class OrderMetricsTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void shouldRecordLatencyStatementsAndOrderSizePerOperation() {
+        List<Product> products = productRepository.saveAll(List.of(new Product(null, "Drill", 156.56),
+                new Product(null, "Saw", 86.23), new Product(null, "Hammer", 23.5)));
+        Order order = orderService.createOrder();
+        orderService.addProducts(order, products);
+        Order detached = orderRepository.find(order.getId(), FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+        orderService.addProduct(detached, products.get(0));
+
+        Timer addProduct = meterRegistry.get("orders.operation")
+                .tags("operation", "addProduct", "outcome", "success").timer();
+        Assertions.assertEquals(1, addProduct.count());
+        Assertions.assertTrue(addProduct.totalTime(TimeUnit.NANOSECONDS) > 0);
+
+        DistributionSummary statements = meterRegistry.get("orders.operation.statements")
+                .tag("operation", "addProduct").summary();
+        Assertions.assertEquals(1, statements.count());
+        Assertions.assertEquals(1, statements.max());
+
+        DistributionSummary lines = meterRegistry.get("orders.lines").summary();
+        Assertions.assertTrue(lines.count() >= 2);
+        Assertions.assertEquals(3, lines.max());
+        Assertions.assertTrue(meterRegistry.get("orders.transactions").functionCounter().count() >= 3);
+    }
+
+    @Test
+    public void shouldRecordFailedOperations() {
+        Order order = orderService.createOrder();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> orderService.addProductsById(order,
+                Map.of(-1L, 1)));
+
+        Assertions.assertEquals(1, meterRegistry.get("orders.operation")
+                .tags("operation", "addProductsById", "outcome", "error").timer().count());
+        Assertions.assertTrue(meterRegistry.get("orders.transaction.rollbacks").functionCounter().count() >= 1);
+    }
+
+    @Test
+    public void shouldExposeMetricsInPrometheusFormat() throws Exception {
+        orderService.createOrder();
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertTrue(scrape.contains(
+                "orders_operation_seconds{operation=\"createOrder\",outcome=\"success\",quantile=\"0.99\"}"), scrape);
+        Assertions.assertTrue(scrape.contains("orders_operation_statements_bucket") ||
+                scrape.contains("orders_operation_statements{operation=\"createOrder\",quantile=\"0.5\"}"), scrape);
+        Assertions.assertTrue(scrape.contains("orders_transaction_retries_total"), scrape);
+        Assertions.assertTrue(scrape.contains("orders_lines"), scrape);
+    }
+}
@@ -0,0 +1,182 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderEvent;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.port.OrderSpec;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import com.company.ordersservice.infrastructure.outbox.InMemoryOrderEventSink;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Publishes the events of order changes through the outbox to an in-memory sink. The relay is run by the tests only,
+ * the context and its database are not shared with other tests.
+ */
+@SpringBootTest(properties = {
+        "orders.outbox.enabled=true",
+        "orders.outbox.interval=1h",
+        "orders.outbox.partitions=8",
+        "orders.outbox.batch-size=500",
+        "orders.outbox.file=build/order-events-test.ndjson"})
+@ActiveProfiles("h2")
+public class OrderOutboxTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxTest.class);
+
+    private static final int ORDERS = 5000;
+
+    private static final int LINES_PER_ORDER = 5;
+
+    private static final int RELAYS = 4;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private InMemoryOrderEventSink sink;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void emptyOutbox() {
+        outboxRelay.relay();
+        sink.clear();
+    }
+
+    @Test
+    public void shouldPublishEventsOfCommittedChangesInOrder() {
+        List<Product> products = productRepository.saveAll(List.of(
+                new Product(null, "Pen", 1.5), new Product(null, "Ink", 3.0)));
+        Product pen = products.get(0);
+        Product ink = products.get(1);
+
+        Order order = orderService.createOrder();
+        orderService.addProduct(order, pen);
+        orderService.addProductsById(order, Map.of(ink.getId(), 3));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> orderService.addProductsById(order, Map.of(Long.MAX_VALUE, 1)));
+        Long lineId = orderService.checkout(order).getLines().getFirst().getId();
+        orderService.removeOrderLine(order, lineId);
+        orderService.removeOrder(order);
+        Assertions.assertTrue(outboxRelay.lag().compareTo(Duration.ZERO) >= 0);
+
+        Assertions.assertEquals(5, outboxRelay.relay());
+
+        List<OrderEvent> events = sink.getEvents();
+        Assertions.assertEquals(List.of(OrderEvent.Type.ORDER_CREATED, OrderEvent.Type.PRODUCT_ADDED,
+                        OrderEvent.Type.PRODUCT_ADDED, OrderEvent.Type.LINE_REMOVED, OrderEvent.Type.ORDER_REMOVED),
+                events.stream().map(OrderEvent::type).toList());
+        Assertions.assertTrue(events.stream().allMatch(event -> event.orderId().equals(order.getId())));
+        Assertions.assertEquals(pen.getId(), events.get(1).productId());
+        Assertions.assertEquals(3, events.get(2).quantity());
+        Assertions.assertEquals(lineId, events.get(3).lineId());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from order_outbox", Long.class));
+        Assertions.assertEquals(Duration.ZERO, outboxRelay.lag());
+    }
+
+    @Test
+    public void shouldPublishCreationOfOrderStoredByAddingProducts() {
+        List<Product> products = productRepository.saveAll(List.of(
+                new Product(null, "Paper", 4.0), new Product(null, "Clip", 0.2)));
+        Order added = new Order(null, new ArrayList<>());
+        orderService.addProduct(added, products.getFirst());
+        Order addedAll = new Order(null, new ArrayList<>());
+        orderService.addProducts(addedAll, products);
+
+        Assertions.assertEquals(5, outboxRelay.relay());
+
+        Map<Long, List<OrderEvent.Type>> types = sink.getEvents().stream().collect(Collectors.groupingBy(
+                OrderEvent::orderId, Collectors.mapping(OrderEvent::type, Collectors.toList())));
+        Assertions.assertEquals(2, types.size());
+        types.values().forEach(orderTypes -> {
+            Assertions.assertEquals(OrderEvent.Type.ORDER_CREATED, orderTypes.getFirst());
+            Assertions.assertTrue(orderTypes.subList(1, orderTypes.size()).stream()
+                    .allMatch(type -> type == OrderEvent.Type.PRODUCT_ADDED));
+        });
+    }
+
+    /**
+     * Relays run concurrently like on several instances, each partition is relayed by one of them at a time
+     */
+    @Test
+    public void shouldRelayEveryEventOnceAndInOrderOfItsOrder() throws Exception {
+        List<Product> products = productRepository.saveAll(IntStream.range(0, LINES_PER_ORDER)
+                .mapToObj(i -> new Product(null, "Product " + i, 1.5))
+                .toList());
+        Map<Long, Integer> quantities = products.stream()
+                .collect(Collectors.toMap(Product::getId, product -> 2));
+        orderService.ingestOrders(IntStream.range(0, ORDERS).mapToObj(i -> new OrderSpec(quantities)));
+        int expected = ORDERS * (1 + LINES_PER_ORDER);
+        Assertions.assertEquals(expected, jdbcTemplate.queryForObject("select count(*) from order_outbox", Long.class));
+        Duration lag = outboxRelay.lag();
+
+        long start = System.nanoTime();
+        long relayed = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(RELAYS)) {
+            List<Future<Long>> relays = new ArrayList<>();
+            for (int i = 0; i < RELAYS; i++) {
+                relays.add(executor.submit(outboxRelay::relay));
+            }
+            for (Future<Long> relay : relays) {
+                relayed += relay.get();
+            }
+        }
+        relayed += outboxRelay.relay();
+        long elapsed = System.nanoTime() - start;
+        log.info("Relayed {} events of {} orders with {} concurrent relays in {} ms, {} events/s, "
+                        + "lag before relaying {} ms", relayed, ORDERS, RELAYS, elapsed / 1_000_000,
+                Math.round(relayed * 1e9 / elapsed), lag.toMillis());
+
+        List<OrderEvent> events = sink.getEvents();
+        Assertions.assertEquals(expected, relayed);
+        Assertions.assertEquals(expected, events.size());
+        Assertions.assertEquals(expected, events.stream().map(OrderEvent::id).distinct().count());
+        Map<Long, List<OrderEvent>> byOrder = events.stream().collect(Collectors.groupingBy(OrderEvent::orderId));
+        Assertions.assertEquals(ORDERS, byOrder.size());
+        for (List<OrderEvent> orderEvents : byOrder.values()) {
+            Assertions.assertEquals(OrderEvent.Type.ORDER_CREATED, orderEvents.getFirst().type());
+            for (int i = 1; i < orderEvents.size(); i++) {
+                Assertions.assertTrue(orderEvents.get(i - 1).id() < orderEvents.get(i).id());
+            }
+        }
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from order_outbox", Long.class));
+    }
+
+    @TestConfiguration
+    static class SinkConfiguration {
+
+        @Bean
+        @Primary
+        InMemoryOrderEventSink inMemoryOrderEventSink() {
+            return new InMemoryOrderEventSink();
+        }
+    }
+}
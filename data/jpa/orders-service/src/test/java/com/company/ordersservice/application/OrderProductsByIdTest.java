@@ -0,0 +1,78 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+public class OrderProductsByIdTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Test
+    public void shouldAddCartContentsResolvedById() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            products.add(new Product(null, "Product " + i, 3.0 + i));
+        }
+        Map<Long, Integer> cart = new HashMap<>();
+        productRepository.saveAll(products).forEach(product -> cart.put(product.getId(), 1 + cart.size() % 4));
+
+        Order order = orderService.createOrder();
+        orderService.addProductsById(order, cart);
+
+        Map<Long, Integer> stored = orderRepository.find(order.getId(), FetchPlan.WITH_LINES).orElseThrow()
+                .getLines().stream()
+                .collect(Collectors.toMap(line -> line.getProduct().getId(), OrderLine::getQuantity));
+        Assertions.assertEquals(cart, stored);
+    }
+
+    @Test
+    public void shouldLeaveOrderUnchangedWhenProductIsMissing() {
+        Product drill = productRepository.store(new Product(null, "Drill", 156.56));
+        Order order = orderService.createOrder();
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> orderService.addProductsById(order, Map.of(drill.getId(), 1, -1L, 2)));
+        Assertions.assertTrue(orderRepository.find(order.getId(), FetchPlan.WITH_LINES).orElseThrow()
+                .getLines().isEmpty());
+    }
+
+    @Test
+    public void shouldRejectQuantitiesBelowOne() {
+        Product drill = productRepository.store(new Product(null, "Drill", 156.56));
+        Product saw = productRepository.store(new Product(null, "Saw", 86.23));
+        Order order = orderService.createOrder();
+        orderService.addProduct(order, drill);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> orderService.addProductsById(order, Map.of(drill.getId(), 0)));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> orderService.addProductsById(order, Map.of(drill.getId(), 2, saw.getId(), -1)));
+        List<OrderLine> lines = orderRepository.find(order.getId(), FetchPlan.WITH_LINES).orElseThrow().getLines();
+        Assertions.assertEquals(1, lines.size());
+        Assertions.assertEquals(1, lines.getFirst().getQuantity());
+    }
+}
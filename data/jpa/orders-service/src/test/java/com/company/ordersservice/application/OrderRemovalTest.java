@@ -0,0 +1,194 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Compares removing an order of many lines as a tombstone with deleting it through JPA,
+ * then purges a backlog of removed orders in batches at the configured rate
+ */
+@SpringBootTest(properties = {
+        "orders.purge.interval=1h",
+        "orders.purge.batch-size=100",
+        "orders.purge.max-orders-per-second=1000"})
+@ActiveProfiles("h2")
+public class OrderRemovalTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderRemovalTest.class);
+
+    private static final int LINES = 300;
+
+    private static final int REMOVED_ORDERS = 1000;
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int MAX_ORDERS_PER_SECOND = 1000;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderPurger orderPurger;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void shouldRemoveOrderWithSingleStatementAndHideIt() {
+        List<Product> products = productRepository.saveAll(IntStream.range(0, LINES)
+                .mapToObj(i -> new Product(null, "Product " + i, 1.5))
+                .toList());
+        Order deleted = orderService.createOrder();
+        orderService.addProducts(deleted, products);
+        Order removed = orderService.createOrder();
+        orderService.addProducts(removed, products);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                orderRepository.delete(orderRepository.find(deleted.getId(), FetchPlan.WITH_LINES).orElseThrow()));
+        long deleteLoads = statistics.getEntityLoadCount();
+        long deleteRows = statistics.getEntityDeleteCount();
+        long deleteStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        orderService.removeOrder(removed);
+        log.info("Order of {} lines: deleted through JPA loading {} entities and deleting {} rows "
+                        + "with {} batched statements, removed loading {} and deleting {} with {} statement",
+                LINES, deleteLoads, deleteRows, deleteStatements, statistics.getEntityLoadCount(),
+                statistics.getEntityDeleteCount(), statistics.getPrepareStatementCount());
+
+        Assertions.assertTrue(deleteLoads > LINES);
+        Assertions.assertEquals(LINES + 1, deleteRows);
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(0, statistics.getEntityDeleteCount());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+        Assertions.assertTrue(orderRepository.find(removed.getId()).isEmpty());
+        Assertions.assertTrue(orderRepository.findAll(List.of(removed.getId()), FetchPlan.WITH_LINES).isEmpty());
+        Assertions.assertThrows(IllegalStateException.class, () -> orderService.checkout(removed));
+        Assertions.assertTrue(orderRepository.findSummariesAfter(removed.getId() - 1, 1).summaries().stream()
+                .noneMatch(summary -> summary.id() == removed.getId()));
+        Assertions.assertEquals(LINES, jdbcTemplate.queryForObject(
+                "select count(*) from order_lines where order_id = ?", Integer.class, removed.getId()));
+
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class, () -> orderRepository.remove(removed));
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from orders where id = ? and removed_at is not null", Integer.class, removed.getId()));
+
+        Order managed = orderService.createOrder();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            orderRepository.remove(orderRepository.find(managed.getId()).orElseThrow());
+            Assertions.assertTrue(orderRepository.find(managed.getId()).isEmpty());
+        });
+    }
+
+    @Test
+    public void shouldNotRemoveOrChangeOrderRemovedOrChangedConcurrently() {
+        Product product = productRepository.store(new Product(null, "Hammer", 20.0));
+        Order order = orderService.createOrder();
+        Order stale = orderService.checkout(order);
+        orderService.addProduct(order, product);
+
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class, () -> orderRepository.remove(stale));
+        Assertions.assertEquals(1, orderService.checkout(order).getLines().size());
+
+        Order copy = orderService.checkout(order);
+        orderService.removeOrder(order);
+        Assertions.assertThrows(DataIntegrityViolationException.class, () ->
+                orderRepository.addQuantities(order.getId(), Map.of(product.getId(), 2)));
+        copy.addProduct(productRepository.store(new Product(null, "Nail", 0.1)));
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class, () ->
+                orderRepository.storeChanges(copy));
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "select sum(quantity) from order_lines where order_id = ?", Integer.class, order.getId()));
+    }
+
+    /**
+     * The stale instance fails the version check once, the retry removes the order as reloaded
+     */
+    @Test
+    public void shouldRemoveOrderThroughStaleInstance() {
+        Product product = productRepository.store(new Product(null, "Chisel", 12.0));
+        Order order = orderService.createOrder();
+        Order stale = orderService.checkout(order);
+        orderService.addProduct(order, product);
+
+        orderService.removeOrder(stale);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> orderService.checkout(order));
+    }
+
+    @Test
+    public void shouldPurgeRemovedOrdersInBatchesAtBoundedRate() {
+        List<Product> products = productRepository.saveAll(List.of(new Product(null, "Drill", 156.56),
+                new Product(null, "Saw", 86.23)));
+        Order kept = orderService.createOrder();
+        orderService.addProducts(kept, products);
+        List<Long> removedIds = new ArrayList<>();
+        for (int i = 0; i < REMOVED_ORDERS; i++) {
+            Order order = orderService.createOrder();
+            orderService.addProducts(order, products);
+            orderService.removeOrder(order);
+            removedIds.add(order.getId());
+        }
+        jdbcTemplate.update("insert into cart_journal_watermarks (order_id, sequence) values (?, 1)",
+                removedIds.getFirst());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        long purged = orderPurger.purge();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        long batches = purged / BATCH_SIZE + 1;
+        log.info("Purged {} removed orders in {} ms ({} orders/s, limit {}), {} statements", purged,
+                elapsedMillis, Math.round(purged * 1000.0 / Math.max(1, elapsedMillis)), MAX_ORDERS_PER_SECOND,
+                statistics.getPrepareStatementCount());
+
+        Assertions.assertTrue(purged >= REMOVED_ORDERS);
+        Assertions.assertTrue(elapsedMillis >= (purged - BATCH_SIZE) * 1000 / MAX_ORDERS_PER_SECOND);
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 4 * batches);
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from orders where removed_at is not null", Integer.class));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from order_lines where order_id "
+                + "between ? and ?", Integer.class, removedIds.getFirst(), removedIds.getLast()));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("select count(*) from cart_journal_watermarks "
+                + "where order_id = ?", Integer.class, removedIds.getFirst()));
+        Assertions.assertEquals(2, orderService.checkout(kept).getLines().size());
+        Assertions.assertEquals(0, orderPurger.purge());
+    }
+}
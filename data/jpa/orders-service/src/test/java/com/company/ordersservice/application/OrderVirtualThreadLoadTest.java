@@ -0,0 +1,145 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.port.OrderSpec;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import com.company.ordersservice.infrastructure.metrics.VirtualThreadPinningMonitor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Submits more than a thousand concurrent order mutations at once, first to a pool of 200 platform threads,
+ * Tomcat's default, then with a virtual thread per mutation. Reports throughput and p99 latency,
+ * measured from submission so that time spent waiting for a thread counts. Tagged perf, run by the perfTest task only.
+ */
+@Tag("perf")
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true")
+@ActiveProfiles("h2")
+public class OrderVirtualThreadLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderVirtualThreadLoadTest.class);
+
+    private static final int MUTATIONS = 1_500;
+
+    private static final int PLATFORM_THREADS = 200;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    @Test
+    public void shouldApplyEveryMutationOnPlatformAndVirtualThreads() throws Exception {
+        Product product = productRepository.store(new Product(null, "Drill", 156.56));
+
+        Result platform;
+        try (ExecutorService executor = Executors.newFixedThreadPool(PLATFORM_THREADS)) {
+            platform = run(executor, product);
+        }
+        Result virtual;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            virtual = run(executor, product);
+        }
+
+        log.info("{} concurrent mutations on {} platform threads: {} mutations/s, p99 {} ms", MUTATIONS,
+                PLATFORM_THREADS, Math.round(platform.throughput()), String.format("%.1f", platform.p99Millis()));
+        log.info("{} concurrent mutations on virtual threads: {} mutations/s, p99 {} ms, {} pinned threads reported",
+                MUTATIONS, Math.round(virtual.throughput()), String.format("%.1f", virtual.p99Millis()),
+                Math.round(pinningMonitor.getPinnedCount()));
+        Assertions.assertEquals(MUTATIONS, platform.storedQuantity());
+        Assertions.assertEquals(MUTATIONS, virtual.storedQuantity());
+    }
+
+    @Test
+    public void shouldReportVirtualThreadsPinnedToTheirCarrier() throws Exception {
+        double before = pinningMonitor.getPinnedCount();
+        Object monitor = new Object();
+
+        Thread.ofVirtual().start(() -> {
+            synchronized (monitor) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).join();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pinningMonitor.getPinnedCount() == before && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(pinningMonitor.getPinnedCount() > before);
+    }
+
+    /**
+     * Every mutation adds the product to an order of its own, already loaded and detached,
+     * so that the measurement is not dominated by optimistic lock conflicts
+     */
+    private Result run(ExecutorService executor, Product product) throws Exception {
+        orderService.ingestOrders(IntStream.range(0, MUTATIONS)
+                .mapToObj(i -> new OrderSpec(Map.of(product.getId(), 1))));
+        List<Long> orderIds = orderRepository.findAll().stream()
+                .map(Order::getId)
+                .sorted()
+                .toList();
+        List<Order> orders = orderRepository.findAll(orderIds.subList(orderIds.size() - MUTATIONS, orderIds.size()),
+                FetchPlan.WITH_LINES_AND_PRODUCTS);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> completions = new ArrayList<>(MUTATIONS);
+        for (Order order : orders) {
+            completions.add(executor.submit(() -> {
+                start.await();
+                orderService.addProduct(order, product);
+                return System.nanoTime();
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] nanos = new long[MUTATIONS];
+        for (int i = 0; i < MUTATIONS; i++) {
+            nanos[i] = completions.get(i).get(2, TimeUnit.MINUTES) - begin;
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        long storedQuantity = orderRepository.findAll(orders.stream().map(Order::getId).toList(), FetchPlan.WITH_LINES)
+                .stream()
+                .flatMap(order -> order.getLines().stream())
+                .mapToLong(OrderLine::getQuantity)
+                .sum() - MUTATIONS;
+        Arrays.sort(nanos);
+        return new Result(MUTATIONS / (elapsed / 1e9), nanos[(int) (MUTATIONS * 0.99) - 1] / 1e6, storedQuantity);
+    }
+
+    private record Result(double throughput, double p99Millis, long storedQuantity) {
+    }
+}
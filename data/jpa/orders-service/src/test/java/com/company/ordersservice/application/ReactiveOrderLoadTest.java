@@ -0,0 +1,154 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.port.OrderSpec;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Submits 5 000 order mutations at once on 8 threads, first to the JPA adapter on a pool of 8 platform threads,
+ * where a mutation holds its thread until it commits, then to the reactive adapter subscribed on 8 threads,
+ * where every mutation is in flight and only waits for one of the 10 connections. Reports throughput and p99 latency
+ * measured from submission.
+ *
+ * The embedded database's R2DBC driver runs statements on the subscribing thread, so this compares both adapters
+ * on the same footing rather than showing the gain of a network driver, which does not hold a thread during
+ * a round trip. The context and its database are not shared with other tests. Tagged perf, run by the perfTest
+ * task only.
+ */
+@Tag("perf")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders-reactive-load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "orders.reactive.url="
+                + "r2dbc:h2:mem:///orders-reactive-load?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "orders.reactive.username=sa",
+        "orders.reactive.password=",
+        "orders.reactive.pool-size=10",
+        "orders.reactive.acquire-timeout=2m"})
+@ActiveProfiles({"h2", "reactive"})
+public class ReactiveOrderLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveOrderLoadTest.class);
+
+    private static final int MUTATIONS = 5_000;
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ReactiveOrderService reactiveOrderService;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Test
+    public void shouldApplyEveryMutationWithFewThreads() throws Exception {
+        Product product = productRepository.store(new Product(null, "Drill", 156.56));
+
+        List<Order> blockingOrders = ingest(product);
+        long[] blockingNanos = new long[MUTATIONS];
+        long begin = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<Long>> completions = new ArrayList<>(MUTATIONS);
+            for (Order order : blockingOrders) {
+                completions.add(executor.submit(() -> {
+                    orderService.addProduct(order, product);
+                    return System.nanoTime();
+                }));
+            }
+            for (int i = 0; i < MUTATIONS; i++) {
+                blockingNanos[i] = completions.get(i).get(2, TimeUnit.MINUTES) - begin;
+            }
+        }
+        long blockingElapsed = System.nanoTime() - begin;
+
+        List<Order> reactiveOrders = ingest(product);
+        Scheduler scheduler = Schedulers.newParallel("reactive-load", THREADS);
+        long[] reactiveNanos;
+        long reactiveElapsed;
+        try {
+            long start = System.nanoTime();
+            reactiveNanos = Flux.fromIterable(reactiveOrders)
+                    .flatMap(order -> reactiveOrderService.addProduct(order, product)
+                            .then(Mono.fromCallable(() -> System.nanoTime() - start))
+                            .subscribeOn(scheduler), MUTATIONS)
+                    .collectList()
+                    .block(Duration.ofMinutes(2))
+                    .stream()
+                    .mapToLong(Long::longValue)
+                    .toArray();
+            reactiveElapsed = System.nanoTime() - start;
+        } finally {
+            scheduler.dispose();
+        }
+
+        log.info("{} concurrent mutations, JPA adapter on {} platform threads: {} mutations/s, p99 {} ms",
+                MUTATIONS, THREADS, Math.round(MUTATIONS / (blockingElapsed / 1e9)),
+                String.format("%.1f", p99Millis(blockingNanos)));
+        log.info("{} concurrent mutations, reactive adapter on {} threads: {} mutations/s, p99 {} ms",
+                MUTATIONS, THREADS, Math.round(MUTATIONS / (reactiveElapsed / 1e9)),
+                String.format("%.1f", p99Millis(reactiveNanos)));
+        Assertions.assertEquals(MUTATIONS, reactiveNanos.length);
+        Assertions.assertEquals(2L * MUTATIONS, storedQuantity(blockingOrders));
+        Assertions.assertEquals(2L * MUTATIONS, storedQuantity(reactiveOrders));
+    }
+
+    /**
+     * Orders of their own for every mutation, already holding the product, loaded and detached,
+     * so that the measurement is not dominated by optimistic lock conflicts
+     */
+    private List<Order> ingest(Product product) {
+        long maxId = orderRepository.findAll().stream().mapToLong(Order::getId).max().orElse(0);
+        orderService.ingestOrders(IntStream.range(0, MUTATIONS)
+                .mapToObj(i -> new OrderSpec(Map.of(product.getId(), 1))));
+        List<Long> orderIds = orderRepository.findAll().stream()
+                .map(Order::getId)
+                .filter(id -> id > maxId)
+                .toList();
+        return orderRepository.findAll(orderIds, FetchPlan.WITH_LINES_AND_PRODUCTS);
+    }
+
+    private long storedQuantity(List<Order> orders) {
+        return orderRepository.findAll(orders.stream().map(Order::getId).toList(), FetchPlan.WITH_LINES).stream()
+                .flatMap(order -> order.getLines().stream())
+                .mapToLong(OrderLine::getQuantity)
+                .sum();
+    }
+
+    private static double p99Millis(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (sorted.length * 0.99) - 1] / 1e6;
+    }
+}
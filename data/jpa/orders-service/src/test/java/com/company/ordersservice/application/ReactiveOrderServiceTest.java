@@ -0,0 +1,187 @@
+package com.company.ordersservice.application;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderEvent;
+import com.company.ordersservice.domain.OrderEventRepository;
+import com.company.ordersservice.domain.OrderLine;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ReactiveOrderRepository;
+import com.company.ordersservice.domain.ReactiveProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the reactive adapter next to the JPA one on the same embedded database, reached through its R2DBC driver.
+ * The database is named so that both drivers open it, the context is not shared with other tests.
+ * Both adapters append to the outbox, which is not relayed.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders-reactive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "orders.reactive.url="
+                + "r2dbc:h2:mem:///orders-reactive?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "orders.reactive.username=sa",
+        "orders.reactive.password=",
+        "orders.outbox.enabled=true",
+        "orders.outbox.interval=1h",
+        "orders.outbox.partitions=4",
+        "orders.outbox.file=build/order-events-reactive-test.ndjson"})
+@ActiveProfiles({"h2", "reactive"})
+public class ReactiveOrderServiceTest {
+
+    @Autowired
+    private ReactiveOrderService reactiveOrderService;
+
+    @Autowired
+    private ReactiveProductRepository reactiveProductRepository;
+
+    @Autowired
+    private ReactiveOrderRepository reactiveOrderRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void shouldStoreOrderAggregateWithExplicitStatements() {
+        Product drill = reactiveProductRepository.store(new Product(null, "Drill", 156.56)).block();
+        Product saw = reactiveProductRepository.store(new Product(null, "Saw", 10.01)).block();
+
+        Order order = reactiveOrderService.createOrder().block();
+        reactiveOrderService.addProduct(order, drill).block();
+        reactiveOrderService.addProducts(order, List.of(drill, saw)).block();
+        reactiveOrderService.addProductsById(order, Map.of(saw.getId(), 3)).block();
+
+        Order stored = reactiveOrderService.checkout(order).block();
+        Map<String, Integer> quantities = stored.getLines().stream()
+                .collect(Collectors.toMap(line -> line.getProduct().getName(), OrderLine::getQuantity));
+        Assertions.assertEquals(Map.of("Drill", 2, "Saw", 4), quantities);
+        Assertions.assertEquals("353.16", stored.calculatePrice().toString());
+        Assertions.assertEquals(order.getVersion(), stored.getVersion());
+        Assertions.assertEquals(quantities, orderService.checkout(order).getLines().stream()
+                .collect(Collectors.toMap(line -> line.getProduct().getName(), OrderLine::getQuantity)));
+
+        Long sawLine = stored.getLines().stream()
+                .filter(line -> line.getProduct().getId().equals(saw.getId()))
+                .findFirst().orElseThrow().getId();
+        reactiveOrderService.removeOrderLine(stored, sawLine).block();
+        Assertions.assertEquals(1, reactiveOrderService.checkout(order).block().getLines().size());
+
+        reactiveOrderService.removeOrder(stored).block();
+        Assertions.assertThrows(IllegalStateException.class, () -> reactiveOrderService.checkout(order).block());
+        Assertions.assertThrows(IllegalStateException.class, () -> orderService.checkout(order));
+    }
+
+    @Test
+    public void shouldLeaveOrderUnchangedWhenProductsAreMissing() {
+        Product hammer = reactiveProductRepository.store(new Product(null, "Hammer", 20.0)).block();
+        Order order = reactiveOrderService.createOrder().block();
+        reactiveOrderService.addProduct(order, hammer).block();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> reactiveOrderService
+                .addProductsById(order, Map.of(hammer.getId(), 1, Long.MAX_VALUE, 1)).block());
+
+        Order stored = reactiveOrderService.checkout(order).block();
+        Assertions.assertEquals(1, stored.getLines().size());
+        Assertions.assertEquals(1, stored.getLines().getFirst().getQuantity());
+    }
+
+    @Test
+    public void shouldNotRemoveOrAddToOrderRemovedOrChangedConcurrently() {
+        Product pen = reactiveProductRepository.store(new Product(null, "Pen", 1.5)).block();
+        Order order = reactiveOrderService.createOrder().block();
+        Order stale = reactiveOrderService.checkout(order).block();
+        reactiveOrderService.addProduct(order, pen).block();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                reactiveOrderService.addProductsById(order, Map.of(pen.getId(), 0)).block());
+        Assertions.assertThrows(OptimisticLockingFailureException.class, () ->
+                reactiveOrderRepository.remove(stale).block());
+        Assertions.assertEquals(1, reactiveOrderService.checkout(order).block().getLines().size());
+
+        reactiveOrderRepository.remove(reactiveOrderService.checkout(order).block()).block();
+        Assertions.assertThrows(DataIntegrityViolationException.class, () ->
+                reactiveOrderRepository.addQuantities(order.getId(), Map.of(pen.getId(), 2)).block());
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "select sum(quantity) from order_lines where order_id = ?", Integer.class, order.getId()));
+    }
+
+    /**
+     * The stale instance fails the version check once, the retry removes the order as reloaded
+     */
+    @Test
+    public void shouldRemoveOrderThroughStaleInstance() {
+        Product chisel = reactiveProductRepository.store(new Product(null, "Chisel", 12.0)).block();
+        Order order = reactiveOrderService.createOrder().block();
+        Order stale = reactiveOrderService.checkout(order).block();
+        reactiveOrderService.addProduct(order, chisel).block();
+
+        reactiveOrderService.removeOrder(stale).block();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> reactiveOrderService.checkout(order).block());
+    }
+
+    /**
+     * Events of both adapters are read back at the time they occurred, whichever driver wrote it
+     */
+    @Test
+    public void shouldAppendEventsOfBothAdaptersToTheOutbox() {
+        Product pen = reactiveProductRepository.store(new Product(null, "Pen", 1.5)).block();
+        Instant start = Instant.now();
+        Order reactive = reactiveOrderService.createOrder().block();
+        reactiveOrderService.addProduct(new Order(null, new ArrayList<>()), pen).block();
+        Order blocking = orderService.createOrder();
+
+        List<OrderEvent> events = IntStream.range(0, 4)
+                .mapToObj(partition -> orderEventRepository.claim(partition, 1000))
+                .flatMap(List::stream)
+                .filter(event -> !event.occurredAt().isBefore(start.minusSeconds(1)))
+                .toList();
+        Map<OrderEvent.Type, Long> types = events.stream()
+                .collect(Collectors.groupingBy(OrderEvent::type, Collectors.counting()));
+        Assertions.assertEquals(Map.of(OrderEvent.Type.ORDER_CREATED, 3L, OrderEvent.Type.PRODUCT_ADDED, 1L), types);
+        Assertions.assertTrue(events.stream().anyMatch(event -> event.orderId().equals(reactive.getId())));
+        Assertions.assertTrue(events.stream().anyMatch(event -> event.orderId().equals(blocking.getId())));
+        Assertions.assertTrue(events.stream().allMatch(event ->
+                Duration.between(event.occurredAt(), Instant.now()).abs().compareTo(Duration.ofMinutes(1)) < 0));
+    }
+
+    /**
+     * The reactive instance is stale once the JPA adapter added a line, its first attempt fails the optimistic check
+     * on the order version and the retry applies the change to the order as stored
+     */
+    @Test
+    public void shouldRetryChangeOfOrderChangedThroughJpa() {
+        Product pen = reactiveProductRepository.store(new Product(null, "Pen", 1.5)).block();
+        Product ink = reactiveProductRepository.store(new Product(null, "Ink", 3.0)).block();
+        Order order = reactiveOrderService.createOrder().block();
+        Order copy = reactiveOrderService.checkout(order).block();
+
+        orderService.addProduct(copy, pen);
+        reactiveOrderService.addProduct(order, ink).block();
+
+        Order stored = orderService.checkout(order);
+        Assertions.assertEquals(2, stored.getLines().size());
+        Assertions.assertEquals(2L, stored.getVersion());
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject("select count(*) from order_lines where order_id = ?",
+                Long.class, order.getId()));
+    }
+}
@@ -0,0 +1,112 @@
+package com.company.ordersservice.domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+public class OrderTest {
+
+    private final Product drill = new Product(1L, "Drill", 156.56);
+
+    private final Product saw = new Product(2L, "Saw", 86.23);
+
+    @Test
+    public void shouldAggregateDuplicatedProducts() {
+        Order order = new Order(null, new ArrayList<>());
+
+        order.addProducts(List.of(drill, saw, drill, drill));
+
+        Assertions.assertEquals(2, order.getLines().size());
+        Assertions.assertEquals(3, order.getLines().get(0).getQuantity());
+        Assertions.assertEquals(1, order.getLines().get(1).getQuantity());
+    }
+
+    @Test
+    public void shouldReuseRemovedLineWhenItsProductIsAddedAgain() {
+        Order order = new Order(null, new ArrayList<>(List.of(new OrderLine(10L, drill, 2), new OrderLine(11L, saw, 1))));
+        order.addProduct(drill);
+
+        order.removeOrderLine(10L);
+        order.addProduct(drill);
+
+        Assertions.assertEquals(2, order.getLines().size());
+        OrderLine drillLine = order.getLines().get(1);
+        Assertions.assertEquals(10L, drillLine.getId());
+        Assertions.assertEquals(1, drillLine.getQuantity());
+        Assertions.assertEquals(Set.of(drillLine), order.pendingChanges().getUpdated());
+        Assertions.assertFalse(order.pendingChanges().isStructural());
+    }
+
+    @Test
+    public void shouldSeeLinesAddedDirectlyToTheList() {
+        Order order = new Order(null, new ArrayList<>());
+        order.addProduct(drill);
+
+        order.getLines().add(new OrderLine(null, saw, 4));
+        order.addProduct(saw);
+
+        Assertions.assertEquals(2, order.getLines().size());
+        Assertions.assertEquals(5, order.getLines().get(1).getQuantity());
+    }
+
+    @Test
+    public void shouldSeeLinesReplacedDirectlyInTheList() {
+        Order order = new Order(null, new ArrayList<>());
+        order.addProduct(drill);
+
+        order.getLines().set(0, new OrderLine(null, saw, 4));
+        order.addProduct(saw);
+        order.addProduct(drill);
+
+        Assertions.assertEquals(2, order.getLines().size());
+        Assertions.assertEquals(5, order.getLines().get(0).getQuantity());
+        Assertions.assertEquals(1, order.getLines().get(1).getQuantity());
+    }
+
+    @Test
+    public void shouldMultiplyPriceByQuantity() {
+        Order order = new Order(null, new ArrayList<>());
+        order.addProducts(List.of(drill, saw, drill));
+
+        Assertions.assertEquals(Money.of(2 * 156.56 + 86.23), order.calculatePrice());
+        Assertions.assertEquals("399.35", order.calculatePrice().toString());
+    }
+
+    @Test
+    public void shouldKeepPriceUpToDateWhenOrderChanges() {
+        Order order = new Order(null, new ArrayList<>(List.of(new OrderLine(10L, drill, 1), new OrderLine(11L, saw, 2))));
+        Assertions.assertEquals(new Money(15656 + 2 * 8623), order.calculatePrice());
+
+        order.addProduct(saw, 3);
+        Assertions.assertEquals(new Money(15656 + 5 * 8623), order.calculatePrice());
+
+        order.removeOrderLine(10L);
+        Assertions.assertEquals(new Money(5 * 8623), order.calculatePrice());
+
+        order.getLines().set(0, new OrderLine(12L, drill, 2));
+        Assertions.assertEquals(new Money(2 * 15656), order.calculatePrice());
+    }
+
+    @Test
+    public void shouldNotRecordLinesMovedWithinOrder() {
+        OrderLine drillLine = new OrderLine(10L, drill, 1);
+        OrderLine sawLine = new OrderLine(11L, saw, 2);
+        Order order = new Order(null, new ArrayList<>(List.of(sawLine, drillLine)));
+        order.addProduct(saw);
+
+        order.getLines().sort(Comparator.comparing(line -> line.getProduct().getName()));
+
+        Assertions.assertEquals(List.of(drillLine, sawLine), order.getLines());
+        Assertions.assertEquals(List.of(), order.pendingChanges().getInserted());
+        Assertions.assertEquals(List.of(), order.pendingChanges().getRemoved());
+        Assertions.assertEquals(Set.of(sawLine), order.pendingChanges().getUpdated());
+
+        order.getLines().set(1, drillLine);
+        Assertions.assertEquals(List.of(sawLine), order.pendingChanges().getRemoved());
+        Assertions.assertEquals(Set.of(), order.pendingChanges().getUpdated());
+    }
+}
@@ -0,0 +1,108 @@
+package com.company.ordersservice.infrastructure.cache;
+
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.OrderJpaRepository;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = "orders.product-cache.maximum-size=500")
+@ActiveProfiles("h2")
+public class ProductCacheTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCacheTest.class);
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldReadProductThroughCacheAndEvictItWhenStored() {
+        Product drill = productRepository.store(new Product(null, "Drill", 156.56));
+        ProductCache.Statistics before = productCache.statistics();
+
+        Assertions.assertEquals("Drill", productRepository.find(drill.getId()).orElseThrow().getName());
+        Assertions.assertEquals("Drill", productRepository.find(drill.getId()).orElseThrow().getName());
+        ProductCache.Statistics warm = productCache.statistics();
+        Assertions.assertEquals(before.hits() + 1, warm.hits());
+
+        productRepository.store(new Product(drill.getId(), "Hammer Drill", 199.99));
+        Assertions.assertEquals(warm.invalidations() + 1, productCache.statistics().invalidations());
+        Assertions.assertEquals("Hammer Drill", productRepository.find(drill.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    public void shouldBoundNumberOfCachedProducts() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            products.add(new Product(null, "Product " + i, 1.0 + i));
+        }
+        productRepository.saveAll(products).forEach(product -> productRepository.find(product.getId()));
+
+        ProductCache.Statistics statistics = productCache.statistics();
+        Assertions.assertTrue(statistics.size() <= 500, "Cache holds " + statistics.size() + " products");
+        Assertions.assertTrue(statistics.evictions() >= 300, "Evicted " + statistics.evictions() + " products");
+    }
+
+    @Test
+    public void shouldLoadOrdersWithHotCatalogWithoutReadingProducts() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(new Product(null, "Catalog product " + i, 5.0 + i));
+        }
+        products = productRepository.saveAll(products);
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Order order = new Order(null, new ArrayList<>());
+            order.addProducts(products.subList(i, i + 50));
+            orderIds.add(orderRepository.store(order).getId());
+        }
+
+        entityManagerFactory.getCache().evict(Product.class);
+        long[] cold = loadOrders(orderIds);
+        long[] hot = loadOrders(orderIds);
+        log.info("Loading 50 orders of 50 lines: cold catalog {} statements in {} us, "
+                + "hot catalog {} statements in {} us (hit rate {})", cold[0], cold[1] / 1000, hot[0], hot[1] / 1000,
+                String.format("%.2f", productCache.statistics().hitRate()));
+
+        Assertions.assertEquals(cold[0] - 2, hot[0]);
+    }
+
+    /**
+     * @return statements and nanoseconds needed to load the orders with their lines and calculate their price
+     */
+    private long[] loadOrders(List<Long> orderIds) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                orderRepository.findAll(orderIds, FetchPlan.WITH_LINES).forEach(Order::calculatePrice));
+        return new long[]{statistics.getPrepareStatementCount(), System.nanoTime() - start};
+    }
+}
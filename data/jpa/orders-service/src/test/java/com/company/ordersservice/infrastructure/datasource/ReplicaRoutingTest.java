@@ -0,0 +1,160 @@
+package com.company.ordersservice.infrastructure.datasource;
+
+import com.company.ordersservice.application.OrderService;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.infrastructure.jpa.ProductJpaRepository;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two embedded databases stand in for the primary and its replica. Replication is simulated by copying
+ * the primary into the replica with a script, changes made to the primary afterwards are not on the replica,
+ * which tells where a read went. The read-your-writes window is measured with a ticker the test advances.
+ */
+@SpringBootTest(properties = {
+        "orders.datasource.replicas[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "orders.datasource.max-replica-lag=5s",
+        "orders.datasource.replica-probe-interval=1h",
+        "orders.datasource.read-your-writes-window=500ms"})
+@ActiveProfiles("h2")
+public class ReplicaRoutingTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingTest.class);
+
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:orders-service-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private ManualTicker ticker;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private JdbcTemplate primary;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @TempDir
+    private Path scripts;
+
+    @Test
+    public void shouldReadFromReplicaExceptOrdersJustWrittenByTheCaller() {
+        Product product = productRepository.store(new Product(null, "Drill", 156.56));
+        Order order = orderService.createOrder();
+        orderService.addProduct(order, product);
+        ticker.advance(Duration.ofMillis(700));
+        replicate();
+        changeQuantityOnPrimaryOnly(order, 5);
+
+        long replicaConnections = replicaRoutingDataSource.getReplicaConnections();
+        Assertions.assertEquals(1, quantity(orderService.checkout(order)));
+        Assertions.assertTrue(replicaRoutingDataSource.getReplicaConnections() > replicaConnections);
+
+        orderService.addProduct(order, product);
+        Assertions.assertEquals(6, quantity(orderService.checkout(order)));
+
+        ticker.advance(Duration.ofMillis(700));
+        Assertions.assertEquals(1, quantity(orderService.checkout(order)));
+    }
+
+    @Test
+    public void shouldReadFromPrimaryWhileReplicaLagsOrIsDown() {
+        Product product = productRepository.store(new Product(null, "Saw", 86.23));
+        Order order = orderService.createOrder();
+        orderService.addProduct(order, product);
+        ticker.advance(Duration.ofMillis(700));
+        replicate();
+        changeQuantityOnPrimaryOnly(order, 3);
+        Assertions.assertEquals(1, quantity(orderService.checkout(order)));
+
+        replica.update("update replication_heartbeats set beat_millis = beat_millis - 60000");
+        replicaRouter.probe();
+        ReplicaRouter.Status lagging = replicaRouter.status().getFirst();
+        log.info("Replica lagging: {}", lagging);
+        Assertions.assertTrue(lagging.healthy());
+        Assertions.assertFalse(lagging.eligible());
+        Assertions.assertEquals(3, quantity(orderService.checkout(order)));
+
+        replicate();
+        Assertions.assertTrue(replicaRouter.status().getFirst().eligible());
+        replica.execute("shutdown");
+        replicaRouter.probe();
+        ReplicaRouter.Status down = replicaRouter.status().getFirst();
+        log.info("Replica down: {}", down);
+        Assertions.assertFalse(down.healthy());
+        long primaryConnections = replicaRoutingDataSource.getPrimaryConnections();
+        Assertions.assertEquals(3, quantity(orderService.checkout(order)));
+        Assertions.assertTrue(replicaRoutingDataSource.getPrimaryConnections() > primaryConnections);
+    }
+
+    /**
+     * Copies the primary into the replica, heartbeat included, and probes the replica
+     */
+    private void replicate() {
+        replicaRouter.probe();
+        String script = scripts.resolve("primary-" + System.nanoTime() + ".sql").toString();
+        primary.execute("script to '" + script + "'");
+        replica.execute("drop all objects");
+        replica.execute("runscript from '" + script + "'");
+        replicaRouter.probe();
+        Assertions.assertTrue(replicaRouter.status().getFirst().eligible());
+    }
+
+    private void changeQuantityOnPrimaryOnly(Order order, int quantity) {
+        Assertions.assertEquals(1, primary.update("update order_lines set quantity = ?, version = version + 1 "
+                + "where order_id = ?", quantity, order.getId()));
+    }
+
+    private static int quantity(Order order) {
+        return order.getLines().getFirst().getQuantity();
+    }
+
+    @TestConfiguration
+    static class TickerConfiguration {
+
+        @Bean
+        ManualTicker ticker() {
+            return new ManualTicker();
+        }
+    }
+
+    static class ManualTicker implements Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(Duration duration) {
+            nanos.addAndGet(duration.toNanos());
+        }
+    }
+}
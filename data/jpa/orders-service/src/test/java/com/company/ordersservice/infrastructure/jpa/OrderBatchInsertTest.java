@@ -0,0 +1,78 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts JDBC statements needed to write a 200 line order with and without JDBC batching.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+public class OrderBatchInsertTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBatchInsertTest.class);
+
+    private static final int LINES = 200;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldWriteLargeOrderInFewStatements() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            products.add(new Product(null, "Product " + i, 10.0 + i));
+        }
+        List<Product> stored = productRepository.saveAll(products);
+
+        long unbatched = countStatementsOfStoringOrder(stored, 1);
+        long batched = countStatementsOfStoringOrder(stored, null);
+        log.info("Storing order with {} lines: {} statements without batching, {} statements with batching",
+                LINES, unbatched, batched);
+
+        Assertions.assertTrue(unbatched >= LINES);
+        Assertions.assertTrue(batched <= 12, "Expected a handful of statements but was " + batched);
+    }
+
+    private long countStatementsOfStoringOrder(List<Product> products, Integer jdbcBatchSize) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (jdbcBatchSize != null) {
+                entityManager.unwrap(org.hibernate.Session.class).setJdbcBatchSize(jdbcBatchSize);
+            }
+            Order order = new Order(null, new ArrayList<>());
+            order.addProducts(products);
+            orderRepository.store(order);
+        });
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,131 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.application.OrderService;
+import com.company.ordersservice.domain.FetchPlan;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Counts SQL statements needed to load orders and calculate their price with every fetch plan
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+public class OrderFetchPlanTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderFetchPlanTest.class);
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldLoadOrderWithLinesAndProductsInOneQueryWhateverItsSize() {
+        for (int lines : new int[]{1, 10, 200}) {
+            Long orderId = storeOrder(lines);
+
+            Assertions.assertEquals(1, countStatements(() ->
+                    orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow()));
+            Assertions.assertEquals(1 + (lines + 49) / 50, countStatements(() ->
+                    orderRepository.find(orderId, FetchPlan.WITH_LINES).orElseThrow()));
+        }
+    }
+
+    @Test
+    public void shouldLoadSeveralOrdersInFixedNumberOfQueries() {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            orderIds.add(storeOrder(20));
+        }
+
+        long withLinesAndProducts = countStatements(() ->
+                orderRepository.findAll(orderIds, FetchPlan.WITH_LINES_AND_PRODUCTS));
+        long batched = countStatements(() -> orderRepository.findAll(orderIds, FetchPlan.ORDER));
+        long oneByOne = countStatements(() -> orderIds.stream()
+                .map(id -> orderRepository.findById(id).orElseThrow())
+                .toList());
+        log.info("Loading 30 orders of 20 lines with prices: {} statements with WITH_LINES_AND_PRODUCTS, "
+                + "{} with batch fetching, {} loading orders one by one", withLinesAndProducts, batched, oneByOne);
+
+        Assertions.assertEquals(1, withLinesAndProducts);
+        Assertions.assertEquals(1 + 1 + 30 * 20 / 50, batched);
+        Assertions.assertTrue(oneByOne > batched);
+    }
+
+    /**
+     * Products are lazy, orders handed out detached have to be loaded with them
+     */
+    @Test
+    public void shouldPriceDetachedOrdersOnlyWhenLoadedWithProducts() {
+        Long orderId = storeOrder(3);
+
+        Order checkedOut = orderService.checkout(orderService.createOrder());
+        Assertions.assertEquals("0.00", checkedOut.calculatePrice().toString());
+        Order stored = orderRepository.find(orderId, FetchPlan.WITH_LINES_AND_PRODUCTS).orElseThrow();
+        Assertions.assertEquals("7.50", stored.calculatePrice().toString());
+        Assertions.assertEquals(stored.calculatePrice(), orderService.checkout(stored).calculatePrice());
+
+        entityManagerFactory.getCache().evictAll();
+        Order withLines = orderRepository.find(orderId, FetchPlan.WITH_LINES).orElseThrow();
+        Assertions.assertEquals(3, withLines.getLines().size());
+        Assertions.assertThrows(LazyInitializationException.class, withLines::calculatePrice);
+    }
+
+    private Long storeOrder(int lines) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            products.add(new Product(null, "Product " + i, 1.5 + i));
+        }
+        Order order = new Order(null, new ArrayList<>());
+        order.addProducts(productRepository.saveAll(products));
+        return orderRepository.store(order).getId();
+    }
+
+    /**
+     * Loads orders in a new persistence context and calculates their price, which touches every line and product.
+     * The second-level cache is emptied first, so products are read from the database.
+     */
+    private long countStatements(Supplier<Object> loader) {
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Object loaded = loader.get();
+            List<Order> orders = loaded instanceof Order order ? List.of(order) : castToOrders(loaded);
+            orders.forEach(Order::calculatePrice);
+        });
+        return statistics.getPrepareStatementCount();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Order> castToOrders(Object loaded) {
+        return (List<Order>) loaded;
+    }
+}
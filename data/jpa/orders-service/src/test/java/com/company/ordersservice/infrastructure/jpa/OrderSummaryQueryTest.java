@@ -0,0 +1,102 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Money;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.OrderSummary;
+import com.company.ordersservice.domain.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the summary query with loading every order and calculating its price in memory.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+public class OrderSummaryQueryTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSummaryQueryTest.class);
+
+    private static final int ORDERS = 200;
+
+    private static final int LINES = 20;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldComputeSummariesInOneQuery() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            products.add(new Product(null, "Product " + i, 1.25 + i));
+        }
+        products = productRepository.saveAll(products);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order(null, new ArrayList<>());
+            for (Product product : products) {
+                order.addProduct(product, 1 + i % 3);
+            }
+            orders.add(order);
+        }
+        List<Long> orderIds = orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+        Order empty = orderRepository.store(new Order(null, new ArrayList<>()));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+
+        statistics.clear();
+        long start = System.nanoTime();
+        List<OrderSummary> loaded = template.execute(status -> orderIds.stream()
+                .map(id -> orderRepository.find(id).orElseThrow())
+                .map(order -> new OrderSummary(order.getId(), order.getLines().size(),
+                        order.getLines().stream().mapToLong(line -> line.getQuantity()).sum(), order.calculatePrice()))
+                .toList());
+        long loadingNanos = System.nanoTime() - start;
+        long loadingStatements = statistics.getPrepareStatementCount();
+
+        long total = orderRepository.count();
+        statistics.clear();
+        start = System.nanoTime();
+        List<OrderSummary> queried = orderRepository.findSummaries(0, (int) total);
+        long queryNanos = System.nanoTime() - start;
+        long queryStatements = statistics.getPrepareStatementCount();
+
+        log.info("Summaries of {} orders with {} lines: find + calculatePrice {} statements in {} ms, "
+                        + "summary query {} statements in {} ms", ORDERS, LINES, loadingStatements,
+                loadingNanos / 1_000_000, queryStatements, queryNanos / 1_000_000);
+
+        // other tests sharing the application context may have stored orders too
+        Map<Long, OrderSummary> queriedById = queried.stream()
+                .collect(Collectors.toMap(OrderSummary::id, Function.identity()));
+        Assertions.assertEquals(1, queryStatements);
+        Assertions.assertEquals(total, queried.size());
+        Assertions.assertEquals(loaded, orderIds.stream().map(queriedById::get).toList());
+        Assertions.assertEquals(new OrderSummary(empty.getId(), 0, 0, Money.ZERO), queriedById.get(empty.getId()));
+        Assertions.assertEquals(queried.subList(2, 4), orderRepository.findSummaries(1, 2));
+    }
+}
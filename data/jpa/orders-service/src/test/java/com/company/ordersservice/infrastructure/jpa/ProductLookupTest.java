@@ -0,0 +1,57 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.domain.Product;
+import com.company.ordersservice.domain.ProductLookup;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+public class ProductLookupTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductLookupTest.class);
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void shouldResolveCartInFewQueriesAndReportMissingIds() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            products.add(new Product(null, "Product " + i, 2.0 + i));
+        }
+        List<Long> ids = new ArrayList<>(productRepository.saveAll(products).stream().map(Product::getId).toList());
+        ids.add(-1L);
+        ids.add(-2L);
+        ids.add(ids.get(0));
+        entityManagerFactory.getCache().evict(Product.class);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ProductLookup lookup = productRepository.findAll(ids);
+        long statements = statistics.getPrepareStatementCount();
+        log.info("Resolving {} product ids took {} statements", ids.size(), statements);
+
+        Assertions.assertEquals(1_200, lookup.products().size());
+        Assertions.assertEquals(Set.of(-1L, -2L), lookup.missingIds());
+        Assertions.assertEquals("Product 7", lookup.get(ids.get(7)).getName());
+        Assertions.assertTrue(statements <= (ids.size() + ProductLookupOperationsImpl.IN_CLAUSE_CHUNK - 1)
+                / ProductLookupOperationsImpl.IN_CLAUSE_CHUNK, "Used " + statements + " statements");
+        Assertions.assertThrows(IllegalArgumentException.class, lookup::requireComplete);
+    }
+}
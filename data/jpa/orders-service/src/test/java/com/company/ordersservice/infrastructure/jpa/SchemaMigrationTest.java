@@ -0,0 +1,48 @@
+package com.company.ordersservice.infrastructure.jpa;
+
+import com.company.ordersservice.application.OrderService;
+import com.company.ordersservice.domain.Order;
+import com.company.ordersservice.domain.Product;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+/**
+ * Starts the prod profile on the embedded database: the schema is created by the Flyway migrations
+ * and the application only starts when Hibernate finds it matching the entities
+ */
+@SpringBootTest
+@ActiveProfiles({"h2", "prod"})
+public class SchemaMigrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductJpaRepository productRepository;
+
+    @Test
+    public void shouldCreateSchemaMatchingEntitiesWithMigrations() {
+        Assertions.assertEquals("3", flyway.info().current().getVersion().getVersion());
+        Assertions.assertEquals(0, flyway.info().pending().length);
+
+        List<Product> products = productRepository.saveAll(List.of(new Product(null, "Drill", 156.56),
+                new Product(null, "Saw", 86.23)));
+        Order order = orderService.createOrder();
+        orderService.addProducts(order, List.of(products.get(0), products.get(1), products.get(1)));
+
+        Order stored = orderService.checkout(order);
+        Assertions.assertEquals(2, stored.getLines().size());
+        Assertions.assertEquals(329.02, stored.calculatePrice().toBigDecimal().doubleValue());
+        Assertions.assertFalse(LoggerFactory.getLogger("org.hibernate.SQL").isErrorEnabled());
+    }
+}